@@ -0,0 +1,79 @@
+#!/bin/bash
+#
+# Fast startup: Spring AOT + AppCDS + the fast-startup profile (Flyway, no schema probing).
+#
+#   ./fast-startup.sh build     AOT-processed jar, extracted to target/fast-startup
+#   ./fast-startup.sh train     training run that writes the AppCDS archive (needs the database)
+#   ./fast-startup.sh run       start the API with AOT and the archive
+#   ./fast-startup.sh measure   time from launch to first answered request, default vs fast startup
+#
+# Database settings come from the environment (SPRING_DATASOURCE_URL, SPRING_DATASOURCE_USERNAME,
+# SPRING_DATASOURCE_PASSWORD) or application.properties. Re-run build and train after every change:
+# the archive is only used with the exact jars it was created from.
+
+set -e
+cd "$(dirname "$0")"
+
+JAR=api-0.0.1-SNAPSHOT.jar
+APP_DIR=target/fast-startup
+PROFILES=prod,fast-startup
+PORT=${SERVER_PORT:-8084}
+FIRST_REQUEST=${FIRST_REQUEST:-/api/test/db-connection}
+
+build() {
+    echo "Building AOT-processed jar..."
+    ./mvnw -B -Pfast-startup clean package -DskipTests
+    java -Djarmode=tools -jar target/$JAR extract --force --destination $APP_DIR
+}
+
+train() {
+    echo "Training run for the AppCDS archive..."
+    (cd $APP_DIR && java -XX:ArchiveClassesAtExit=application.jsa -Dspring.aot.enabled=true \
+        -Dspring.context.exit=onRefresh -jar $JAR --spring.profiles.active=$PROFILES)
+}
+
+run() {
+    cd $APP_DIR
+    exec java -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar $JAR \
+        --spring.profiles.active=$PROFILES "$@"
+}
+
+# Starts the given command in the background and prints milliseconds until FIRST_REQUEST answers 200
+time_to_first_request() {
+    local log=$1
+    shift
+    local start
+    start=$(date +%s%N)
+    "$@" > "$log" 2>&1 &
+    local pid=$!
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT$FIRST_REQUEST")" = "200" ]; do
+        if ! kill -0 $pid 2>/dev/null; then
+            echo "Application exited, see $log" >&2
+            return 1
+        fi
+        sleep 0.05
+    done
+    echo $(( ($(date +%s%N) - start) / 1000000 ))
+    kill $pid
+    wait $pid 2>/dev/null || true
+}
+
+measure() {
+    local runs=${RUNS:-3}
+    echo "Time to first request ($FIRST_REQUEST), $runs runs each"
+    for i in $(seq "$runs"); do
+        default_ms=$(time_to_first_request target/startup-default.log java -jar target/$JAR)
+        prod_ms=$(time_to_first_request target/startup-prod.log java -jar target/$JAR --spring.profiles.active=prod)
+        fast_ms=$(time_to_first_request target/startup-fast.log bash -c "cd $APP_DIR && exec java \
+            -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar $JAR --spring.profiles.active=$PROFILES")
+        echo "run $i: default ${default_ms} ms, prod ${prod_ms} ms, prod + fast-startup + AOT + CDS ${fast_ms} ms"
+    done
+}
+
+case "$1" in
+    build) build ;;
+    train) train ;;
+    run) shift; run "$@" ;;
+    measure) measure ;;
+    *) echo "Usage: $0 build|train|run|measure" >&2; exit 1 ;;
+esac
@@ -0,0 +1,397 @@
+package com.arogith.api.analytics;
+
+import com.arogith.api.analytics.AnalyticsQuery.Dimension;
+import com.arogith.api.config.AnalyticsProperties;
+import com.arogith.api.config.BranchProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers visit trend questions ("fever complaints per week by age band and gender") from an
+ * in-memory columnar snapshot instead of scanning visits joined with patients on every request.
+ *
+ * A background thread loads the snapshot once and then applies the change log every
+ * refresh-interval-ms (see SnapshotLoader); queries never touch the database. A query compiles
+ * its filters into per-dictionary masks and counts matching rows into mixed-radix group keys,
+ * split across a fork-join pool.
+ *
+ * Off by default: the snapshot holds every visit in the heap, loaded at startup.
+ */
+@Component
+@ConditionalOnProperty(prefix = "arogith.analytics", name = "enabled", havingValue = "true")
+public class AnalyticsEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsEngine.class);
+
+    private static final int MIN_SPLIT_ROWS = 16_384;
+    private static final int MAX_AGE = 150;
+
+    private final AnalyticsProperties properties;
+    private final BranchProperties branchProperties;
+    private final SnapshotLoader loader;
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analytics-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ColumnStore store = new ColumnStore();
+    private final Map<String, String> horizons = new LinkedHashMap<>();
+    private volatile AnalyticsSnapshot snapshot = AnalyticsSnapshot.EMPTY;
+
+    public AnalyticsEngine(AnalyticsProperties properties, BranchProperties branchProperties,
+                           DataSourceProperties dataSourceProperties) {
+        this(properties, branchProperties, new SnapshotLoader(dataSourceProperties, properties.getFetchSize()));
+    }
+
+    AnalyticsEngine(AnalyticsProperties properties, BranchProperties branchProperties, SnapshotLoader loader) {
+        this.properties = properties;
+        this.branchProperties = branchProperties;
+        this.loader = loader;
+    }
+
+    @PostConstruct
+    public void start() {
+        refresher.scheduleWithFixedDelay(this::refresh, 0, properties.getRefreshIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    void refresh() {
+        try {
+            if (horizons.isEmpty()) {
+                long start = System.nanoTime();
+                loader.loadAll(store, schemas(), horizons);
+                snapshot = store.publish();
+                logger.info("Analytics snapshot loaded: {} visits in {} ms", store.visitCount(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } else if (loader.applyChanges(store, horizons) > 0) {
+                snapshot = store.publish();
+            }
+        } catch (Exception e) {
+            logger.error("Analytics snapshot refresh failed, will retry: {}", e.getMessage(), e);
+        }
+    }
+
+    private List<String> schemas() {
+        if (!branchProperties.isEnabled()) {
+            return List.of(branchProperties.getDefaultSchema());
+        }
+        return new ArrayList<>(new LinkedHashSet<>(branchProperties.getSchemas().values()));
+    }
+
+    public Map<String, Object> query(AnalyticsQuery query) {
+        AnalyticsSnapshot current = snapshot;
+        if (!current.isLoaded()) {
+            throw new IllegalStateException("Analytics snapshot is still loading");
+        }
+        long start = System.nanoTime();
+        Plan plan = new Plan(query, current);
+        GroupCounter counts = current.rows == 0 ? new GroupCounter()
+                : pool.invoke(new CountTask(plan, 0, current.rows,
+                Math.max(MIN_SPLIT_ROWS, current.rows / (pool.getParallelism() * 4))));
+        if (counts.size() > properties.getMaxGroups()) {
+            throw new IllegalArgumentException("Query produces more than " + properties.getMaxGroups() + " groups");
+        }
+
+        long[][] entries = counts.sortedEntries();
+        List<Map<String, Object>> groups = new ArrayList<>(entries[0].length);
+        long matched = 0;
+        for (int i = 0; i < entries[0].length; i++) {
+            Map<String, Object> group = plan.decode(entries[0][i]);
+            group.put("visits", entries[1][i]);
+            groups.add(group);
+            matched += entries[1][i];
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("groupBy", query.groupBy().stream().map(Dimension::parameter).toList());
+        result.put("groups", groups);
+        result.put("matchedVisits", matched);
+        result.put("snapshotVisits", current.visits);
+        result.put("snapshotAt", current.refreshedAt);
+        result.put("queryMs", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / 1000.0);
+        return result;
+    }
+
+    public int getSnapshotVisits() {
+        return snapshot.visits;
+    }
+
+    /**
+     * Seconds since the snapshot was last published, -1 before the first load.
+     */
+    public double getSnapshotAgeSeconds() {
+        Instant refreshedAt = snapshot.refreshedAt;
+        return refreshedAt == null ? -1 : Duration.between(refreshedAt, Instant.now()).toMillis() / 1000.0;
+    }
+
+    /**
+     * A query compiled against one snapshot: dictionary masks for the filters and, for each group-by
+     * dimension, a radix and a way to compute the row's digit.
+     */
+    private final class Plan {
+
+        final AnalyticsSnapshot snapshot;
+        final Dimension[] dimensions;
+        final long[] radix;
+        final int ageBandYears;
+        final boolean[] complaintMask;
+        final boolean[] symptomMask;
+        final boolean[] genderMask;
+        final boolean[] branchMask;
+        final int fromDay;
+        final int toDay;
+        final boolean dateFiltered;
+        final int minAge;
+        final int maxAge;
+        final int unknownGender;
+        final int[] dayBucket;
+        final int dayBuckets;
+
+        Plan(AnalyticsQuery query, AnalyticsSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.dimensions = query.groupBy().toArray(new Dimension[0]);
+            this.ageBandYears = query.ageBandYears();
+            this.complaintMask = containsMask(snapshot.complaints, query.complaint());
+            this.symptomMask = containsMask(snapshot.symptomValues, query.symptom());
+            this.genderMask = equalsMask(snapshot.genders, query.gender() == null ? null
+                    : ColumnStore.Dictionary.normalize(query.gender()));
+            this.branchMask = equalsMask(snapshot.branches, query.branch() == null ? null : schemaOf(query.branch()));
+            this.dateFiltered = query.from() != null || query.to() != null;
+            this.fromDay = query.from() == null ? Integer.MIN_VALUE + 1 : (int) query.from().toEpochDay();
+            this.toDay = query.to() == null ? Integer.MAX_VALUE : (int) query.to().toEpochDay();
+            this.minAge = query.minAge() == null ? Integer.MIN_VALUE : query.minAge();
+            this.maxAge = query.maxAge() == null ? Integer.MAX_VALUE : query.maxAge();
+            this.unknownGender = indexOf(snapshot.genders, "");
+
+            Dimension timeDimension = null;
+            for (Dimension dimension : dimensions) {
+                if (dimension == Dimension.DAY || dimension == Dimension.WEEK || dimension == Dimension.MONTH) {
+                    timeDimension = dimension;
+                }
+            }
+            int days = snapshot.maxDay >= snapshot.minDay ? snapshot.maxDay - snapshot.minDay + 1 : 0;
+            this.dayBucket = new int[timeDimension == null ? 0 : days];
+            int firstIndex = dayBucket.length == 0 ? 0 : timeIndex(timeDimension, snapshot.minDay);
+            for (int i = 0; i < dayBucket.length; i++) {
+                // Bucket 0 is reserved for visits without a date
+                dayBucket[i] = 1 + timeIndex(timeDimension, snapshot.minDay + i) - firstIndex;
+            }
+            this.dayBuckets = dayBucket.length == 0 ? 1 : dayBucket[dayBucket.length - 1] + 1;
+
+            this.radix = new long[dimensions.length];
+            long keySpace = 1;
+            for (int i = 0; i < dimensions.length; i++) {
+                radix[i] = switch (dimensions[i]) {
+                    case DAY, WEEK, MONTH -> dayBuckets;
+                    case AGE_BAND -> 2 + MAX_AGE / ageBandYears;
+                    case GENDER -> Math.max(1, snapshot.genders.length);
+                    case COMPLAINT -> Math.max(1, snapshot.complaints.length);
+                    case BRANCH -> Math.max(1, snapshot.branches.length);
+                };
+                try {
+                    keySpace = Math.multiplyExact(keySpace, radix[i]);
+                } catch (ArithmeticException e) {
+                    throw new IllegalArgumentException("Too many group-by combinations");
+                }
+            }
+        }
+
+        /**
+         * The row's group key, or -1 if it does not pass the filters.
+         */
+        long key(int row) {
+            AnalyticsSnapshot s = snapshot;
+            if (s.removed[row]) {
+                return -1;
+            }
+            int day = s.day[row];
+            if (dateFiltered && (day == AnalyticsSnapshot.NO_DAY || day < fromDay || day > toDay)) {
+                return -1;
+            }
+            if ((complaintMask != null && !complaintMask[s.complaint[row]])
+                    || (symptomMask != null && !symptomMask[s.symptoms[row]])
+                    || (branchMask != null && !branchMask[s.branch[row]])) {
+                return -1;
+            }
+            int patient = s.patient[row];
+            int age = patient < 0 ? -1 : s.patientAge[patient];
+            int gender = patient < 0 ? unknownGender : s.patientGender[patient];
+            if ((minAge != Integer.MIN_VALUE || maxAge != Integer.MAX_VALUE) && (age < 0 || age < minAge || age > maxAge)) {
+                return -1;
+            }
+            if (genderMask != null && (gender < 0 || !genderMask[gender])) {
+                return -1;
+            }
+
+            long key = 0;
+            for (int i = 0; i < dimensions.length; i++) {
+                long digit = switch (dimensions[i]) {
+                    case DAY, WEEK, MONTH -> day == AnalyticsSnapshot.NO_DAY ? 0 : dayBucket[day - s.minDay];
+                    case AGE_BAND -> age < 0 ? 0 : 1 + Math.min(age, MAX_AGE) / ageBandYears;
+                    case GENDER -> Math.max(gender, 0);
+                    case COMPLAINT -> s.complaint[row];
+                    case BRANCH -> s.branch[row];
+                };
+                key = key * radix[i] + digit;
+            }
+            return key;
+        }
+
+        Map<String, Object> decode(long key) {
+            long[] digits = new long[dimensions.length];
+            for (int i = dimensions.length - 1; i >= 0; i--) {
+                digits[i] = key % radix[i];
+                key /= radix[i];
+            }
+            Map<String, Object> group = new LinkedHashMap<>();
+            for (int i = 0; i < dimensions.length; i++) {
+                int digit = (int) digits[i];
+                group.put(dimensions[i].parameter(), switch (dimensions[i]) {
+                    case DAY, WEEK, MONTH -> digit == 0 ? null : timeLabel(dimensions[i], digit);
+                    case AGE_BAND -> digit == 0 ? "unknown"
+                            : ((digit - 1) * ageBandYears) + "-" + ((digit - 1) * ageBandYears + ageBandYears - 1);
+                    case GENDER -> blankToNull(snapshot.genders[digit]);
+                    case COMPLAINT -> blankToNull(snapshot.complaints[digit]);
+                    case BRANCH -> branchOf(snapshot.branches[digit]);
+                });
+            }
+            return group;
+        }
+
+        private String timeLabel(Dimension dimension, int bucket) {
+            int index = timeIndex(dimension, snapshot.minDay) + bucket - 1;
+            return switch (dimension) {
+                case DAY -> LocalDate.ofEpochDay(index).toString();
+                // Week index w starts on Monday, epoch day 7w - 3
+                case WEEK -> LocalDate.ofEpochDay(7L * index - 3).toString();
+                default -> YearMonth.of(Math.floorDiv(index, 12), Math.floorMod(index, 12) + 1).toString();
+            };
+        }
+    }
+
+    private static int timeIndex(Dimension dimension, int epochDay) {
+        return switch (dimension) {
+            case DAY -> epochDay;
+            case WEEK -> Math.floorDiv(epochDay + 3, 7);
+            default -> {
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                yield date.getYear() * 12 + date.getMonthValue() - 1;
+            }
+        };
+    }
+
+    private static boolean[] containsMask(String[] dictionary, String needle) {
+        if (needle == null || needle.isBlank()) {
+            return null;
+        }
+        String normalized = ColumnStore.Dictionary.normalize(needle);
+        boolean[] mask = new boolean[dictionary.length];
+        for (int i = 0; i < dictionary.length; i++) {
+            mask[i] = dictionary[i].contains(normalized);
+        }
+        return mask;
+    }
+
+    private static boolean[] equalsMask(String[] dictionary, String value) {
+        if (value == null) {
+            return null;
+        }
+        boolean[] mask = new boolean[dictionary.length];
+        for (int i = 0; i < dictionary.length; i++) {
+            mask[i] = dictionary[i].equals(value);
+        }
+        return mask;
+    }
+
+    private static int indexOf(String[] dictionary, String value) {
+        for (int i = 0; i < dictionary.length; i++) {
+            if (dictionary[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String blankToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private String schemaOf(String branch) {
+        String schema = branchProperties.getSchemas().get(branch.trim());
+        if (schema == null) {
+            throw new IllegalArgumentException("Unknown branch: " + branch);
+        }
+        return schema;
+    }
+
+    private String branchOf(String schema) {
+        return branchProperties.getSchemas().entrySet().stream()
+                .filter(entry -> entry.getValue().equals(schema))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse(schema);
+    }
+
+    private static final class CountTask extends RecursiveTask<GroupCounter> {
+
+        private final Plan plan;
+        private final int from;
+        private final int to;
+        private final int splitRows;
+
+        CountTask(Plan plan, int from, int to, int splitRows) {
+            this.plan = plan;
+            this.from = from;
+            this.to = to;
+            this.splitRows = splitRows;
+        }
+
+        @Override
+        protected GroupCounter compute() {
+            if (to - from <= splitRows) {
+                GroupCounter counter = new GroupCounter();
+                for (int row = from; row < to; row++) {
+                    long key = plan.key(row);
+                    if (key >= 0) {
+                        counter.add(key, 1);
+                    }
+                }
+                return counter;
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(plan, from, middle, splitRows);
+            left.fork();
+            GroupCounter right = new CountTask(plan, middle, to, splitRows).compute();
+            GroupCounter merged = left.join();
+            merged.addAll(right);
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.arogith.api.analytics;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Visit counts grouped by the given dimensions, over the visits matching every filter that is set.
+ * complaint and symptom match as case-insensitive substrings, gender and branch exactly.
+ */
+public record AnalyticsQuery(
+        List<Dimension> groupBy,
+        String complaint,
+        String symptom,
+        String gender,
+        String branch,
+        LocalDate from,
+        LocalDate to,
+        Integer minAge,
+        Integer maxAge,
+        int ageBandYears) {
+
+    public enum Dimension {
+        DAY("day"), WEEK("week"), MONTH("month"), AGE_BAND("ageBand"), GENDER("gender"),
+        COMPLAINT("complaint"), BRANCH("branch");
+
+        private final String parameter;
+
+        Dimension(String parameter) {
+            this.parameter = parameter;
+        }
+
+        public String parameter() {
+            return parameter;
+        }
+
+        public static Dimension fromParameter(String value) {
+            for (Dimension dimension : values()) {
+                if (dimension.parameter.equalsIgnoreCase(value.trim())) {
+                    return dimension;
+                }
+            }
+            throw new IllegalArgumentException("Unknown groupBy dimension: " + value);
+        }
+    }
+
+    public AnalyticsQuery {
+        groupBy = List.copyOf(groupBy);
+        if (groupBy.stream().filter(d -> d == Dimension.DAY || d == Dimension.WEEK || d == Dimension.MONTH).count() > 1) {
+            throw new IllegalArgumentException("Group by at most one of day, week and month");
+        }
+        if (ageBandYears < 1) {
+            throw new IllegalArgumentException("ageBandYears must be positive");
+        }
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("to is before from");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.arogith.api.analytics;
+
+import java.time.Instant;
+
+/**
+ * Read-only columnar view of all visits with their patient's demographics. Row i of every visit
+ * column belongs to the same visit; text columns hold dictionary codes, and patientAge/patientGender
+ * are indexed by the visit's patient code, so the visits-patients join is an array lookup.
+ *
+ * Arrays may be longer than rows and may be shared with the next snapshot, which only appends
+ * past this snapshot's rows; rows are never modified in place once a snapshot has been published.
+ */
+final class AnalyticsSnapshot {
+
+    static final int NO_DAY = Integer.MIN_VALUE;
+
+    static final AnalyticsSnapshot EMPTY = new AnalyticsSnapshot(0, 0, new int[0], new int[0], new int[0], new int[0],
+            new byte[0], new boolean[0], new short[0], new int[0], new String[0], new String[0], new String[0],
+            new String[0], 0, 0, null);
+
+    final int rows;
+    final int visits;
+    final int[] day;
+    final int[] complaint;
+    final int[] symptoms;
+    final int[] patient;
+    final byte[] branch;
+    final boolean[] removed;
+
+    final short[] patientAge;
+    final int[] patientGender;
+
+    final String[] complaints;
+    final String[] symptomValues;
+    final String[] genders;
+    final String[] branches;
+
+    final int minDay;
+    final int maxDay;
+    final Instant refreshedAt;
+
+    AnalyticsSnapshot(int rows, int visits, int[] day, int[] complaint, int[] symptoms, int[] patient,
+                      byte[] branch, boolean[] removed, short[] patientAge, int[] patientGender,
+                      String[] complaints, String[] symptomValues, String[] genders, String[] branches,
+                      int minDay, int maxDay, Instant refreshedAt) {
+        this.rows = rows;
+        this.visits = visits;
+        this.day = day;
+        this.complaint = complaint;
+        this.symptoms = symptoms;
+        this.patient = patient;
+        this.branch = branch;
+        this.removed = removed;
+        this.patientAge = patientAge;
+        this.patientGender = patientGender;
+        this.complaints = complaints;
+        this.symptomValues = symptomValues;
+        this.genders = genders;
+        this.branches = branches;
+        this.minDay = minDay;
+        this.maxDay = maxDay;
+        this.refreshedAt = refreshedAt;
+    }
+
+    boolean isLoaded() {
+        return refreshedAt != null;
+    }
+}
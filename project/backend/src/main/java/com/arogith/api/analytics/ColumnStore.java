@@ -0,0 +1,210 @@
+package com.arogith.api.analytics;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Mutable side of the analytics snapshot, only touched by the refreshing thread. New rows are
+ * appended past the published row count, where readers of the current snapshot never look; before
+ * the first in-place change (updated or deleted visit, changed patient) after a publish, the
+ * arrays are copied so the published snapshot stays as it was.
+ */
+final class ColumnStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int rows;
+    private int liveVisits;
+    private long[] visitKey = new long[INITIAL_CAPACITY];
+    private int[] day = new int[INITIAL_CAPACITY];
+    private int[] complaint = new int[INITIAL_CAPACITY];
+    private int[] symptoms = new int[INITIAL_CAPACITY];
+    private int[] patient = new int[INITIAL_CAPACITY];
+    private byte[] branch = new byte[INITIAL_CAPACITY];
+    private boolean[] removed = new boolean[INITIAL_CAPACITY];
+    private final Map<Long, Integer> rowByVisit = new HashMap<>();
+
+    private int patients;
+    private short[] patientAge = new short[INITIAL_CAPACITY];
+    private int[] patientGender = new int[INITIAL_CAPACITY];
+    private final Map<String, Integer> patientByKey = new HashMap<>();
+
+    private final Dictionary complaints = new Dictionary();
+    private final Dictionary symptomValues = new Dictionary();
+    private final Dictionary genders = new Dictionary();
+    private final Dictionary branches = new Dictionary();
+
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+    private boolean shared;
+    private int publishedRows;
+    private int publishedPatients;
+
+    int branchCode(String schema) {
+        int code = branches.encodeRaw(schema);
+        if (code > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many branches for the analytics snapshot");
+        }
+        return code;
+    }
+
+    void upsertPatient(int branchCode, String patientId, Integer age, String gender) {
+        int code = patientCode(branchCode, patientId);
+        short ageValue = age == null || age < 0 ? -1 : (short) Math.min(age, Short.MAX_VALUE);
+        int genderCode = genders.encode(gender);
+        if (patientAge[code] == ageValue && patientGender[code] == genderCode) {
+            return;
+        }
+        if (code < publishedPatients) {
+            makeWritable();
+        }
+        patientAge[code] = ageValue;
+        patientGender[code] = genderCode;
+    }
+
+    void upsertVisit(int branchCode, long visitId, int epochDay, String complaintText, String symptomText,
+                     String patientId) {
+        long key = ((long) branchCode << 56) | visitId;
+        Integer existing = rowByVisit.get(key);
+        int row;
+        if (existing != null) {
+            row = existing;
+            if (row < publishedRows) {
+                makeWritable();
+            }
+            if (removed[row]) {
+                liveVisits++;
+            }
+        } else {
+            ensureVisitCapacity(rows + 1);
+            row = rows++;
+            rowByVisit.put(key, row);
+            liveVisits++;
+        }
+        visitKey[row] = key;
+        day[row] = epochDay;
+        complaint[row] = complaints.encode(complaintText);
+        symptoms[row] = symptomValues.encode(symptomText);
+        patient[row] = patientId == null ? -1 : patientCode(branchCode, patientId);
+        branch[row] = (byte) branchCode;
+        removed[row] = false;
+        if (epochDay != AnalyticsSnapshot.NO_DAY) {
+            minDay = Math.min(minDay, epochDay);
+            maxDay = Math.max(maxDay, epochDay);
+        }
+    }
+
+    void removeVisit(int branchCode, long visitId) {
+        Integer row = rowByVisit.get(((long) branchCode << 56) | visitId);
+        if (row != null && !removed[row]) {
+            if (row < publishedRows) {
+                makeWritable();
+            }
+            removed[row] = true;
+            liveVisits--;
+        }
+    }
+
+    int visitCount() {
+        return liveVisits;
+    }
+
+    AnalyticsSnapshot publish() {
+        shared = true;
+        publishedRows = rows;
+        publishedPatients = patients;
+        return new AnalyticsSnapshot(rows, liveVisits, day, complaint, symptoms, patient, branch, removed,
+                patientAge, patientGender, complaints.values(), symptomValues.values(), genders.values(),
+                branches.values(), minDay, maxDay, Instant.now());
+    }
+
+    private int patientCode(int branchCode, String patientId) {
+        String key = branchCode + "|" + patientId;
+        Integer code = patientByKey.get(key);
+        if (code != null) {
+            return code;
+        }
+        if (patients == patientAge.length) {
+            int capacity = patientAge.length * 2;
+            patientAge = Arrays.copyOf(patientAge, capacity);
+            patientGender = Arrays.copyOf(patientGender, capacity);
+        }
+        patientAge[patients] = -1;
+        patientGender[patients] = genders.encode(null);
+        patientByKey.put(key, patients);
+        return patients++;
+    }
+
+    private void ensureVisitCapacity(int needed) {
+        if (needed <= day.length) {
+            return;
+        }
+        int capacity = Math.max(needed, day.length * 2);
+        visitKey = Arrays.copyOf(visitKey, capacity);
+        day = Arrays.copyOf(day, capacity);
+        complaint = Arrays.copyOf(complaint, capacity);
+        symptoms = Arrays.copyOf(symptoms, capacity);
+        patient = Arrays.copyOf(patient, capacity);
+        branch = Arrays.copyOf(branch, capacity);
+        removed = Arrays.copyOf(removed, capacity);
+    }
+
+    private void makeWritable() {
+        if (!shared) {
+            return;
+        }
+        visitKey = visitKey.clone();
+        day = day.clone();
+        complaint = complaint.clone();
+        symptoms = symptoms.clone();
+        patient = patient.clone();
+        branch = branch.clone();
+        removed = removed.clone();
+        patientAge = patientAge.clone();
+        patientGender = patientGender.clone();
+        shared = false;
+    }
+
+    /**
+     * Text value to dense int code. Values are trimmed and lower-cased so "Fever " and "fever" count
+     * together; null and blank become "".
+     */
+    static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final Map<String, Integer> codesBySpelling = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            Integer code = codesBySpelling.get(value);
+            if (code == null) {
+                code = encodeRaw(normalize(value));
+                codesBySpelling.put(value, code);
+            }
+            return code;
+        }
+
+        int encodeRaw(String value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            codes.put(value, values.size());
+            values.add(value);
+            return values.size() - 1;
+        }
+
+        String[] values() {
+            return values.toArray(new String[0]);
+        }
+
+        static String normalize(String value) {
+            return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        }
+    }
+}
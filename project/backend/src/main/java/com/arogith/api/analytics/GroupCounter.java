@@ -0,0 +1,101 @@
+package com.arogith.api.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing long to count map, so per-row aggregation does not box keys.
+ */
+final class GroupCounter {
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private long[] counts;
+    private int size;
+
+    GroupCounter() {
+        this(64);
+    }
+
+    private GroupCounter(int capacity) {
+        keys = new long[capacity];
+        counts = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    void add(long key, long count) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = count;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    void addAll(GroupCounter other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != EMPTY) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Keys in ascending order, with their counts at the same positions.
+     */
+    long[][] sortedEntries() {
+        long[] sortedKeys = new long[size];
+        int n = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                sortedKeys[n++] = key;
+            }
+        }
+        Arrays.sort(sortedKeys);
+        long[] sortedCounts = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortedCounts[i] = get(sortedKeys[i]);
+        }
+        return new long[][]{sortedKeys, sortedCounts};
+    }
+
+    private long get(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return counts[slot];
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                add(oldKeys[i], oldCounts[i]);
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,181 @@
+package com.arogith.api.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads visits and patient demographics into a ColumnStore over a connection of its own, so a full
+ * load streaming the whole history never holds one of the request pool's connections.
+ *
+ * Each load runs in a REPEATABLE READ transaction and remembers the xmin of its snapshot as the
+ * branch's horizon: every transaction below it is complete and already reflected. The next refresh
+ * replays the change_log entries of transactions from that horizon up to its own one, reloading the
+ * current state of each changed visit and patient, which is idempotent if an entry is seen twice.
+ */
+final class SnapshotLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotLoader.class);
+
+    private static final String HORIZON = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text";
+    private static final String VISIT_COLUMNS =
+            "SELECT visit_id, (visit_date::date - DATE '1970-01-01') AS epoch_day, complaint, symptoms, patient_id FROM ";
+    private static final String PATIENT_COLUMNS = "SELECT patient_id, age, gender FROM ";
+
+    private final DataSourceProperties dataSourceProperties;
+    private final int fetchSize;
+
+    SnapshotLoader(DataSourceProperties dataSourceProperties, int fetchSize) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Loads every branch schema completely and records the horizon of each.
+     */
+    void loadAll(ColumnStore store, List<String> schemas, Map<String, String> horizons) throws SQLException {
+        try (Connection connection = open()) {
+            for (String schema : schemas) {
+                int branchCode = store.branchCode(schema);
+                try {
+                    String horizon = queryHorizon(connection);
+                    try (PreparedStatement statement = connection.prepareStatement(PATIENT_COLUMNS + schema + ".patients")) {
+                        statement.setFetchSize(fetchSize);
+                        readPatients(statement, store, branchCode, null);
+                    }
+                    try (PreparedStatement statement = connection.prepareStatement(VISIT_COLUMNS + schema + ".visits")) {
+                        statement.setFetchSize(fetchSize);
+                        readVisits(statement, store, branchCode, null);
+                    }
+                    horizons.put(schema, horizon);
+                } finally {
+                    connection.rollback();
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the changes logged since the last horizon of each schema; returns the number of rows reloaded.
+     */
+    int applyChanges(ColumnStore store, Map<String, String> horizons) throws SQLException {
+        int reloaded = 0;
+        try (Connection connection = open()) {
+            for (Map.Entry<String, String> entry : horizons.entrySet()) {
+                String schema = entry.getKey();
+                int branchCode = store.branchCode(schema);
+                try {
+                    String horizon = queryHorizon(connection);
+                    Set<String> patientIds = new HashSet<>();
+                    Set<Long> visitIds = new HashSet<>();
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "SELECT entity_type, entity_id FROM " + schema + ".change_log " +
+                                    "WHERE tx_id >= ?::xid8 AND tx_id < ?::xid8 AND entity_type IN ('patient', 'visit')")) {
+                        statement.setString(1, entry.getValue());
+                        statement.setString(2, horizon);
+                        try (ResultSet rs = statement.executeQuery()) {
+                            while (rs.next()) {
+                                if ("patient".equals(rs.getString(1))) {
+                                    patientIds.add(rs.getString(2));
+                                } else {
+                                    visitIds.add(Long.parseLong(rs.getString(2)));
+                                }
+                            }
+                        }
+                    }
+
+                    if (!patientIds.isEmpty()) {
+                        try (PreparedStatement statement = connection.prepareStatement(
+                                PATIENT_COLUMNS + schema + ".patients WHERE patient_id = ANY(?)")) {
+                            statement.setArray(1, connection.createArrayOf("varchar", patientIds.toArray()));
+                            Set<String> found = new HashSet<>();
+                            readPatients(statement, store, branchCode, found);
+                            for (String deleted : patientIds) {
+                                if (!found.contains(deleted)) {
+                                    store.upsertPatient(branchCode, deleted, null, null);
+                                }
+                            }
+                        }
+                    }
+                    if (!visitIds.isEmpty()) {
+                        try (PreparedStatement statement = connection.prepareStatement(
+                                VISIT_COLUMNS + schema + ".visits WHERE visit_id = ANY(?)")) {
+                            statement.setArray(1, connection.createArrayOf("bigint", visitIds.toArray()));
+                            Set<Long> found = new HashSet<>();
+                            readVisits(statement, store, branchCode, found);
+                            for (Long deleted : visitIds) {
+                                if (!found.contains(deleted)) {
+                                    store.removeVisit(branchCode, deleted);
+                                }
+                            }
+                        }
+                    }
+                    reloaded += patientIds.size() + visitIds.size();
+                    entry.setValue(horizon);
+                } finally {
+                    connection.rollback();
+                }
+            }
+        }
+        if (reloaded > 0) {
+            logger.debug("Analytics snapshot reloaded {} changed rows", reloaded);
+        }
+        return reloaded;
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+        connection.setAutoCommit(false);
+        connection.setReadOnly(true);
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        return connection;
+    }
+
+    private static String queryHorizon(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(HORIZON);
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static void readPatients(PreparedStatement statement, ColumnStore store, int branchCode,
+                                     Set<String> found) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                String patientId = rs.getString(1);
+                int age = rs.getInt(2);
+                store.upsertPatient(branchCode, patientId, rs.wasNull() ? null : age, rs.getString(3));
+                if (found != null) {
+                    found.add(patientId);
+                }
+            }
+        }
+    }
+
+    private static void readVisits(PreparedStatement statement, ColumnStore store, int branchCode,
+                                   Set<Long> found) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                long visitId = rs.getLong(1);
+                int epochDay = rs.getInt(2);
+                store.upsertVisit(branchCode, visitId, rs.wasNull() ? AnalyticsSnapshot.NO_DAY : epochDay,
+                        rs.getString(3), rs.getString(4), rs.getString(5));
+                if (found != null) {
+                    found.add(visitId);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.arogith.api.audit;
+
+public enum AuditAction {
+    READ,
+    LIST,
+    CREATE,
+    UPDATE,
+    DELETE
+}
@@ -0,0 +1,7 @@
+package com.arogith.api.audit;
+
+public enum AuditEntity {
+    PATIENT,
+    VISIT,
+    LAB_TEST
+}
@@ -0,0 +1,229 @@
+package com.arogith.api.audit;
+
+import com.arogith.api.config.AuditProperties;
+import com.arogith.api.config.BranchContext;
+import com.arogith.api.config.BranchProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Records who read and changed patient, visit and lab data, without touching the database.
+ * Records are appended to memory-mapped segment files without locking (only starting a new
+ * segment takes a lock) and forced to disk together every force-interval-ms, so a crash loses
+ * at most that window. Full segments are sealed and indexed by patient in the background.
+ *
+ * With branches on, every record carries the schema of the branch it was made in, and queries
+ * only return the current branch's records: patient IDs are per branch, so 082 in one branch is
+ * not 082 in another.
+ */
+@Component
+public class AuditLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+
+    private static final String SYSTEM_ACTOR = "system";
+
+    private final AuditProperties properties;
+    private final BranchProperties branchProperties;
+    private final AtomicReference<AuditSegment> current = new AtomicReference<>();
+    private final Queue<AuditSegment> sealing = new ConcurrentLinkedQueue<>();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private Path directory;
+    private AuditReader reader;
+    private long nextSequence;
+
+    public AuditLog(AuditProperties properties, BranchProperties branchProperties) {
+        this.properties = properties;
+        this.branchProperties = branchProperties;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!properties.isEnabled()) {
+            logger.info("Audit log disabled");
+            return;
+        }
+        directory = Paths.get(properties.getDirectory()).toAbsolutePath();
+        Files.createDirectories(directory);
+        reader = new AuditReader(directory);
+
+        // Never append to an old segment: seal what a previous run left open and start a new one
+        long lastSequence = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path segment : files.filter(AuditSegment::isSegmentFile).toList()) {
+                lastSequence = Math.max(lastSequence, AuditSegment.sequenceOf(segment));
+                AuditSegment.sealFile(segment);
+            }
+        }
+        nextSequence = lastSequence + 1;
+        current.set(newSegment());
+        logger.info("Audit log writing to {}", current.get().path());
+    }
+
+    public void record(AuditAction action, AuditEntity entity, Object entityId, String patientId) {
+        if (current.get() == null) {
+            return;
+        }
+        String actor = SYSTEM_ACTOR;
+        String origin = null;
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            String header = request.getHeader(properties.getActorHeader());
+            actor = header == null || header.isBlank() ? "anonymous" : header;
+            origin = request.getRemoteAddr();
+        }
+        append(new AuditRecord(System.currentTimeMillis(), action, entity,
+                entityId == null ? null : String.valueOf(entityId), patientId, actor, origin, currentBranch()));
+    }
+
+    /**
+     * Record a change once the surrounding transaction has committed, so rolled-back writes are not audited.
+     */
+    public void recordAfterCommit(AuditAction action, AuditEntity entity, Object entityId, String patientId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(action, entity, entityId, patientId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(action, entity, entityId, patientId);
+            }
+        });
+    }
+
+    void append(AuditRecord record) {
+        byte[] bytes = record.encode();
+        try {
+            while (true) {
+                AuditSegment segment = current.get();
+                if (segment == null) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                segment.beginWrite();
+                try {
+                    int offset = segment.tryReserve(bytes.length);
+                    if (offset >= 0) {
+                        segment.write(offset, bytes);
+                        appended.incrementAndGet();
+                        return;
+                    }
+                } finally {
+                    segment.endWrite();
+                }
+                roll(segment);
+            }
+        } catch (Exception e) {
+            // Auditing must never fail the clinical request
+            dropped.incrementAndGet();
+            logger.error("Dropped audit record {} {} {}: {}", record.action(), record.entity(), record.entityId(),
+                    e.getMessage());
+        }
+    }
+
+    public List<AuditRecord> query(String patientId, long from, long to, int limit) throws IOException {
+        return reader == null ? List.of() : reader.query(currentBranch(), patientId, from, to, limit);
+    }
+
+    /**
+     * Schema of the branch the current thread works in; work outside a request belongs to the
+     * default branch. Null with branches off.
+     */
+    private String currentBranch() {
+        if (!branchProperties.isEnabled()) {
+            return null;
+        }
+        String schema = BranchContext.getSchema();
+        return schema != null ? schema : branchProperties.getDefaultSchema();
+    }
+
+    /**
+     * Group commit: force what was appended since the last run, then seal segments that were rolled over.
+     */
+    @Scheduled(fixedDelayString = "${arogith.audit.force-interval-ms:200}")
+    public void flush() {
+        AuditSegment segment = current.get();
+        if (segment != null) {
+            segment.force();
+        }
+        sealRolledSegments(false);
+    }
+
+    @PreDestroy
+    public void close() {
+        AuditSegment segment = current.getAndSet(null);
+        if (segment != null) {
+            segment.closeForWrites();
+            sealing.add(segment);
+        }
+        sealRolledSegments(true);
+    }
+
+    public long getAppended() {
+        return appended.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private synchronized void roll(AuditSegment full) throws IOException {
+        if (current.get() != full) {
+            return;
+        }
+        full.closeForWrites();
+        current.set(newSegment());
+        sealing.add(full);
+    }
+
+    private AuditSegment newSegment() throws IOException {
+        return AuditSegment.create(directory, nextSequence++, properties.getSegmentSizeMb() * 1024 * 1024);
+    }
+
+    private void sealRolledSegments(boolean waitForWriters) {
+        Iterator<AuditSegment> iterator = sealing.iterator();
+        while (iterator.hasNext()) {
+            AuditSegment segment = iterator.next();
+            while (waitForWriters && segment.hasActiveWriters()) {
+                Thread.onSpinWait();
+            }
+            if (segment.hasActiveWriters()) {
+                continue;
+            }
+            try {
+                segment.seal();
+                segment.close();
+                logger.debug("Sealed audit segment {}", segment.path());
+            } catch (IOException e) {
+                logger.error("Error sealing audit segment {}: {}", segment.path(), e.getMessage(), e);
+            }
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.arogith.api.audit;
+
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Command-line query over an audit directory, for use on the server without the API running:
+ * java -cp arogith-api.jar -Dloader.main=com.arogith.api.audit.AuditQueryTool \
+ *   org.springframework.boot.loader.launch.PropertiesLauncher data/audit 001 2025-06-01T00:00 2025-06-30T23:59
+ * Arguments: directory, patient ID ("-" for all patients), optional from and to as local date-times,
+ * optional branch schema (all branches if omitted).
+ */
+public final class AuditQueryTool {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private AuditQueryTool() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: AuditQueryTool <directory> <patientId|-> [from] [to] [branch]");
+            System.exit(2);
+        }
+        String patientId = "-".equals(args[1]) ? null : args[1];
+        long from = args.length > 2 ? toMillis(args[2]) : 0;
+        long to = args.length > 3 ? toMillis(args[3]) : Long.MAX_VALUE;
+        String branch = args.length > 4 ? args[4] : null;
+
+        List<AuditRecord> records = new AuditReader(Paths.get(args[0]))
+                .query(branch, patientId, from, to, Integer.MAX_VALUE);
+        for (AuditRecord record : records) {
+            System.out.printf("%s %-6s %-8s %-10s patient=%-8s actor=%s origin=%s branch=%s%n",
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault()).format(FORMAT),
+                    record.action(), record.entity(), record.entityId(), record.patientId(), record.actor(), record.origin(),
+                    record.branch());
+        }
+        System.out.printf("%d records%n", records.size());
+    }
+
+    private static long toMillis(String value) {
+        return LocalDateTime.parse(value, FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,124 @@
+package com.arogith.api.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Queries the segment files of an audit directory. Sealed segments outside the requested time range
+ * are skipped by their header, and for a patient query only the offsets listed in the segment's index
+ * are read; the segment still being written is scanned.
+ */
+public final class AuditReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditReader.class);
+
+    private final Path directory;
+
+    // Sealed segments never change, so their indexes can be kept
+    private final Map<Path, Map<String, int[]>> indexCache = new ConcurrentHashMap<>();
+
+    public AuditReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Records of the branch (or of all branches if branch is null) for the patient (or for everyone
+     * if patientId is null) with from <= timestamp <= to, oldest first. If there are more than
+     * limit, the most recent limit records are returned.
+     */
+    public List<AuditRecord> query(String branch, String patientId, long from, long to, int limit) throws IOException {
+        List<AuditRecord> result = new ArrayList<>();
+        for (Path segment : segments()) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (!AuditSegment.isValid(buffer)) {
+                    logger.warn("Skipping invalid audit segment {}", segment);
+                    continue;
+                }
+                boolean sealed = AuditSegment.isSealed(buffer);
+                if (sealed && (AuditSegment.dataEnd(buffer) == AuditSegment.HEADER_SIZE
+                        || AuditSegment.maxTimestamp(buffer) < from || AuditSegment.minTimestamp(buffer) > to)) {
+                    continue;
+                }
+                // Past a sealed segment's data end there is nothing; an open one is read to its end
+                int end = sealed ? AuditSegment.dataEnd(buffer) : buffer.limit();
+                if (sealed && patientId != null) {
+                    readIndexed(segment, buffer, end, branch, patientId, from, to, result);
+                } else {
+                    scan(buffer, end, branch, patientId, from, to, result);
+                }
+            }
+        }
+        result.sort(Comparator.comparingLong(AuditRecord::timestamp));
+        return result.size() > limit ? new ArrayList<>(result.subList(result.size() - limit, result.size())) : result;
+    }
+
+    private void readIndexed(Path segment, MappedByteBuffer buffer, int end, String branch, String patientId,
+                             long from, long to, List<AuditRecord> result) {
+        Map<String, int[]> index;
+        try {
+            index = indexCache.computeIfAbsent(segment, this::loadIndex);
+        } catch (IllegalStateException e) {
+            logger.warn("Audit index for {} unusable, scanning: {}", segment, e.getMessage());
+            scan(buffer, end, branch, patientId, from, to, result);
+            return;
+        }
+        for (int offset : index.getOrDefault(patientId, new int[0])) {
+            int length = AuditSegment.recordLength(buffer, offset);
+            AuditRecord record = length > 0 ? AuditRecord.decode(buffer, offset, length) : null;
+            if (record != null && record.timestamp() >= from && record.timestamp() <= to
+                    && (branch == null || branch.equals(record.branch()))) {
+                result.add(record);
+            }
+        }
+    }
+
+    private void scan(MappedByteBuffer buffer, int end, String branch, String patientId, long from, long to,
+                      List<AuditRecord> result) {
+        int offset = AuditSegment.HEADER_SIZE;
+        while ((offset = AuditSegment.nextRecord(buffer, offset, end)) < end) {
+            int length = AuditSegment.recordLength(buffer, offset);
+            long timestamp = AuditRecord.timestampAt(buffer, offset);
+            if (timestamp >= from && timestamp <= to) {
+                AuditRecord record = AuditRecord.decode(buffer, offset, length);
+                if (record != null && (patientId == null || patientId.equals(record.patientId()))
+                        && (branch == null || branch.equals(record.branch()))) {
+                    result.add(record);
+                }
+            }
+            offset += length;
+        }
+    }
+
+    private Map<String, int[]> loadIndex(Path segment) {
+        try {
+            return AuditSegmentIndex.read(AuditSegmentIndex.pathFor(segment));
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(AuditSegment::isSegmentFile)
+                    .sorted(Comparator.comparingLong(AuditSegment::sequenceOf))
+                    .toList();
+        }
+    }
+}
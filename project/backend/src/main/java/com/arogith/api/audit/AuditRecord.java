@@ -0,0 +1,129 @@
+package com.arogith.api.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * One audit entry. On disk it is a length-prefixed, CRC-checked binary record padded to 8 bytes:
+ * length, crc, timestamp, action, entity, then entityId, patientId, actor, origin and branch as
+ * short-length-prefixed UTF-8 (a missing patientId or branch is stored as length 0).
+ *
+ * branch is the schema of the hospital branch the request worked in, null with branches off.
+ * Records written before it was added end after origin and read back without one.
+ */
+public record AuditRecord(long timestamp, AuditAction action, AuditEntity entity,
+                          String entityId, String patientId, String actor, String origin, String branch) {
+
+    static final int ALIGNMENT = 8;
+
+    private static final int FIXED_SIZE = 4 + 4 + 8 + 1 + 1;
+    private static final int MAX_FIELD_BYTES = 255;
+    private static final AuditAction[] ACTIONS = AuditAction.values();
+    private static final AuditEntity[] ENTITIES = AuditEntity.values();
+
+    byte[] encode() {
+        byte[] entityIdBytes = bytes(entityId);
+        byte[] patientIdBytes = bytes(patientId);
+        byte[] actorBytes = bytes(actor);
+        byte[] originBytes = bytes(origin);
+        byte[] branchBytes = bytes(branch);
+        int size = FIXED_SIZE + 2 * 5 + entityIdBytes.length + patientIdBytes.length
+                + actorBytes.length + originBytes.length + branchBytes.length;
+        int length = (size + ALIGNMENT - 1) & -ALIGNMENT;
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(length);
+        buffer.putInt(0);
+        buffer.putLong(timestamp);
+        buffer.put((byte) action.ordinal());
+        buffer.put((byte) entity.ordinal());
+        putString(buffer, entityIdBytes);
+        putString(buffer, patientIdBytes);
+        putString(buffer, actorBytes);
+        putString(buffer, originBytes);
+        putString(buffer, branchBytes);
+        buffer.putInt(4, checksum(buffer.array(), 8, length - 8));
+        return buffer.array();
+    }
+
+    /**
+     * Decode the record at offset, or return null if it is torn or corrupt.
+     */
+    static AuditRecord decode(ByteBuffer source, int offset, int length) {
+        if (length < FIXED_SIZE || offset + length > source.limit()) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        source.get(offset, data);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.getInt(4) != checksum(data, 8, length - 8)) {
+            return null;
+        }
+        buffer.position(8);
+        long timestamp = buffer.getLong();
+        int action = buffer.get();
+        int entity = buffer.get();
+        if (action < 0 || action >= ACTIONS.length || entity < 0 || entity >= ENTITIES.length) {
+            return null;
+        }
+        String entityId = getString(buffer);
+        String patientId = getString(buffer);
+        String actor = getString(buffer);
+        String origin = getString(buffer);
+        // Older records may end here, with less than a length's worth of zero padding left
+        String branch = buffer.remaining() >= 2 ? getString(buffer) : "";
+        return new AuditRecord(timestamp, ACTIONS[action], ENTITIES[entity], entityId,
+                patientId.isEmpty() ? null : patientId, actor, origin, branch.isEmpty() ? null : branch);
+    }
+
+    /**
+     * Read only the patient ID of the record at offset, for building the segment index.
+     */
+    static String patientIdAt(ByteBuffer source, int offset) {
+        int position = offset + FIXED_SIZE;
+        position += 2 + (source.getShort(position) & 0xFFFF);
+        int length = source.getShort(position) & 0xFFFF;
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        source.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static long timestampAt(ByteBuffer source, int offset) {
+        return source.getLong(offset + 8);
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_FIELD_BYTES) {
+            return bytes;
+        }
+        byte[] truncated = new byte[MAX_FIELD_BYTES];
+        System.arraycopy(bytes, 0, truncated, 0, MAX_FIELD_BYTES);
+        return truncated;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,257 @@
+package com.arogith.api.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed-size, memory-mapped segment file. Writers reserve space with a CAS on the write position
+ * and copy their record in without any lock; the record's length word is published last with
+ * release semantics, so a reader that sees a non-zero length sees the whole record.
+ *
+ * A gap left by a writer that never published its length (a crash mid-append) does not end the
+ * data: seal and scans step over it, see nextRecord.
+ *
+ * Header (64 bytes): magic, version, sequence, created, and - once the segment is sealed - the
+ * min/max record timestamp, the end of the data and a sealed flag, so queries can skip segments
+ * outside their time range. Sealing also writes a per-patient offset index next to the segment.
+ */
+final class AuditSegment implements Closeable {
+
+    static final String SUFFIX = ".audit";
+    static final int HEADER_SIZE = 64;
+
+    private static final long MAGIC = 0x41524F4741554431L; // "AROGAUD1"
+    private static final int VERSION = 1;
+    private static final int SEQUENCE_OFFSET = 16;
+    private static final int CREATED_OFFSET = 24;
+    private static final int MIN_TIMESTAMP_OFFSET = 32;
+    private static final int MAX_TIMESTAMP_OFFSET = 40;
+    private static final int DATA_END_OFFSET = 48;
+    private static final int SEALED_OFFSET = 52;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final AtomicInteger position = new AtomicInteger(HEADER_SIZE);
+    private final AtomicInteger activeWriters = new AtomicInteger();
+    private volatile int forcedPosition = HEADER_SIZE;
+
+    private AuditSegment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+    }
+
+    static AuditSegment create(Path directory, long sequence, int capacity) throws IOException {
+        Path path = directory.resolve(fileName(sequence));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(8, VERSION);
+        buffer.putInt(12, HEADER_SIZE);
+        buffer.putLong(SEQUENCE_OFFSET, sequence);
+        buffer.putLong(CREATED_OFFSET, System.currentTimeMillis());
+        buffer.force();
+        return new AuditSegment(path, channel, buffer);
+    }
+
+    static String fileName(long sequence) {
+        return String.format("segment-%012d%s", sequence, SUFFIX);
+    }
+
+    static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.length() - SUFFIX.length()));
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Claim length bytes for a record; returns the offset, or -1 if the segment is full.
+     * Callers must bracket the reservation and the write with beginWrite/endWrite.
+     */
+    int tryReserve(int length) {
+        while (true) {
+            int current = position.get();
+            if (current + length > capacity) {
+                return -1;
+            }
+            if (position.compareAndSet(current, current + length)) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Make every further reservation fail, so the segment can be sealed once in-flight writes finish.
+     */
+    void closeForWrites() {
+        position.getAndSet(capacity);
+    }
+
+    void beginWrite() {
+        activeWriters.incrementAndGet();
+    }
+
+    void endWrite() {
+        activeWriters.decrementAndGet();
+    }
+
+    boolean hasActiveWriters() {
+        return activeWriters.get() > 0;
+    }
+
+    void write(int offset, byte[] record) {
+        buffer.put(offset + 4, record, 4, record.length - 4);
+        INT.setRelease(buffer, offset, record.length);
+    }
+
+    /**
+     * Flush everything written so far to disk. Returns false if there was nothing new.
+     */
+    boolean force() {
+        int written = position.get();
+        if (written == forcedPosition) {
+            return false;
+        }
+        buffer.force();
+        forcedPosition = written;
+        return true;
+    }
+
+    /**
+     * Flush, record the time range and data end in the header and write the patient index.
+     * Only call once no writer is active.
+     */
+    void seal() throws IOException {
+        buffer.force();
+        seal(path, buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Seal a segment left unsealed by a crash or an unclean shutdown.
+     */
+    static void sealFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (!isSealed(buffer)) {
+                seal(path, buffer);
+            }
+        }
+    }
+
+    private static void seal(Path path, MappedByteBuffer buffer) throws IOException {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        Map<String, List<Integer>> offsetsByPatient = new HashMap<>();
+        int end = buffer.limit();
+        int dataEnd = HEADER_SIZE;
+        int offset = HEADER_SIZE;
+        while ((offset = nextRecord(buffer, offset, end)) < end) {
+            long timestamp = AuditRecord.timestampAt(buffer, offset);
+            min = Math.min(min, timestamp);
+            max = Math.max(max, timestamp);
+            String patientId = AuditRecord.patientIdAt(buffer, offset);
+            if (patientId != null) {
+                offsetsByPatient.computeIfAbsent(patientId, id -> new ArrayList<>()).add(offset);
+            }
+            offset += recordLength(buffer, offset);
+            dataEnd = offset;
+        }
+        AuditSegmentIndex.write(AuditSegmentIndex.pathFor(path), offsetsByPatient);
+
+        buffer.putLong(MIN_TIMESTAMP_OFFSET, dataEnd == HEADER_SIZE ? 0 : min);
+        buffer.putLong(MAX_TIMESTAMP_OFFSET, dataEnd == HEADER_SIZE ? 0 : max);
+        buffer.putInt(DATA_END_OFFSET, dataEnd);
+        buffer.force();
+        // Flag last: a sealed header always has a matching index on disk
+        buffer.putInt(SEALED_OFFSET, 1);
+        buffer.force();
+    }
+
+    /**
+     * Length of the record at offset, or 0 if none is published there: the end of the data, a record
+     * still being written or a gap.
+     */
+    static int recordLength(ByteBuffer buffer, int offset) {
+        if (offset + 4 > buffer.limit()) {
+            return 0;
+        }
+        int length = (int) INT.getAcquire(buffer, offset);
+        if (length <= 0 || length % AuditRecord.ALIGNMENT != 0 || offset + length > buffer.limit()) {
+            return 0;
+        }
+        return length;
+    }
+
+    /**
+     * Offset of the next record at or after offset, or end if there is none before end. Normally
+     * that is offset itself. A writer that dies between reserving its space and publishing the
+     * length leaves a gap whose length word is zero; the records after it are found again by
+     * stepping through the gap on the ALIGNMENT grid, taking only a length whose record passes
+     * its CRC.
+     */
+    static int nextRecord(ByteBuffer buffer, int offset, int end) {
+        if (offset >= end || recordLength(buffer, offset) > 0) {
+            return Math.min(offset, end);
+        }
+        for (int candidate = offset + AuditRecord.ALIGNMENT; candidate < end; candidate += AuditRecord.ALIGNMENT) {
+            int length = recordLength(buffer, candidate);
+            if (length > 0 && AuditRecord.decode(buffer, candidate, length) != null) {
+                return candidate;
+            }
+        }
+        return end;
+    }
+
+    static boolean isValid(ByteBuffer buffer) {
+        return buffer.limit() >= HEADER_SIZE && buffer.getLong(0) == MAGIC && buffer.getInt(8) == VERSION;
+    }
+
+    static boolean isSealed(ByteBuffer buffer) {
+        return buffer.getInt(SEALED_OFFSET) == 1;
+    }
+
+    static long minTimestamp(ByteBuffer buffer) {
+        return buffer.getLong(MIN_TIMESTAMP_OFFSET);
+    }
+
+    static long maxTimestamp(ByteBuffer buffer) {
+        return buffer.getLong(MAX_TIMESTAMP_OFFSET);
+    }
+
+    static int dataEnd(ByteBuffer buffer) {
+        return buffer.getInt(DATA_END_OFFSET);
+    }
+
+    static boolean isSegmentFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith("segment-") && name.endsWith(SUFFIX) && Files.isRegularFile(path);
+    }
+}
@@ -0,0 +1,63 @@
+package com.arogith.api.audit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Patient ID to record offsets for one sealed segment, stored next to it as segment-N.audit.idx.
+ */
+final class AuditSegmentIndex {
+
+    private static final int MAGIC = 0x41494458; // "AIDX"
+
+    private AuditSegmentIndex() {
+    }
+
+    static Path pathFor(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + ".idx");
+    }
+
+    static void write(Path path, Map<String, List<Integer>> offsetsByPatient) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(offsetsByPatient.size());
+            for (Map.Entry<String, List<Integer>> entry : offsetsByPatient.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (int offset : entry.getValue()) {
+                    out.writeInt(offset);
+                }
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Map<String, int[]> read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an audit index: " + path);
+            }
+            int patients = in.readInt();
+            Map<String, int[]> index = new HashMap<>(patients * 2);
+            for (int i = 0; i < patients; i++) {
+                String patientId = in.readUTF();
+                int[] offsets = new int[in.readInt()];
+                for (int j = 0; j < offsets.length; j++) {
+                    offsets[j] = in.readInt();
+                }
+                index.put(patientId, offsets);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.arogith.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings for the DB-pool-aware admission layer in front of the API controllers.
+ */
+@Data
+@ConfigurationProperties(prefix = "arogith.admission")
+public class AdmissionProperties {
+
+    /**
+     * Off by default; the virtual-thread profile turns it on.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Connections kept back from request traffic for scheduled jobs (presence flush etc.).
+     */
+    private int reservedConnections = 1;
+
+    /**
+     * How long a request may wait for a permit before it is rejected with 503.
+     */
+    private long defaultBudgetMs = 1000;
+
+    /**
+     * Per-endpoint wait budgets keyed by Ant path pattern, first match wins.
+     */
+    private Map<String, Long> endpointBudgetsMs = new LinkedHashMap<>();
+
+    /**
+     * Paths that never touch the database and bypass admission.
+     */
+    private List<String> excludedPaths = new ArrayList<>(List.of(
+            "/api/auth/health", "/api/test/health", "/api/nurses/heartbeat/**", "/api/nurses/active"));
+}
@@ -0,0 +1,38 @@
+package com.arogith.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the in-memory visit analytics snapshot behind /api/analytics.
+ */
+@Data
+@ConfigurationProperties(prefix = "arogith.analytics")
+public class AnalyticsProperties {
+
+    /**
+     * Off unless the heap has room for roughly a hundred bytes per visit ever recorded, which are
+     * streamed in at startup.
+     */
+    private boolean enabled = false;
+
+    /**
+     * How often changes from the change log are applied to the snapshot.
+     */
+    private long refreshIntervalMs = 30_000;
+
+    /**
+     * Rows per round trip while loading; the load streams over its own connection, not the Hikari pool.
+     */
+    private int fetchSize = 10_000;
+
+    /**
+     * Default width of the ageBand dimension.
+     */
+    private int ageBandYears = 10;
+
+    /**
+     * Queries producing more groups than this are rejected.
+     */
+    private int maxGroups = 100_000;
+}
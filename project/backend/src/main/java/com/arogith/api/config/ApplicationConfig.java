@@ -1,6 +1,7 @@
 package com.arogith.api.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -23,6 +24,10 @@ public class ApplicationConfig {
     @Autowired
     private Environment env;
 
+    // Off in the fast-startup profile, where Flyway owns the schema
+    @Value("${arogith.schema.runtime-checks:true}")
+    private boolean schemaRuntimeChecks;
+
     /**
      * Fix photo column type if needed and add a sample patient if running in dev mode
      */
@@ -32,24 +37,8 @@ public class ApplicationConfig {
             JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
             
             // Check if we need to fix the photo column type
-            logger.info("Checking database schema...");
-            try {
-                // Check column type
-                String columnType = jdbcTemplate.queryForObject(
-                    "SELECT data_type FROM information_schema.columns " +
-                    "WHERE table_name = 'patients' AND column_name = 'photo'", 
-                    String.class);
-                
-                logger.info("Current photo column type: {}", columnType);
-                
-                // If column is OID type, alter it to BYTEA
-                if ("oid".equalsIgnoreCase(columnType)) {
-                    logger.info("Changing photo column type from OID to BYTEA...");
-                    jdbcTemplate.execute("ALTER TABLE patients ALTER COLUMN photo TYPE BYTEA USING NULL");
-                    logger.info("Column type changed successfully");
-                }
-            } catch (Exception e) {
-                logger.error("Error checking/fixing schema: {}", e.getMessage(), e);
+            if (schemaRuntimeChecks) {
+                checkPhotoColumn(jdbcTemplate);
             }
             
             // Add a sample patient in development mode
@@ -58,6 +47,28 @@ public class ApplicationConfig {
             }
         };
     }
+
+    private void checkPhotoColumn(JdbcTemplate jdbcTemplate) {
+        logger.info("Checking database schema...");
+        try {
+            // Check column type
+            String columnType = jdbcTemplate.queryForObject(
+                "SELECT data_type FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = 'patients' AND column_name = 'photo'", 
+                String.class);
+            
+            logger.info("Current photo column type: {}", columnType);
+            
+            // If column is OID type, alter it to BYTEA
+            if ("oid".equalsIgnoreCase(columnType)) {
+                logger.info("Changing photo column type from OID to BYTEA...");
+                jdbcTemplate.execute("ALTER TABLE patients ALTER COLUMN photo TYPE BYTEA USING NULL");
+                logger.info("Column type changed successfully");
+            }
+        } catch (Exception e) {
+            logger.error("Error checking/fixing schema: {}", e.getMessage(), e);
+        }
+    }
     
     @Transactional
     private void addSamplePatient(JdbcTemplate jdbcTemplate) {
@@ -0,0 +1,34 @@
+package com.arogith.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the file-based clinical audit log (see com.arogith.api.audit).
+ */
+@Data
+@ConfigurationProperties(prefix = "arogith.audit")
+public class AuditProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Directory holding the segment files and their patient indexes.
+     */
+    private String directory = "data/audit";
+
+    /**
+     * Size of each memory-mapped segment file; a new one is started when it is full.
+     */
+    private int segmentSizeMb = 64;
+
+    /**
+     * Group commit interval: records appended since the last flush are forced to disk together.
+     */
+    private long forceIntervalMs = 200;
+
+    /**
+     * Request header carrying the nurse ID the tablet is logged in with.
+     */
+    private String actorHeader = "X-Nurse-Id";
+}
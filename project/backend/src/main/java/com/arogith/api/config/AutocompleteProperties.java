@@ -0,0 +1,33 @@
+package com.arogith.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for drug and diagnosis autocomplete (see com.arogith.api.search.AutocompleteService).
+ */
+@Data
+@ConfigurationProperties(prefix = "arogith.autocomplete")
+public class AutocompleteProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Catalog files, one entry per line; any Spring resource location (classpath:, file:).
+     */
+    private String drugCatalog = "classpath:catalog/drugs.txt";
+
+    private String diagnosisCatalog = "classpath:catalog/diagnoses.txt";
+
+    /**
+     * How often the catalog files are checked for changes.
+     */
+    private long catalogCheckIntervalMs = 30_000;
+
+    /**
+     * How often usage counts are relearned from visit prescriptions, complaints and symptoms.
+     */
+    private long usageRefreshIntervalMs = 3_600_000;
+
+    private int maxSuggestions = 20;
+}
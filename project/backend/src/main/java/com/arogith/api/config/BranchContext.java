@@ -0,0 +1,44 @@
+package com.arogith.api.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Schema of the branch the current thread works for. Set by BranchFilter for each request and by
+ * the cross-branch lookups for their worker threads; unset means the default branch.
+ */
+public final class BranchContext {
+
+    private static final ThreadLocal<String> CURRENT_SCHEMA = new ThreadLocal<>();
+
+    private BranchContext() {
+    }
+
+    public static String getSchema() {
+        return CURRENT_SCHEMA.get();
+    }
+
+    public static void setSchema(String schema) {
+        CURRENT_SCHEMA.set(schema);
+    }
+
+    public static void clear() {
+        CURRENT_SCHEMA.remove();
+    }
+
+    /**
+     * Run work against another branch's schema, restoring the caller's branch afterwards.
+     */
+    public static <T> T callInSchema(String schema, Supplier<T> work) {
+        String previous = CURRENT_SCHEMA.get();
+        CURRENT_SCHEMA.set(schema);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SCHEMA.remove();
+            } else {
+                CURRENT_SCHEMA.set(previous);
+            }
+        }
+    }
+}
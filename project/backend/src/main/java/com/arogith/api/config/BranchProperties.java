@@ -0,0 +1,47 @@
+package com.arogith.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Branch (clinic) routing. Each branch keeps its patients, visits, lab tests and change log in its
+ * own PostgreSQL schema; users, nurses and doctors stay shared in public.
+ */
+@Data
+@ConfigurationProperties(prefix = "arogith.branch")
+public class BranchProperties {
+
+    /**
+     * Off by default; the branches profile turns it on.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Request header naming the branch. Requests without it go to the default branch.
+     */
+    private String header = "X-Branch-Id";
+
+    private String defaultBranch = "main";
+
+    /**
+     * Branch id to schema name. Schemas other than public are created and migrated at startup.
+     */
+    private Map<String, String> schemas = new LinkedHashMap<>(Map.of("main", "public"));
+
+    /**
+     * Threads for lookups that fan out to every branch (cross-branch Aadhaar search).
+     */
+    private int lookupThreads = 4;
+
+    /**
+     * How long a cross-branch lookup waits for a branch before reporting it as unavailable.
+     */
+    private long lookupTimeoutMs = 3000;
+
+    public String getDefaultSchema() {
+        return schemas.getOrDefault(defaultBranch, "public");
+    }
+}
@@ -0,0 +1,62 @@
+package com.arogith.api.config;
+
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashSet;
+import java.util.regex.Pattern;
+
+/**
+ * Schema-per-branch routing: Hibernate runs in multi-tenant mode with the branch schema as tenant.
+ * Branch schemas are migrated from db/branch (their own Flyway history) before the
+ * EntityManagerFactory is built; public keeps following schema.sql / db/migration.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "arogith.branch", name = "enabled", havingValue = "true")
+public class BranchSchemaConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(BranchSchemaConfig.class);
+
+    private static final Pattern SCHEMA_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    @Bean
+    public HibernatePropertiesCustomizer branchTenancyCustomizer(DataSource dataSource, BranchProperties properties) {
+        migrateBranchSchemas(dataSource, properties);
+        BranchSchemaConnectionProvider connectionProvider = new BranchSchemaConnectionProvider(dataSource);
+        BranchTenantResolver tenantResolver = new BranchTenantResolver(properties.getDefaultSchema());
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.MULTI_TENANT_CONNECTION_PROVIDER, connectionProvider);
+            hibernateProperties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, tenantResolver);
+        };
+    }
+
+    private static void migrateBranchSchemas(DataSource dataSource, BranchProperties properties) {
+        if (!properties.getSchemas().containsKey(properties.getDefaultBranch())) {
+            throw new IllegalStateException("Default branch " + properties.getDefaultBranch() + " has no schema");
+        }
+        for (String schema : new LinkedHashSet<>(properties.getSchemas().values())) {
+            if (!SCHEMA_NAME.matcher(schema).matches()) {
+                throw new IllegalStateException("Invalid branch schema name: " + schema);
+            }
+            if ("public".equals(schema)) {
+                continue;
+            }
+            int applied = Flyway.configure()
+                    .dataSource(dataSource)
+                    .schemas(schema)
+                    .createSchemas(true)
+                    .locations("classpath:db/branch")
+                    .load()
+                    .migrate()
+                    .migrationsExecuted;
+            logger.info("Branch schema {} is up to date ({} migrations applied)", schema, applied);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.arogith.api.config;
+
+import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Hands Hibernate connections whose search_path is the branch schema followed by public, so the
+ * branch tables shadow nothing else and the shared tables (users, nurse, doctor) still resolve.
+ *
+ * The search_path is set just before the first statement rather than on checkout: with the replica
+ * profile the DataSource is a LazyConnectionDataSourceProxy, which only picks a pool once the
+ * transaction's read-only flag has been applied. It is reset before the connection goes back to
+ * the pool.
+ *
+ * set_config is transactional: if the transaction that ran it rolls back, Postgres undoes it. A
+ * connection is held for the whole request (open-in-view), so the path is set again for the next
+ * transaction in that case, or every later one would run against public.
+ */
+public class BranchSchemaConnectionProvider implements MultiTenantConnectionProvider<String> {
+
+    private static final Set<String> STATEMENT_METHODS = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    private final DataSource dataSource;
+
+    public BranchSchemaConnectionProvider(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Connection getAnyConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public void releaseAnyConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public Connection getConnection(String schema) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        if ("public".equals(schema)) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new SearchPathHandler(connection, schema));
+    }
+
+    @Override
+    public void releaseConnection(String schema, Connection connection) throws SQLException {
+        try {
+            if (Proxy.isProxyClass(connection.getClass())
+                    && Proxy.getInvocationHandler(connection) instanceof SearchPathHandler handler) {
+                handler.reset();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return unwrapType.isInstance(this) || unwrapType.isInstance(dataSource);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (unwrapType.isInstance(this)) {
+            return (T) this;
+        }
+        if (unwrapType.isInstance(dataSource)) {
+            return (T) dataSource;
+        }
+        throw new IllegalArgumentException("Cannot unwrap to " + unwrapType);
+    }
+
+    private static final class SearchPathHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final String schema;
+        private boolean applied;
+        // Set inside a transaction that has not committed yet
+        private boolean uncommitted;
+
+        SearchPathHandler(Connection target, String schema) {
+            this.target = target;
+            this.schema = schema;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!applied && STATEMENT_METHODS.contains(method.getName())) {
+                try (PreparedStatement statement = target.prepareStatement("SELECT set_config('search_path', ?, false)")) {
+                    statement.setString(1, schema + ", public");
+                    statement.execute();
+                }
+                applied = true;
+                uncommitted = !target.getAutoCommit();
+            }
+            boolean committing = switch (method.getName()) {
+                case "commit" -> true;
+                // Switching autocommit on commits the open transaction
+                case "setAutoCommit" -> (Boolean) args[0] && !target.getAutoCommit();
+                default -> false;
+            };
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (committing) {
+                uncommitted = false;
+            } else if (uncommitted && "rollback".equals(method.getName())) {
+                // Also after a rollback to a savepoint, which may or may not predate the set_config
+                applied = false;
+                uncommitted = false;
+            }
+            return result;
+        }
+
+        void reset() throws SQLException {
+            if (!applied || target.isClosed()) {
+                return;
+            }
+            // Outside autocommit the RESET has to be committed, or the pool's rollback on close undoes it
+            boolean autoCommit = target.getAutoCommit();
+            if (!autoCommit) {
+                target.rollback();
+            }
+            try (Statement statement = target.createStatement()) {
+                statement.execute("RESET search_path");
+            }
+            if (!autoCommit) {
+                target.commit();
+            }
+            applied = false;
+            uncommitted = false;
+        }
+    }
+}
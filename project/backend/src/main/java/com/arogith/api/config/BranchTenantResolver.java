@@ -0,0 +1,27 @@
+package com.arogith.api.config;
+
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+
+/**
+ * Opens each Hibernate session for the schema in BranchContext. The schema name is the tenant
+ * identifier, so second-level cache entries of different branches never collide.
+ */
+public class BranchTenantResolver implements CurrentTenantIdentifierResolver<String> {
+
+    private final String defaultSchema;
+
+    public BranchTenantResolver(String defaultSchema) {
+        this.defaultSchema = defaultSchema;
+    }
+
+    @Override
+    public String resolveCurrentTenantIdentifier() {
+        String schema = BranchContext.getSchema();
+        return schema != null ? schema : defaultSchema;
+    }
+
+    @Override
+    public boolean validateExistingCurrentSessions() {
+        return true;
+    }
+}
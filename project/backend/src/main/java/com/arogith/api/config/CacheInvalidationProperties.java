@@ -0,0 +1,29 @@
+package com.arogith.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the cross-instance cache invalidation bus (Postgres LISTEN/NOTIFY).
+ */
+@Data
+@ConfigurationProperties(prefix = "arogith.cache.invalidation")
+public class CacheInvalidationProperties {
+
+    /**
+     * Only needed when more than one instance serves the same database.
+     */
+    private boolean enabled = false;
+
+    private String channel = "arogith_cache";
+
+    /**
+     * How long the listener waits for notifications before checking the connection again.
+     */
+    private int pollTimeoutMs = 1000;
+
+    /**
+     * Wait before reconnecting a lost listener connection.
+     */
+    private long reconnectDelayMs = 5000;
+}
@@ -0,0 +1,39 @@
+package com.arogith.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the background scan that queues likely duplicate patient records for review.
+ */
+@Data
+@ConfigurationProperties(prefix = "arogith.duplicates")
+public class DuplicateDetectionProperties {
+
+    private boolean enabled = true;
+
+    private long scanIntervalMs = 21_600_000;
+
+    private long initialDelayMs = 300_000;
+
+    /**
+     * Pairs scoring below this (0..1) are not queued.
+     */
+    private double minScore = 0.85;
+
+    /**
+     * Blocks with more patients than this are skipped: a shared placeholder phone number or a very
+     * common name would otherwise produce a quadratic number of pairs that say nothing.
+     */
+    private int maxBlockSize = 500;
+
+    /**
+     * Ages within this many years of each other still fall into a common age band.
+     */
+    private int ageToleranceYears = 2;
+
+    /**
+     * Threads scoring candidate pairs; 0 uses one per available processor.
+     */
+    private int scoringThreads = 0;
+}
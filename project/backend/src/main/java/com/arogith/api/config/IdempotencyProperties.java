@@ -0,0 +1,43 @@
+package com.arogith.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for Idempotency-Key handling on the create endpoints the mobile app retries.
+ */
+@Data
+@ConfigurationProperties(prefix = "arogith.idempotency")
+public class IdempotencyProperties {
+
+    private boolean enabled = true;
+
+    private String header = "Idempotency-Key";
+
+    /**
+     * POST paths (Ant patterns) that honour the header.
+     */
+    private List<String> paths = new ArrayList<>(List.of(
+            "/api/patients", "/api/visits/patient/*", "/api/labtests/patient/**"));
+
+    /**
+     * Completed responses kept in memory; older keys are answered from the idempotency_keys table.
+     */
+    private int cacheSize = 10_000;
+
+    /**
+     * How long a key is remembered before it may be reused.
+     */
+    private long retentionHours = 24;
+
+    /**
+     * How long a repeat waits for the first execution of its key. A claim older than this whose
+     * instance never completed it is treated as abandoned and may be taken over.
+     */
+    private long inFlightTimeoutMs = 30_000;
+
+    private long purgeIntervalMs = 3_600_000;
+}
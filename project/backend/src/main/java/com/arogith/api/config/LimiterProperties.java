@@ -0,0 +1,50 @@
+package com.arogith.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for the adaptive concurrency limiter in front of the API controllers.
+ * Endpoints are listed as "METHOD /ant/pattern"; anything not listed is NORMAL.
+ */
+@Data
+@ConfigurationProperties(prefix = "arogith.limiter")
+public class LimiterProperties {
+
+    private boolean enabled = true;
+
+    private int initialLimit = 10;
+
+    private int minLimit = 4;
+
+    private int maxLimit = 200;
+
+    /**
+     * How much the short-term latency may exceed the long-term baseline before the limit shrinks.
+     */
+    private double rttTolerance = 1.5;
+
+    /**
+     * Share of the limit NORMAL and SHEDDABLE requests may occupy; CRITICAL requests may use all of it.
+     */
+    private double normalShare = 0.8;
+
+    private double sheddableShare = 0.5;
+
+    private List<String> critical = new ArrayList<>(List.of(
+            "POST /api/patients", "POST /api/visits/patient/*", "POST /api/auth/login",
+            "GET /api/patients/check-aadhar/*", "GET /api/patients/aadhar/*"));
+
+    private List<String> sheddable = new ArrayList<>(List.of(
+            "GET /api/patients", "GET /api/visits", "GET /api/labtests", "GET /api/labtests/status/*",
+            "GET /api/users", "GET /api/nurses", "GET /api/sync", "GET /api/audit/**", "GET /api/analytics/**"));
+
+    /**
+     * Paths that do not touch the database and bypass the limiter.
+     */
+    private List<String> excludedPaths = new ArrayList<>(List.of(
+            "/api/auth/health", "/api/test/health", "/api/nurses/heartbeat/**"));
+}
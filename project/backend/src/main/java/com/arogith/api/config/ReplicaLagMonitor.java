@@ -0,0 +1,68 @@
+package com.arogith.api.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Periodically measures how far the replica is behind the primary. Read-only traffic is only
+ * routed to the replica while the last measurement succeeded and was under the threshold.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // A caught-up standby (receive LSN == replay LSN) has no lag even if the primary has been idle;
+    // a server that is not in recovery at all is treated as current.
+    private static final String LAG_QUERY = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+            END""";
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final long maxLagMs;
+
+    private volatile long lagMs = -1;
+    private volatile boolean replicaUsable = false;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, long maxLagMs) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.maxLagMs = maxLagMs;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${arogith.datasource.replica.lag-check-interval-ms:5000}")
+    public void checkLag() {
+        boolean wasUsable = replicaUsable;
+        try {
+            Number lag = replicaJdbcTemplate.queryForObject(LAG_QUERY, Number.class);
+            lagMs = lag == null ? 0 : lag.longValue();
+            replicaUsable = lagMs <= maxLagMs;
+        } catch (Exception e) {
+            lagMs = -1;
+            replicaUsable = false;
+            if (wasUsable) {
+                logger.error("Replica lag check failed: {}", e.getMessage());
+            }
+        }
+        if (wasUsable != replicaUsable) {
+            logger.warn("Read replica {} (lag {} ms, threshold {} ms)",
+                    replicaUsable ? "back in use" : "bypassed, reads go to primary", lagMs, maxLagMs);
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * Last measured lag in milliseconds, -1 if the replica could not be reached.
+     */
+    public long getLagMs() {
+        return lagMs;
+    }
+}
@@ -0,0 +1,34 @@
+package com.arogith.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Connection and lag settings for the read replica used by read-only transactions.
+ * Pool settings go under arogith.datasource.replica.hikari.* and are bound onto the replica pool directly.
+ */
+@Data
+@ConfigurationProperties(prefix = "arogith.datasource.replica")
+public class ReplicaProperties {
+
+    /**
+     * Off by default; the replica profile turns it on.
+     */
+    private boolean enabled = false;
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    /**
+     * Replication lag above which read-only transactions go back to the primary.
+     */
+    private long maxLagMs = 2000;
+
+    /**
+     * How often the replica lag is measured.
+     */
+    private long lagCheckIntervalMs = 5000;
+}
@@ -0,0 +1,48 @@
+package com.arogith.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the local full-text index over visit complaints, symptoms and prescriptions
+ * (see com.arogith.api.search).
+ */
+@Data
+@ConfigurationProperties(prefix = "arogith.search")
+public class SearchProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Index directory. Every instance needs its own; Lucene locks it for a single writer.
+     */
+    private String directory = "data/search";
+
+    /**
+     * How often newly indexed visits become searchable.
+     */
+    private long refreshIntervalMs = 1000;
+
+    /**
+     * How often changes from the change log (other instances, merges, anything not written through
+     * VisitService here) are applied and the index is committed.
+     */
+    private long catchUpIntervalMs = 30_000;
+
+    /**
+     * Threads reading and indexing visits during a full rebuild.
+     */
+    private int rebuildThreads = 4;
+
+    /**
+     * Visits per rebuild batch (one query each).
+     */
+    private int rebuildBatchSize = 5000;
+
+    private int maxPageSize = 100;
+
+    /**
+     * Deepest result position a page may reach.
+     */
+    private int maxResults = 10_000;
+}
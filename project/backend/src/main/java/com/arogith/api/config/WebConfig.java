@@ -0,0 +1,19 @@
+package com.arogith.api.config;
+
+import com.arogith.api.metrics.ControllerMetricsInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ControllerMetricsInterceptor controllerMetricsInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(controllerMetricsInterceptor).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,62 @@
+package com.arogith.api.controller;
+
+import com.arogith.api.analytics.AnalyticsEngine;
+import com.arogith.api.analytics.AnalyticsQuery;
+import com.arogith.api.config.AnalyticsProperties;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@ConditionalOnProperty(prefix = "arogith.analytics", name = "enabled", havingValue = "true")
+public class AnalyticsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsController.class);
+
+    private final AnalyticsEngine analyticsEngine;
+    private final AnalyticsProperties analyticsProperties;
+
+    /**
+     * Visit counts, e.g. ?complaint=fever&groupBy=week,ageBand,gender&from=2025-01-01
+     */
+    @GetMapping("/visits")
+    public ResponseEntity<?> countVisits(
+            @RequestParam(defaultValue = "week") String groupBy,
+            @RequestParam(required = false) String complaint,
+            @RequestParam(required = false) String symptom,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String branch,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(required = false) Integer ageBandYears) {
+        try {
+            List<AnalyticsQuery.Dimension> dimensions = Arrays.stream(groupBy.split(","))
+                    .filter(value -> !value.isBlank())
+                    .map(AnalyticsQuery.Dimension::fromParameter)
+                    .toList();
+            AnalyticsQuery query = new AnalyticsQuery(dimensions, complaint, symptom, gender, branch, from, to,
+                    minAge, maxAge, ageBandYears != null ? ageBandYears : analyticsProperties.getAgeBandYears());
+            return ResponseEntity.ok(analyticsEngine.query(query));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            logger.debug("Analytics query before the snapshot was ready");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
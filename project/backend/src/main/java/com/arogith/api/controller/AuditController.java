@@ -0,0 +1,61 @@
+package com.arogith.api.controller;
+
+import com.arogith.api.audit.AuditLog;
+import com.arogith.api.audit.AuditRecord;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/audit")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class AuditController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditController.class);
+
+    private final AuditLog auditLog;
+
+    @GetMapping("/patient/{patientId}")
+    public ResponseEntity<?> getPatientAudit(
+            @PathVariable String patientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "1000") int limit) {
+        return query(patientId, from, to, limit);
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getAudit(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "1000") int limit) {
+        return query(null, from, to, limit);
+    }
+
+    private ResponseEntity<?> query(String patientId, LocalDateTime from, LocalDateTime to, int limit) {
+        try {
+            List<AuditRecord> records = auditLog.query(patientId, toMillis(from, 0), toMillis(to, Long.MAX_VALUE),
+                    Math.max(1, Math.min(limit, 10_000)));
+            return ResponseEntity.ok(records);
+        } catch (IOException e) {
+            logger.error("Error reading audit log: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Could not read audit log"));
+        }
+    }
+
+    private static long toMillis(LocalDateTime value, long defaultValue) {
+        return value == null ? defaultValue : value.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
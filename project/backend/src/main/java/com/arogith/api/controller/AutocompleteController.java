@@ -0,0 +1,53 @@
+package com.arogith.api.controller;
+
+import com.arogith.api.search.AutocompleteService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Keystroke autocomplete for prescriptions (drugs) and complaints/symptoms (diagnoses).
+ */
+@RestController
+@RequestMapping("/api/autocomplete")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@ConditionalOnProperty(prefix = "arogith.autocomplete", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AutocompleteController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutocompleteController.class);
+
+    private final AutocompleteService autocompleteService;
+
+    @GetMapping("/{catalog}")
+    public ResponseEntity<?> suggest(@PathVariable String catalog,
+                                     @RequestParam String q,
+                                     @RequestParam(defaultValue = "10") int limit) {
+        AutocompleteService.Catalog parsed;
+        try {
+            parsed = AutocompleteService.Catalog.valueOf(catalog.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "catalog must be drug or diagnosis"));
+        }
+        try {
+            return ResponseEntity.ok(autocompleteService.suggest(parsed, q, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Rereads the catalog files and relearns usage now instead of on the next check.
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload() {
+        logger.info("Autocomplete reload requested");
+        return ResponseEntity.ok(autocompleteService.reload());
+    }
+}
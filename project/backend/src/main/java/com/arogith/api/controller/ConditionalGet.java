@@ -0,0 +1,154 @@
+package com.arogith.api.controller;
+
+import com.arogith.api.audit.AuditAction;
+import com.arogith.api.audit.AuditEntity;
+import com.arogith.api.audit.AuditLog;
+import com.arogith.api.config.BranchProperties;
+import com.arogith.api.model.LabTest;
+import com.arogith.api.model.Patient;
+import com.arogith.api.model.Visit;
+import com.arogith.api.service.EntityVersionService;
+import com.arogith.api.service.SparseFieldsetService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import java.util.Map;
+
+/**
+ * If-None-Match / If-Modified-Since on the patient, visit, lab test and nurse GETs. Handlers ask
+ * before reading anything: on a match the response is already a 304 and they return null;
+ * otherwise it carries the ETag and Last-Modified and they build the body as usual.
+ *
+ * The validator is read before the body, so a change in between leaves the response with the
+ * older ETag and the next revalidation fetches it again, never the other way round.
+ *
+ * A 304 still shows the client the data, so it is audited as the full response would be: READ
+ * for each row it covers, LIST for a list. An invalid fields parameter is rejected before the
+ * validator is compared, as it is without one.
+ *
+ * ETags are strong, except for clients accepting gzip: Tomcat does not compress a response with a
+ * strong ETag, so those get the same tag marked weak (If-None-Match compares weakly anyway).
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGet {
+
+    /**
+     * How the services audit reads of an entity: its id field and the field holding its patient.
+     */
+    private record Audited(AuditEntity entity, String idField, String patientField) {
+    }
+
+    private static final Map<Class<?>, Audited> AUDITED = Map.of(
+            Patient.class, new Audited(AuditEntity.PATIENT, "patientId", "patientId"),
+            Visit.class, new Audited(AuditEntity.VISIT, "visitId", "patientId"),
+            LabTest.class, new Audited(AuditEntity.LAB_TEST, "testId", "patient.patientId"));
+
+    private final EntityVersionService entityVersionService;
+    private final SparseFieldsetService sparseFieldsetService;
+    private final AuditLog auditLog;
+    private final BranchProperties branchProperties;
+
+    @Value("${server.compression.enabled:false}")
+    private boolean compression;
+
+    /**
+     * For one entity: when nothing matches there are no validators, and the handler answers 404.
+     */
+    public boolean entityNotModified(NativeWebRequest request, Class<?> type, Map<String, Object> where, String fields) {
+        EntityVersionService.EntityVersion version = versionOf(type, where, fields);
+        boolean notModified = version.rows() > 0 && notModified(request, version);
+        if (notModified) {
+            auditReads(type, where);
+        }
+        return notModified;
+    }
+
+    /**
+     * For an ?ids= lookup, audited like single reads of the entities found.
+     */
+    public boolean entitiesNotModified(NativeWebRequest request, Class<?> type, Map<String, Object> where, String fields) {
+        boolean notModified = notModified(request, versionOf(type, where, fields));
+        if (notModified) {
+            auditReads(type, where);
+        }
+        return notModified;
+    }
+
+    public boolean listNotModified(NativeWebRequest request, Class<?> type, Map<String, Object> where, String fields) {
+        boolean notModified = notModified(request, versionOf(type, where, fields));
+        if (notModified) {
+            auditList(type, where);
+        }
+        return notModified;
+    }
+
+    private EntityVersionService.EntityVersion versionOf(Class<?> type, Map<String, Object> where, String fields) {
+        if (fields != null) {
+            sparseFieldsetService.validate(type, fields);
+        }
+        return entityVersionService.versionOf(type, where, fields);
+    }
+
+    private boolean notModified(NativeWebRequest request, EntityVersionService.EntityVersion version) {
+        HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+        if (response != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            if (branchProperties.isEnabled()) {
+                response.addHeader(HttpHeaders.VARY, branchProperties.getHeader());
+            }
+        }
+        // CBOR and Smile bodies are other representations of the same data and need their own tags
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        String variant = accept == null ? "" : accept.contains("cbor") ? "-cbor" : accept.contains("smile") ? "-smile" : "";
+        String etag = "\"" + version.etag() + variant + "\"";
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (compression && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            etag = "W/" + etag;
+        }
+        return request.checkNotModified(etag, version.lastModifiedMillis());
+    }
+
+    private void auditReads(Class<?> type, Map<String, Object> where) {
+        Audited audited = AUDITED.get(type);
+        if (audited == null) {
+            return;
+        }
+        for (SparseFieldsetService.Row row : sparseFieldsetService.select(type, audited.idField(), where, null,
+                audited.patientField())) {
+            auditLog.record(AuditAction.READ, audited.entity(), row.get(audited.idField()),
+                    (String) row.get(audited.patientField()));
+        }
+    }
+
+    /**
+     * As the services record lists: by patient with that patient, otherwise with the filter as
+     * "name:value" and, for one through an association (a visit's lab tests), the patient of the
+     * first row.
+     */
+    private void auditList(Class<?> type, Map<String, Object> where) {
+        Audited audited = AUDITED.get(type);
+        if (audited == null) {
+            return;
+        }
+        String patientId = (String) where.get(audited.patientField());
+        String filter = null;
+        for (Map.Entry<String, Object> entry : where.entrySet()) {
+            String attribute = entry.getKey();
+            if (attribute.equals(audited.patientField())) {
+                continue;
+            }
+            int dot = attribute.indexOf('.');
+            filter = (dot < 0 ? attribute : attribute.substring(0, dot)) + ":" + entry.getValue();
+            if (patientId == null && dot > 0) {
+                patientId = sparseFieldsetService.select(type, audited.patientField(), where, null).stream()
+                        .findFirst().map(row -> (String) row.get(audited.patientField())).orElse(null);
+            }
+        }
+        auditLog.record(AuditAction.LIST, audited.entity(), filter, patientId);
+    }
+}
@@ -1,14 +1,19 @@
 package com.arogith.api.controller;
 
 import com.arogith.api.model.LabTest;
+import com.arogith.api.service.BatchLookup;
 import com.arogith.api.service.LabTestService;
+import com.arogith.api.service.SparseFieldsetService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/labtests")
@@ -17,31 +22,98 @@ import java.util.Map;
 public class LabTestController {
 
     private final LabTestService labTestService;
+    private final ConditionalGet conditionalGet;
+
+    @Value("${arogith.labtests.max-panel-size:100}")
+    private int maxPanelSize;
+    
+    @Value("${arogith.batch.max-ids:200}")
+    private int maxBatchIds;
     
+    /**
+     * fields may name the test's own attributes and those of its patient and visit as
+     * patient.name, visit.visitDate; only the associations named are joined. The GETs answer
+     * conditional requests as the patient ones do.
+     */
     @GetMapping
-    public ResponseEntity<List<LabTest>> getAllLabTests() {
+    public ResponseEntity<?> getAllLabTests(@RequestParam(required = false) String fields, NativeWebRequest request) {
+        if (conditionalGet.listNotModified(request, LabTest.class, Map.of(), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(labTestService.getAllLabTests(fields));
+        }
         return ResponseEntity.ok(labTestService.getAllLabTests());
     }
     
+    /**
+     * ids resolves several lab tests with one query, as on /api/patients.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getLabTestsByIds(@RequestParam String ids, @RequestParam(required = false) String fields,
+                                              NativeWebRequest request) {
+        List<Long> testIds;
+        try {
+            testIds = BatchLookup.parseIds(ids, Long::valueOf, maxBatchIds);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        if (conditionalGet.entitiesNotModified(request, LabTest.class, Map.of("testId", testIds), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(labTestService.getLabTestsByIds(testIds, fields));
+        }
+        return ResponseEntity.ok(labTestService.getLabTestsByIds(testIds));
+    }
+    
     @GetMapping("/{testId}")
-    public ResponseEntity<LabTest> getLabTestById(@PathVariable Long testId) {
-        return labTestService.getLabTestById(testId)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> getLabTestById(@PathVariable Long testId, @RequestParam(required = false) String fields,
+                                            NativeWebRequest request) {
+        if (conditionalGet.entityNotModified(request, LabTest.class, Map.of("testId", testId), fields)) {
+            return null;
+        }
+        Optional<?> labTest = fields != null
+                ? labTestService.getLabTestById(testId, fields) : labTestService.getLabTestById(testId);
+        return labTest.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/patient/{patientId}")
-    public ResponseEntity<List<LabTest>> getLabTestsByPatientId(@PathVariable String patientId) {
+    public ResponseEntity<?> getLabTestsByPatientId(@PathVariable String patientId,
+                                                    @RequestParam(required = false) String fields,
+                                                    NativeWebRequest request) {
+        if (conditionalGet.listNotModified(request, LabTest.class, Map.of("patient.patientId", patientId), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(labTestService.getLabTestsByPatientId(patientId, fields));
+        }
         return ResponseEntity.ok(labTestService.getLabTestsByPatientId(patientId));
     }
     
     @GetMapping("/visit/{visitId}")
-    public ResponseEntity<List<LabTest>> getLabTestsByVisitId(@PathVariable Long visitId) {
+    public ResponseEntity<?> getLabTestsByVisitId(@PathVariable Long visitId,
+                                                  @RequestParam(required = false) String fields,
+                                                  NativeWebRequest request) {
+        if (conditionalGet.listNotModified(request, LabTest.class, Map.of("visit.visitId", visitId), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(labTestService.getLabTestsByVisitId(visitId, fields));
+        }
         return ResponseEntity.ok(labTestService.getLabTestsByVisitId(visitId));
     }
     
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<LabTest>> getLabTestsByStatus(@PathVariable String status) {
+    public ResponseEntity<?> getLabTestsByStatus(@PathVariable String status,
+                                                 @RequestParam(required = false) String fields,
+                                                 NativeWebRequest request) {
+        if (conditionalGet.listNotModified(request, LabTest.class, Map.of("status", status), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(labTestService.getLabTestsByStatus(status, fields));
+        }
         return ResponseEntity.ok(labTestService.getLabTestsByStatus(status));
     }
     
@@ -62,6 +134,22 @@ public class LabTestController {
                 .body(labTestService.createLabTest(patientId, visitId, labTest));
     }
     
+    @PostMapping("/patient/{patientId}/visit/{visitId}/panel")
+    public ResponseEntity<?> createLabTestPanel(
+            @PathVariable String patientId,
+            @PathVariable Long visitId,
+            @RequestBody List<LabTest> labTests) {
+        if (labTests == null || labTests.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At least one lab test is required"));
+        }
+        if (labTests.size() > maxPanelSize) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "A panel can have at most " + maxPanelSize + " lab tests"));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(labTestService.createLabTestPanel(patientId, visitId, labTests));
+    }
+    
     @PutMapping("/{testId}")
     public ResponseEntity<LabTest> updateLabTest(@PathVariable Long testId, @RequestBody LabTest labTest) {
         if (!labTestService.getLabTestById(testId).isPresent()) {
@@ -93,4 +181,9 @@ public class LabTestController {
         labTestService.deleteLabTest(testId);
         return ResponseEntity.noContent().build();
     }
-} 
\ No newline at end of file
+
+    @ExceptionHandler(SparseFieldsetService.UnknownFieldException.class)
+    public ResponseEntity<Map<String, String>> handleUnknownField(SparseFieldsetService.UnknownFieldException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
@@ -3,13 +3,16 @@ package com.arogith.api.controller;
 import com.arogith.api.dto.NurseDTO;
 import com.arogith.api.model.Nurse;
 import com.arogith.api.service.NurseService;
+import com.arogith.api.service.SparseFieldsetService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -20,9 +23,20 @@ import java.util.stream.Collectors;
 public class NurseController {
 
     private final NurseService nurseService;
+    private final ConditionalGet conditionalGet;
 
+    /**
+     * The nurse GETs answer conditional requests as the patient ones do; /active does not, its
+     * statuses live in the presence registry.
+     */
     @GetMapping
-    public ResponseEntity<List<NurseDTO>> getAllNurses() {
+    public ResponseEntity<?> getAllNurses(@RequestParam(required = false) String fields, NativeWebRequest request) {
+        if (conditionalGet.listNotModified(request, Nurse.class, Map.of(), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(nurseService.getAllNurses(fields));
+        }
         List<NurseDTO> nurses = nurseService.getAllNurses().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
@@ -30,7 +44,16 @@ public class NurseController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<NurseDTO> getNurseById(@PathVariable String id) {
+    public ResponseEntity<?> getNurseById(@PathVariable String id, @RequestParam(required = false) String fields,
+                                          NativeWebRequest request) {
+        if (conditionalGet.entityNotModified(request, Nurse.class, Map.of("nurseId", id), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return nurseService.getNurseById(id, fields)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        }
         return nurseService.getNurseById(id)
                 .map(this::convertToDTO)
                 .map(ResponseEntity::ok)
@@ -38,7 +61,17 @@ public class NurseController {
     }
 
     @GetMapping("/find-by-nurse-id/{nurseId}")
-    public ResponseEntity<NurseDTO> getNurseByNurseId(@PathVariable String nurseId) {
+    public ResponseEntity<?> getNurseByNurseId(@PathVariable String nurseId,
+                                               @RequestParam(required = false) String fields,
+                                               NativeWebRequest request) {
+        if (conditionalGet.entityNotModified(request, Nurse.class, Map.of("nurseId", nurseId), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return nurseService.getNurseById(nurseId, fields)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        }
         return nurseService.getNurseByNurseId(nurseId)
                 .map(this::convertToDTO)
                 .map(ResponseEntity::ok)
@@ -87,21 +120,31 @@ public class NurseController {
         }
     }
 
+    @PutMapping("/heartbeat/{nurseId}")
+    public ResponseEntity<Void> heartbeat(@PathVariable String nurseId) {
+        if (nurseService.recordHeartbeat(nurseId)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+
     @GetMapping("/active")
-    public ResponseEntity<List<NurseDTO>> getActiveNurses() {
-        List<NurseDTO> nurses = nurseService.getNursesByStatus("Active").stream()
+    public ResponseEntity<?> getActiveNurses(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(nurseService.getActiveNurses(fields));
+        }
+        List<NurseDTO> nurses = nurseService.getActiveNurses().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(nurses);
     }
     
     private NurseDTO convertToDTO(Nurse nurse) {
-        return NurseDTO.builder()
-                .nurse_id(nurse.getNurseId())
-                .name(nurse.getName())
-                .email(nurse.getEmail())
-                .role(nurse.getRole())
-                .status(nurse.getStatus())
-                .build();
+        return NurseDTO.from(nurse);
+    }
+
+    @ExceptionHandler(SparseFieldsetService.UnknownFieldException.class)
+    public ResponseEntity<Map<String, String>> handleUnknownField(SparseFieldsetService.UnknownFieldException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
     }
-} 
\ No newline at end of file
+}
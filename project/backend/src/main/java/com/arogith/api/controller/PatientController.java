@@ -2,20 +2,26 @@ package com.arogith.api.controller;
 
 import com.arogith.api.model.Patient;
 import com.arogith.api.model.Visit;
+import com.arogith.api.service.BatchLookup;
+import com.arogith.api.service.BranchLookupService;
 import com.arogith.api.service.PatientService;
+import com.arogith.api.service.SparseFieldsetService;
 import com.arogith.api.service.VisitService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.HashMap;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/patients")
@@ -27,45 +33,101 @@ public class PatientController {
     
     private final PatientService patientService;
     private final VisitService visitService;
+    private final BranchLookupService branchLookupService;
+    private final ConditionalGet conditionalGet;
     
+    @Value("${arogith.batch.max-ids:200}")
+    private int maxBatchIds;
+    
+    /**
+     * fields (optional, comma-separated, e.g. patientId,name,surname,age) limits the response to
+     * those attributes, read without the other columns; likewise on the other GETs.
+     *
+     * The GETs send an ETag and Last-Modified, and answer If-None-Match / If-Modified-Since
+     * with 304 when nothing they cover has changed (see ConditionalGet).
+     */
     @GetMapping
-    public ResponseEntity<List<Patient>> getAllPatients() {
+    public ResponseEntity<?> getAllPatients(@RequestParam(required = false) String fields, NativeWebRequest request) {
         logger.debug("Getting all patients");
+        if (conditionalGet.listNotModified(request, Patient.class, Map.of(), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(patientService.getAllPatients(fields));
+        }
         return ResponseEntity.ok(patientService.getAllPatients());
     }
     
+    /**
+     * ids (comma-separated) resolves up to arogith.batch.max-ids patients in one query, e.g. all
+     * those on a lab worklist: the found ones come back under items in the order asked for, the
+     * ids that matched nothing under missing. Takes fields as well.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getPatientsByIds(@RequestParam String ids,
+                                              @RequestParam(required = false) String fields,
+                                              NativeWebRequest request) {
+        List<String> patientIds;
+        try {
+            patientIds = BatchLookup.parseIds(ids, Function.identity(), maxBatchIds);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        logger.debug("Getting {} patients by ID", patientIds.size());
+        if (conditionalGet.entitiesNotModified(request, Patient.class, Map.of("patientId", patientIds), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(patientService.getPatientsByIds(patientIds, fields));
+        }
+        return ResponseEntity.ok(patientService.getPatientsByIds(patientIds));
+    }
+    
     @GetMapping("/{patientId}")
-    public ResponseEntity<Patient> getPatientById(@PathVariable String patientId) {
+    public ResponseEntity<?> getPatientById(@PathVariable String patientId,
+                                            @RequestParam(required = false) String fields,
+                                            NativeWebRequest request) {
         logger.debug("Getting patient with ID: {}", patientId);
-        return patientService.getPatientById(patientId)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        if (conditionalGet.entityNotModified(request, Patient.class, Map.of("patientId", patientId), fields)) {
+            return null;
+        }
+        Optional<?> patient = fields != null
+                ? patientService.getPatientById(patientId, fields) : patientService.getPatientById(patientId);
+        return patient.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/aadhar/{aadharNumber}")
-    public ResponseEntity<Patient> getPatientByAadhar(@PathVariable String aadharNumber) {
+    public ResponseEntity<?> getPatientByAadhar(@PathVariable String aadharNumber,
+                                                @RequestParam(required = false) String fields,
+                                                NativeWebRequest request) {
         logger.debug("Getting patient with Aadhar: {}", aadharNumber);
-        return patientService.getPatientByAadhar(aadharNumber)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        if (conditionalGet.entityNotModified(request, Patient.class, Map.of("aadharNumber", aadharNumber), fields)) {
+            return null;
+        }
+        Optional<?> patient = fields != null
+                ? patientService.getPatientByAadhar(aadharNumber, fields) : patientService.getPatientByAadhar(aadharNumber);
+        return patient.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Searches every branch, for patients who registered at another clinic.
+     */
+    @GetMapping("/aadhar/{aadharNumber}/branches")
+    public ResponseEntity<Map<String, Object>> findPatientInAllBranches(@PathVariable String aadharNumber) {
+        logger.debug("Looking up Aadhar {} in all branches", aadharNumber);
+        return ResponseEntity.ok(branchLookupService.findByAadharInAllBranches(aadharNumber));
     }
     
     @PostMapping
     @Transactional(rollbackFor = Exception.class, noRollbackFor = {IllegalArgumentException.class})
     public ResponseEntity<?> createPatient(@RequestBody Map<String, Object> requestBody) {
         try {
-            // Log the incoming request
-            logger.info("Received POST request to create patient: {}", requestBody);
+            // Log the incoming request (body only at DEBUG, it carries Aadhar and phone numbers)
+            logger.info("Received POST request to create patient");
+            logger.debug("Create patient request body: {}", requestBody);
             
-            // Extract patient data
-            Patient patient = new Patient();
-            
-            // If this is a nested structure (from frontend), extract the patient object
-            Map<String, Object> patientData = requestBody;
-            if (requestBody.containsKey("patient")) {
-                patientData = (Map<String, Object>) requestBody.get("patient");
-                logger.debug("Found nested patient data structure");
-            }
+            // Extract patient data, unwrapping the nested structure sent by the frontend
+            Map<String, Object> patientData = PatientRequestParser.patientData(requestBody);
             
             // Check for missing required fields
             if (patientData.get("name") == null || patientData.get("surname") == null) {
@@ -73,61 +135,8 @@ public class PatientController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Name and surname are required"));
             }
             
-            // Extract all patient fields
-            patient.setName((String) patientData.get("name"));
-            patient.setSurname((String) patientData.get("surname"));
-            
-            // Handle different field naming conventions
-            String fatherName = (String) patientData.get("fatherName");
-            if (fatherName == null) {
-                fatherName = (String) patientData.get("father_name");
-            }
-            patient.setFatherName(fatherName);
-            
-            patient.setGender((String) patientData.get("gender"));
-            
-            // Handle age with various possible types
-            Object ageObj = patientData.get("age");
-            if (ageObj != null) {
-                if (ageObj instanceof Number) {
-                    patient.setAge(((Number) ageObj).intValue());
-                } else {
-                    try {
-                        patient.setAge(Integer.parseInt(ageObj.toString()));
-                    } catch (NumberFormatException e) {
-                        logger.warn("Invalid age format: {}", ageObj);
-                        patient.setAge(0);
-                    }
-                }
-            } else {
-                patient.setAge(0);
-            }
-            
-            patient.setAddress((String) patientData.get("address"));
-            
-            // Handle different field naming conventions for blood group
-            String bloodGroup = (String) patientData.get("bloodGroup");
-            if (bloodGroup == null) {
-                bloodGroup = (String) patientData.get("blood_group");
-            }
-            patient.setBloodGroup(bloodGroup);
-            
-            // Handle different field naming conventions for phone
-            String phoneNumber = (String) patientData.get("phoneNumber");
-            if (phoneNumber == null) {
-                phoneNumber = (String) patientData.get("phone_number");
-            }
-            if (phoneNumber == null) {
-                phoneNumber = (String) patientData.get("phone");
-            }
-            patient.setPhoneNumber(phoneNumber);
-            
-            // Handle different field naming conventions for aadhar
-            String aadharNumber = (String) patientData.get("aadharNumber");
-            if (aadharNumber == null) {
-                aadharNumber = (String) patientData.get("aadhar_number");
-            }
-            patient.setAadharNumber(aadharNumber);
+            Patient patient = PatientRequestParser.toPatient(patientData);
+            String aadharNumber = patient.getAadharNumber();
             
             // Validate Aadhar number
             if (aadharNumber == null || aadharNumber.isEmpty()) {
@@ -227,30 +236,9 @@ public class PatientController {
      */
     private void createVisitIfNeeded(Map<String, Object> requestBody, String patientId, Map<String, Object> response) {
         try {
-            Map<String, Object> visitData = null;
-            if (requestBody.containsKey("visit")) {
-                visitData = (Map<String, Object>) requestBody.get("visit");
-            }
+            Visit visit = PatientRequestParser.toVisit(requestBody, patientId);
             
-            if (visitData != null) {
-                Visit visit = new Visit();
-                String bp = (String) visitData.get("bp");
-                String complaint = (String) visitData.get("complaint");
-                String symptoms = (String) visitData.get("symptoms");
-                if (symptoms == null) {
-                    symptoms = (String) visitData.get("current_condition");
-                }
-                if (symptoms == null) {
-                    symptoms = (String) visitData.get("currentCondition");
-                }
-                visit.setBp(bp);
-                visit.setComplaint(complaint);
-                visit.setSymptoms(symptoms);
-                visit.setStatus((String) visitData.get("status"));
-                visit.setTemperature((String) visitData.get("temperature"));
-                visit.setWeight((String) visitData.get("weight"));
-                visit.setPatientId(patientId);
-                
+            if (visit != null) {
                 try {
                     Visit createdVisit = visitService.createVisit(patientId, visit);
                     response.put("visitId", createdVisit.getVisitId());
@@ -320,6 +308,11 @@ public class PatientController {
         }
     }
     
+    @ExceptionHandler(SparseFieldsetService.UnknownFieldException.class)
+    public ResponseEntity<Map<String, String>> handleUnknownField(SparseFieldsetService.UnknownFieldException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+    
     // Add a general exception handler for this controller
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, String>> handleException(Exception e) {
@@ -0,0 +1,74 @@
+package com.arogith.api.controller;
+
+import com.arogith.api.service.PatientDuplicateService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Review queue of probable duplicate patients (filled by the background scan) and the merge and
+ * dismiss actions on it.
+ */
+@RestController
+@RequestMapping("/api/patients/duplicates")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@ConditionalOnProperty(prefix = "arogith.duplicates", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PatientDuplicateController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientDuplicateController.class);
+
+    private final PatientDuplicateService patientDuplicateService;
+
+    @GetMapping
+    public ResponseEntity<?> getReviewQueue(@RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > 1000) {
+            return ResponseEntity.badRequest().body(Map.of("error", "limit must be between 1 and 1000"));
+        }
+        return ResponseEntity.ok(patientDuplicateService.getReviewQueue(limit));
+    }
+
+    /**
+     * Runs a scan now instead of waiting for the schedule.
+     */
+    @PostMapping("/scan")
+    public ResponseEntity<?> scan() {
+        try {
+            return ResponseEntity.ok(patientDuplicateService.scan());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Moves everything of duplicateId onto survivorId and deletes duplicateId.
+     */
+    @PostMapping("/merge")
+    public ResponseEntity<?> merge(@RequestParam String survivorId, @RequestParam String duplicateId) {
+        logger.debug("Merging patient {} into {}", duplicateId, survivorId);
+        try {
+            return ResponseEntity.ok(patientDuplicateService.merge(survivorId, duplicateId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/dismiss")
+    public ResponseEntity<?> dismiss(@RequestParam String patientIdA, @RequestParam String patientIdB) {
+        try {
+            patientDuplicateService.dismiss(patientIdA, patientIdB);
+            return ResponseEntity.noContent().build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
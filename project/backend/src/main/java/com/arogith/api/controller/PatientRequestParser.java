@@ -0,0 +1,95 @@
+package com.arogith.api.controller;
+
+import com.arogith.api.model.Patient;
+import com.arogith.api.model.Visit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Maps the loosely typed registration payload sent by the app onto Patient and Visit entities.
+ * The frontend has used both camelCase and snake_case field names, so both are accepted.
+ */
+public final class PatientRequestParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientRequestParser.class);
+
+    private PatientRequestParser() {
+    }
+
+    /**
+     * Return the patient fields, unwrapping the nested {"patient": {...}} structure sent by the frontend.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> patientData(Map<String, Object> requestBody) {
+        if (requestBody.containsKey("patient")) {
+            logger.debug("Found nested patient data structure");
+            return (Map<String, Object>) requestBody.get("patient");
+        }
+        return requestBody;
+    }
+
+    public static Patient toPatient(Map<String, Object> patientData) {
+        Patient patient = new Patient();
+        patient.setName((String) patientData.get("name"));
+        patient.setSurname((String) patientData.get("surname"));
+
+        // Handle different field naming conventions
+        patient.setFatherName(firstString(patientData, "fatherName", "father_name"));
+
+        patient.setGender((String) patientData.get("gender"));
+        patient.setAge(parseAge(patientData.get("age")));
+        patient.setAddress((String) patientData.get("address"));
+        patient.setBloodGroup(firstString(patientData, "bloodGroup", "blood_group"));
+        patient.setPhoneNumber(firstString(patientData, "phoneNumber", "phone_number", "phone"));
+        patient.setAadharNumber(firstString(patientData, "aadharNumber", "aadhar_number"));
+        return patient;
+    }
+
+    /**
+     * Build the visit from the optional {"visit": {...}} part of the request, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public static Visit toVisit(Map<String, Object> requestBody, String patientId) {
+        Map<String, Object> visitData = (Map<String, Object>) requestBody.get("visit");
+        if (visitData == null) {
+            return null;
+        }
+        Visit visit = new Visit();
+        visit.setBp((String) visitData.get("bp"));
+        visit.setComplaint((String) visitData.get("complaint"));
+        visit.setSymptoms(firstString(visitData, "symptoms", "current_condition", "currentCondition"));
+        visit.setStatus((String) visitData.get("status"));
+        visit.setTemperature((String) visitData.get("temperature"));
+        visit.setWeight((String) visitData.get("weight"));
+        visit.setPatientId(patientId);
+        return visit;
+    }
+
+    // Handle age with various possible types
+    private static Integer parseAge(Object ageObj) {
+        if (ageObj == null) {
+            return 0;
+        }
+        if (ageObj instanceof Number) {
+            return ((Number) ageObj).intValue();
+        }
+        try {
+            return Integer.parseInt(ageObj.toString());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid age format: {}", ageObj);
+            return 0;
+        }
+    }
+
+    private static String firstString(Map<String, Object> data, String... keys) {
+        for (String key : keys) {
+            String value = (String) data.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.arogith.api.controller;
+
+import com.arogith.api.service.ChangeLogService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class SyncController {
+
+    private final ChangeLogService changeLogService;
+
+    @Value("${arogith.sync.max-page-size:1000}")
+    private int maxPageSize;
+
+    @GetMapping
+    public ResponseEntity<?> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit) {
+        int pageSize = limit == null ? maxPageSize : Math.min(Math.max(limit, 1), maxPageSize);
+        try {
+            return ResponseEntity.ok(changeLogService.getChanges(since, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
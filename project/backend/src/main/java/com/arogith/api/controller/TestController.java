@@ -1,6 +1,7 @@
 package com.arogith.api.controller;
 
 import com.arogith.api.model.Patient;
+import com.arogith.api.service.EntityCacheService;
 import com.arogith.api.service.PatientService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -22,6 +23,7 @@ public class TestController {
     private static final Logger logger = LoggerFactory.getLogger(TestController.class);
     
     private final PatientService patientService;
+    private final EntityCacheService entityCacheService;
     
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> healthCheck() {
@@ -84,6 +86,11 @@ public class TestController {
         }
     }
 
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> cacheStatistics() {
+        return ResponseEntity.ok(entityCacheService.getStatistics());
+    }
+
     @GetMapping("/create-simple-patient")
     public ResponseEntity<Patient> createSimplePatient() {
         logger.info("Creating simple test patient");
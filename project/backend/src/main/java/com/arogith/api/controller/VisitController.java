@@ -1,13 +1,19 @@
 package com.arogith.api.controller;
 
 import com.arogith.api.model.Visit;
+import com.arogith.api.service.BatchLookup;
+import com.arogith.api.service.SparseFieldsetService;
 import com.arogith.api.service.VisitService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/visits")
@@ -16,26 +22,80 @@ import java.util.List;
 public class VisitController {
 
     private final VisitService visitService;
+    private final ConditionalGet conditionalGet;
     
+    @Value("${arogith.batch.max-ids:200}")
+    private int maxBatchIds;
+    
+    /**
+     * Like the patient GETs, the visit GETs answer conditional requests with 304 while nothing they
+     * cover, the embedded patients included, has changed.
+     */
     @GetMapping
-    public ResponseEntity<List<Visit>> getAllVisits() {
+    public ResponseEntity<?> getAllVisits(@RequestParam(required = false) String fields, NativeWebRequest request) {
+        if (conditionalGet.listNotModified(request, Visit.class, Map.of(), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(visitService.getAllVisits(fields));
+        }
         return ResponseEntity.ok(visitService.getAllVisits());
     }
     
+    /**
+     * ids resolves several visits with one query, as on /api/patients.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getVisitsByIds(@RequestParam String ids, @RequestParam(required = false) String fields,
+                                            NativeWebRequest request) {
+        List<Long> visitIds;
+        try {
+            visitIds = BatchLookup.parseIds(ids, Long::valueOf, maxBatchIds);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        if (conditionalGet.entitiesNotModified(request, Visit.class, Map.of("visitId", visitIds), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(visitService.getVisitsByIds(visitIds, fields));
+        }
+        return ResponseEntity.ok(visitService.getVisitsByIds(visitIds));
+    }
+    
     @GetMapping("/{visitId}")
-    public ResponseEntity<Visit> getVisitById(@PathVariable Long visitId) {
-        return visitService.getVisitById(visitId)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> getVisitById(@PathVariable Long visitId, @RequestParam(required = false) String fields,
+                                          NativeWebRequest request) {
+        if (conditionalGet.entityNotModified(request, Visit.class, Map.of("visitId", visitId), fields)) {
+            return null;
+        }
+        Optional<?> visit = fields != null ? visitService.getVisitById(visitId, fields) : visitService.getVisitById(visitId);
+        return visit.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/patient/{patientId}")
-    public ResponseEntity<List<Visit>> getVisitsByPatientId(@PathVariable String patientId) {
+    public ResponseEntity<?> getVisitsByPatientId(@PathVariable String patientId,
+                                                  @RequestParam(required = false) String fields,
+                                                  NativeWebRequest request) {
+        if (conditionalGet.listNotModified(request, Visit.class, Map.of("patientId", patientId), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(visitService.getVisitsByPatientId(patientId, fields, false));
+        }
         return ResponseEntity.ok(visitService.getVisitsByPatientId(patientId));
     }
     
     @GetMapping("/patient/{patientId}/recent")
-    public ResponseEntity<List<Visit>> getVisitsByPatientIdOrderedByDate(@PathVariable String patientId) {
+    public ResponseEntity<?> getVisitsByPatientIdOrderedByDate(@PathVariable String patientId,
+                                                               @RequestParam(required = false) String fields,
+                                                               NativeWebRequest request) {
+        if (conditionalGet.listNotModified(request, Visit.class, Map.of("patientId", patientId), fields)) {
+            return null;
+        }
+        if (fields != null) {
+            return ResponseEntity.ok(visitService.getVisitsByPatientId(patientId, fields, true));
+        }
         return ResponseEntity.ok(visitService.getVisitsByPatientIdOrderedByDate(patientId));
     }
     
@@ -60,4 +120,9 @@ public class VisitController {
         visitService.deleteVisit(visitId);
         return ResponseEntity.noContent().build();
     }
-} 
\ No newline at end of file
+
+    @ExceptionHandler(SparseFieldsetService.UnknownFieldException.class)
+    public ResponseEntity<Map<String, String>> handleUnknownField(SparseFieldsetService.UnknownFieldException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,65 @@
+package com.arogith.api.controller;
+
+import com.arogith.api.search.VisitIndex;
+import com.arogith.api.search.VisitSearchService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Full-text search over visit complaints, symptoms and prescriptions of the caller's branch.
+ */
+@RestController
+@RequestMapping("/api/visits/search")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@ConditionalOnProperty(prefix = "arogith.search", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class VisitSearchController {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitSearchController.class);
+
+    private final VisitSearchService visitSearchService;
+
+    /**
+     * q takes plain words (all must match), "quoted phrases", -excluded words, a | b and prefix*.
+     * sort is relevance (default) or date, newest first.
+     */
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(required = false) String patientId,
+                                    @RequestParam(defaultValue = "relevance") String sort,
+                                    @RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(defaultValue = "20") int size) {
+        VisitIndex.Order order;
+        try {
+            order = VisitIndex.Order.valueOf(sort.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "sort must be relevance or date"));
+        }
+        try {
+            return ResponseEntity.ok(visitSearchService.search(q, patientId, order, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Rebuilds the index from the database, e.g. after restoring a backup.
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<?> rebuild() {
+        logger.info("Visit search index rebuild requested");
+        try {
+            return ResponseEntity.ok(visitSearchService.rebuild());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.arogith.api.dto;
 
+import com.arogith.api.model.Nurse;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,4 +16,14 @@ public class NurseDTO {
     private String email;
     private String role;
     private String status;
+
+    public static NurseDTO from(Nurse nurse) {
+        return NurseDTO.builder()
+                .nurse_id(nurse.getNurseId())
+                .name(nurse.getName())
+                .email(nurse.getEmail())
+                .role(nurse.getRole())
+                .status(nurse.getStatus())
+                .build();
+    }
 } 
\ No newline at end of file
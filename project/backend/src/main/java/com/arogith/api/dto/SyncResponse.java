@@ -0,0 +1,34 @@
+package com.arogith.api.dto;
+
+import com.arogith.api.model.LabTest;
+import com.arogith.api.model.Patient;
+import com.arogith.api.model.Visit;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncResponse {
+    // Pass back as ?since= on the next call
+    private String token;
+    // More changes are waiting; call again right away with the new token
+    private boolean hasMore;
+    // No usable token was sent: download the full lists, then sync from this token
+    private boolean reset;
+    @Builder.Default
+    private List<Patient> patients = List.of();
+    @Builder.Default
+    private List<Visit> visits = List.of();
+    @Builder.Default
+    private List<LabTest> labTests = List.of();
+    // Deleted ids keyed by entity type (patient, visit, labtest)
+    @Builder.Default
+    private Map<String, List<String>> deleted = Map.of();
+}
@@ -0,0 +1,157 @@
+package com.arogith.api.filter;
+
+import com.arogith.api.config.LimiterProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive concurrency limit with priority classes. The limit follows request latency (see GradientLimit):
+ * when reporting screens pile up and requests start queueing for database connections, it shrinks.
+ * SHEDDABLE requests (bulk listings, exports) only get the lower part of the limit and NORMAL a larger
+ * part, so under overload they are answered 429 while CRITICAL requests (registration, visit creation)
+ * still have room.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 30)
+@ConditionalOnProperty(prefix = "arogith.limiter", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdaptiveConcurrencyFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyFilter.class);
+
+    public enum Priority {
+        CRITICAL, NORMAL, SHEDDABLE
+    }
+
+    private final LimiterProperties properties;
+    private final GradientLimit limit;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Priority, AtomicLong> rejected = new EnumMap<>(Priority.class);
+
+    public AdaptiveConcurrencyFilter(LimiterProperties properties) {
+        this.properties = properties;
+        this.limit = new GradientLimit(properties.getInitialLimit(), properties.getMinLimit(),
+                properties.getMaxLimit(), properties.getRttTolerance());
+        for (Priority priority : Priority.values()) {
+            rejected.put(priority, new AtomicLong());
+        }
+        logger.info("Adaptive concurrency limit enabled, starting at {}", properties.getInitialLimit());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (!path.startsWith("/api/")) {
+            return true;
+        }
+        for (String excluded : properties.getExcludedPaths()) {
+            if (pathMatcher.match(excluded, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Priority priority = classify(request);
+        int allowed = allowedFor(priority, limit.getLimit());
+
+        if (inFlight.incrementAndGet() > allowed) {
+            inFlight.decrementAndGet();
+            reject(response, priority);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limit.onSample(endpointOf(request), System.nanoTime() - start, inFlight.getAndDecrement());
+        }
+    }
+
+    /**
+     * The handler pattern, so /api/patients/001 and /api/patients/002 share a latency baseline.
+     */
+    private static String endpointOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "unmapped");
+    }
+
+    Priority classify(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = request.getRequestURI();
+        if (matches(properties.getCritical(), method, path)) {
+            return Priority.CRITICAL;
+        }
+        if (matches(properties.getSheddable(), method, path)) {
+            return Priority.SHEDDABLE;
+        }
+        return Priority.NORMAL;
+    }
+
+    private boolean matches(List<String> endpoints, String method, String path) {
+        for (String endpoint : endpoints) {
+            int space = endpoint.indexOf(' ');
+            if (endpoint.substring(0, space).equals(method) && pathMatcher.match(endpoint.substring(space + 1), path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int allowedFor(Priority priority, int currentLimit) {
+        return switch (priority) {
+            case CRITICAL -> currentLimit;
+            case NORMAL -> Math.max(1, (int) Math.ceil(currentLimit * properties.getNormalShare()));
+            case SHEDDABLE -> Math.max(1, (int) Math.ceil(currentLimit * properties.getSheddableShare()));
+        };
+    }
+
+    private void reject(HttpServletResponse response, Priority priority) throws IOException {
+        rejected.get(priority).incrementAndGet();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Server busy, please retry\"}");
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected(Priority priority) {
+        return rejected.get(priority).get();
+    }
+
+    public double getLatencyRatio() {
+        return limit.getLatencyRatio();
+    }
+}
@@ -0,0 +1,134 @@
+package com.arogith.api.filter;
+
+import com.arogith.api.config.AdmissionProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps concurrent API requests at the size of the Hikari pool.
+ * Instead of letting bursts queue inside Hikari for up to connection-timeout, a request waits at most
+ * its endpoint budget for a permit and otherwise gets 503 with Retry-After. When the estimated wait
+ * (queue length x average hold time) already exceeds the budget, the request is rejected immediately.
+ */
+@Component
+@ConditionalOnProperty(prefix = "arogith.admission", name = "enabled", havingValue = "true")
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    private final AdmissionProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    // Exponentially weighted average of how long a request holds its permit
+    private volatile double averageHoldMillis = 10.0;
+
+    public AdmissionControlFilter(AdmissionProperties properties,
+                                  @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.properties = properties;
+        this.maxConcurrent = Math.max(1, poolSize - properties.getReservedConnections());
+        this.permits = new Semaphore(maxConcurrent);
+        logger.info("Admission control enabled with {} concurrent requests", maxConcurrent);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (!path.startsWith("/api/")) {
+            return true;
+        }
+        for (String excluded : properties.getExcludedPaths()) {
+            if (pathMatcher.match(excluded, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long budgetMs = budgetFor(request.getRequestURI());
+
+        double estimatedWaitMs = waiting.get() * averageHoldMillis / maxConcurrent;
+        if (estimatedWaitMs > budgetMs) {
+            reject(response, (long) estimatedWaitMs);
+            return;
+        }
+
+        boolean acquired;
+        waiting.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(budgetMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            reject(response, budgetMs);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+            double heldMillis = (System.nanoTime() - start) / 1_000_000.0;
+            averageHoldMillis = averageHoldMillis * 0.9 + heldMillis * 0.1;
+        }
+    }
+
+    public int getInFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public int getRejected() {
+        return rejected.get();
+    }
+
+    private long budgetFor(String path) {
+        for (Map.Entry<String, Long> entry : properties.getEndpointBudgetsMs().entrySet()) {
+            if (pathMatcher.match(entry.getKey(), path)) {
+                return entry.getValue();
+            }
+        }
+        return properties.getDefaultBudgetMs();
+    }
+
+    private void reject(HttpServletResponse response, long expectedWaitMs) throws IOException {
+        rejected.incrementAndGet();
+        long retryAfterSeconds = Math.max(1, (expectedWaitMs + 999) / 1000);
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Server busy, please retry\"}");
+    }
+}
@@ -0,0 +1,62 @@
+package com.arogith.api.filter;
+
+import com.arogith.api.config.BranchContext;
+import com.arogith.api.config.BranchProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Resolves the branch of an API request from the X-Branch-Id header and binds its schema to the
+ * request thread (see BranchContext). Requests without the header belong to the default branch;
+ * an unknown branch is rejected before anything touches the database.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(prefix = "arogith.branch", name = "enabled", havingValue = "true")
+public class BranchFilter extends OncePerRequestFilter {
+
+    private final BranchProperties properties;
+
+    public BranchFilter(BranchProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String branch = request.getHeader(properties.getHeader());
+        if (branch == null || branch.isBlank()) {
+            branch = properties.getDefaultBranch();
+        }
+        String schema = properties.getSchemas().get(branch.trim());
+        if (schema == null) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Unknown branch\"}");
+            return;
+        }
+
+        BranchContext.setSchema(schema);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            BranchContext.clear();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.arogith.api.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long after JVM start the first API request was answered, the number the
+ * fast-startup profile is tuned for. Boot's application.ready.time stops at context refresh
+ * and misses lazy work (first connection, first query, first serialization) on the first request.
+ */
+@Component
+public class FirstRequestTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FirstRequestTimingFilter.class);
+
+    private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+    public FirstRequestTimingFilter(MeterRegistry meterRegistry) {
+        TimeGauge.builder("arogith.startup.first.request", firstRequestMillis, TimeUnit.MILLISECONDS,
+                        AtomicLong::get)
+                .description("Time from JVM start until the first API response was written")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return firstRequestMillis.get() >= 0 || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            if (firstRequestMillis.compareAndSet(-1, uptime)) {
+                logger.info("First request {} {} answered {} ms after JVM start",
+                        request.getMethod(), request.getRequestURI(), uptime);
+            }
+        }
+    }
+}
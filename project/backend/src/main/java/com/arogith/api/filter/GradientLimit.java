@@ -0,0 +1,73 @@
+package com.arogith.api.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Concurrency limit that follows observed latency. Endpoints differ by orders of magnitude (a full
+ * visit listing against an Aadhaar lookup), so each sample is compared with its own endpoint's baseline,
+ * a soft minimum that drops quickly and rises only slowly. The short-window average of latency/baseline
+ * drives the limit: while it stays within tolerance the limit aims sqrt(limit) higher, and once requests
+ * start queueing for connections it aims lower, at most half. Each sample moves the limit only SMOOTHING
+ * (a fifth) of the way to that target, so it grows by about 0.2 * sqrt(limit) per sample and shrinks by
+ * at most about a tenth.
+ */
+public class GradientLimit {
+
+    private static final int SHORT_WINDOW = 10;
+    private static final int BASELINE_WINDOW = 200;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final Map<String, Double> baselines = new HashMap<>();
+
+    private volatile double limit;
+    private double latencyRatio = 1.0;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @param endpoint handler pattern the request was served by
+     * @param rttNanos latency of the completed request
+     * @param inFlight requests in flight when it completed (itself included)
+     */
+    public synchronized void onSample(String endpoint, long rttNanos, int inFlight) {
+        Double baseline = baselines.get(endpoint);
+        if (baseline == null) {
+            baselines.put(endpoint, (double) rttNanos);
+            return;
+        }
+        baselines.put(endpoint, rttNanos < baseline
+                ? baseline + (rttNanos - baseline) * 0.5
+                : baseline + (rttNanos - baseline) / BASELINE_WINDOW);
+        latencyRatio += (rttNanos / baseline - latencyRatio) / SHORT_WINDOW;
+
+        // Not using the limit, so latency says nothing about whether it could be higher
+        if (inFlight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance / latencyRatio));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Short-window latency relative to each endpoint's baseline; 1.0 means unloaded.
+     */
+    public synchronized double getLatencyRatio() {
+        return latencyRatio;
+    }
+}
@@ -0,0 +1,311 @@
+package com.arogith.api.filter;
+
+import com.arogith.api.config.BranchContext;
+import com.arogith.api.config.IdempotencyProperties;
+import com.arogith.api.service.IdempotencyStore;
+import com.arogith.api.service.IdempotencyStore.StoredResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makes the create endpoints safe to retry. A POST carrying an Idempotency-Key runs once; repeats get
+ * the stored status and body back (with Idempotent-Replayed: true) without reaching the controller.
+ *
+ * Completed responses live in a bounded LRU map in front of the idempotency_keys table. Repeats that
+ * arrive while the first execution is still running wait on its result instead of running in parallel;
+ * across instances the table row acts as the claim, and a repeat that finds a foreign claim gets 409.
+ * 5xx responses are not stored, so the client's next retry runs again.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@ConditionalOnProperty(prefix = "arogith.idempotency", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyProperties properties;
+    private final IdempotencyStore store;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, StoredResponse> completed;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public IdempotencyFilter(IdempotencyProperties properties, IdempotencyStore store) {
+        this.properties = properties;
+        this.store = store;
+        int cacheSize = properties.getCacheSize();
+        this.completed = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod()) || request.getHeader(properties.getHeader()) == null) {
+            return true;
+        }
+        String path = request.getRequestURI();
+        for (String pattern : properties.getPaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(properties.getHeader()).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    properties.getHeader() + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String requestHash = hash(request, cachedRequest.body);
+
+        StoredResponse cached = completed.get(key);
+        if (cached != null && !isExpired(cached)) {
+            replay(cached, requestHash, response);
+            return;
+        }
+
+        CompletableFuture<StoredResponse> execution = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(key, execution);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            awaitAndReplay(key, running, requestHash, response);
+            return;
+        }
+
+        boolean claimed = false;
+        try {
+            StoredResponse stored = store.find(key).orElse(null);
+            if (stored != null && stored.isComplete() && !isExpired(stored)) {
+                completed.put(key, stored);
+                execution.complete(stored);
+                replay(stored, requestHash, response);
+                return;
+            }
+            claimed = store.claim(key, requestHash);
+            if (!claimed) {
+                execution.complete(null);
+                writeInProgress(response);
+                return;
+            }
+
+            StoredResponse result = execute(key, cachedRequest, requestHash, response, filterChain);
+            execution.complete(result);
+        } catch (IOException | ServletException | RuntimeException e) {
+            if (claimed) {
+                store.release(key);
+            }
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, execution);
+        }
+    }
+
+    private StoredResponse execute(String key, CachedBodyRequest request, String requestHash,
+                                   HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, responseWrapper);
+
+        StoredResponse result = new StoredResponse(requestHash, responseWrapper.getStatus(),
+                responseWrapper.getContentType(), responseWrapper.getContentAsByteArray(), System.currentTimeMillis());
+        if (result.status() < 500) {
+            store.complete(key, result);
+            completed.put(key, result);
+        } else {
+            store.release(key);
+        }
+        responseWrapper.copyBodyToResponse();
+        return result;
+    }
+
+    private void awaitAndReplay(String key, CompletableFuture<StoredResponse> running, String requestHash,
+                                HttpServletResponse response) throws IOException {
+        try {
+            StoredResponse result = running.get(properties.getInFlightTimeoutMs(), TimeUnit.MILLISECONDS);
+            if (result == null) {
+                writeInProgress(response);
+            } else {
+                replay(result, requestHash, response);
+            }
+        } catch (TimeoutException | ExecutionException e) {
+            logger.debug("Repeat of idempotency key {} could not use the first execution: {}", key, e.toString());
+            writeInProgress(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeInProgress(response);
+        }
+    }
+
+    private void replay(StoredResponse stored, String requestHash, HttpServletResponse response) throws IOException {
+        if (!stored.requestHash().equals(requestHash)) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    properties.getHeader() + " was already used for a different request");
+            return;
+        }
+        replayed.incrementAndGet();
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.body() != null) {
+            response.setContentLength(stored.body().length);
+            response.getOutputStream().write(stored.body());
+        }
+    }
+
+    private void writeInProgress(HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        writeError(response, HttpStatus.CONFLICT, "A request with this " + properties.getHeader() + " is still in progress");
+    }
+
+    private static void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+
+    private boolean isExpired(StoredResponse stored) {
+        return System.currentTimeMillis() - stored.storedAt() > properties.getRetentionHours() * 3_600_000L;
+    }
+
+    /**
+     * Method, path, branch and body, so a key reused for a different request is detected.
+     */
+    private static String hash(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + " " + request.getRequestURI() + "\n").getBytes(StandardCharsets.UTF_8));
+            if (BranchContext.getSchema() != null) {
+                digest.update((BranchContext.getSchema() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Buffers the body so it can be hashed before the controller reads it.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * The body is already in memory, so it is all available at once: the listener is
+                 * told so right away rather than from the container's I/O thread.
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(encoding)));
+        }
+    }
+}
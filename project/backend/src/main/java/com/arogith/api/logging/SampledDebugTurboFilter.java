@@ -0,0 +1,61 @@
+package com.arogith.api.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets through at most {@code permitsPerSecond} DEBUG events per logger per second for loggers
+ * under {@code loggerPrefix} and drops the rest before any message formatting happens.
+ * Used by the prod profile in logback-spring.xml to keep a sample of controller/service debug output.
+ */
+public class SampledDebugTurboFilter extends TurboFilter {
+
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    private String loggerPrefix = "com.arogith.api";
+    private int permitsPerSecond = 5;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+        if (level != Level.DEBUG || !isStarted() || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        // isDebugEnabled() checks arrive without a format; answer them without using a permit
+        if (format == null) {
+            return FilterReply.NEUTRAL;
+        }
+        Window window = windows.computeIfAbsent(logger.getName(), name -> new Window());
+        return window.tryAcquire(System.currentTimeMillis() / 1000, permitsPerSecond)
+                ? FilterReply.NEUTRAL
+                : FilterReply.DENY;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public void setPermitsPerSecond(int permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    private static final class Window {
+        private final AtomicLong second = new AtomicLong();
+        private final AtomicInteger count = new AtomicInteger();
+
+        boolean tryAcquire(long now, int permits) {
+            long current = second.get();
+            if (current != now && second.compareAndSet(current, now)) {
+                count.set(0);
+            }
+            return count.incrementAndGet() <= permits;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.arogith.api.metrics;
+
+import com.arogith.api.analytics.AnalyticsEngine;
+import com.arogith.api.audit.AuditLog;
+import com.arogith.api.config.ReadWriteRoutingDataSource;
+import com.arogith.api.config.ReplicaLagMonitor;
+import com.arogith.api.filter.AdaptiveConcurrencyFilter;
+import com.arogith.api.filter.AdmissionControlFilter;
+import com.arogith.api.filter.IdempotencyFilter;
+import com.arogith.api.search.AutocompleteService;
+import com.arogith.api.search.VisitSearchService;
+import com.arogith.api.service.CacheInvalidationBus;
+import com.arogith.api.service.CacheInvalidationListener;
+import com.arogith.api.service.NursePresenceRegistry;
+import com.arogith.api.service.PatientDuplicateService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges for in-process components that are not covered by the Hikari and Hibernate binders.
+ */
+@Component
+@RequiredArgsConstructor
+public class ApplicationMetricsBinder implements MeterBinder {
+
+    private final NursePresenceRegistry presenceRegistry;
+    private final AuditLog auditLog;
+    private final ObjectProvider<AdmissionControlFilter> admissionControlFilter;
+    private final ObjectProvider<AdaptiveConcurrencyFilter> adaptiveConcurrencyFilter;
+    private final ObjectProvider<IdempotencyFilter> idempotencyFilter;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final ObjectProvider<CacheInvalidationListener> cacheInvalidationListener;
+    private final ObjectProvider<AnalyticsEngine> analyticsEngine;
+    private final ObjectProvider<PatientDuplicateService> patientDuplicateService;
+    private final ObjectProvider<VisitSearchService> visitSearchService;
+    private final ObjectProvider<AutocompleteService> autocompleteService;
+    private final ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+    private final ObjectProvider<ReadWriteRoutingDataSource> routingDataSource;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("arogith.nurses.active", presenceRegistry,
+                        r -> r.getPresencesByStatus(NursePresenceRegistry.STATUS_ACTIVE).size())
+                .description("Nurses currently Active in the presence registry")
+                .register(registry);
+
+        FunctionCounter.builder("arogith.audit.records", auditLog, AuditLog::getAppended)
+                .description("Audit records appended to the segment files")
+                .register(registry);
+        FunctionCounter.builder("arogith.audit.dropped", auditLog, AuditLog::getDropped)
+                .description("Audit records that could not be written")
+                .register(registry);
+
+        admissionControlFilter.ifAvailable(filter -> {
+            Gauge.builder("arogith.admission.in_flight", filter, AdmissionControlFilter::getInFlight)
+                    .description("Requests holding an admission permit")
+                    .register(registry);
+            Gauge.builder("arogith.admission.waiting", filter, AdmissionControlFilter::getWaiting)
+                    .description("Requests waiting for an admission permit")
+                    .register(registry);
+            FunctionCounter.builder("arogith.admission.rejected", filter, AdmissionControlFilter::getRejected)
+                    .description("Requests rejected with 503 by admission control")
+                    .register(registry);
+        });
+
+        adaptiveConcurrencyFilter.ifAvailable(filter -> {
+            Gauge.builder("arogith.limiter.limit", filter, AdaptiveConcurrencyFilter::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .register(registry);
+            Gauge.builder("arogith.limiter.in_flight", filter, AdaptiveConcurrencyFilter::getInFlight)
+                    .description("Requests inside the adaptive concurrency limit")
+                    .register(registry);
+            Gauge.builder("arogith.limiter.latency.ratio", filter, AdaptiveConcurrencyFilter::getLatencyRatio)
+                    .description("Recent request latency relative to each endpoint's baseline, 1.0 when unloaded")
+                    .register(registry);
+            for (AdaptiveConcurrencyFilter.Priority priority : AdaptiveConcurrencyFilter.Priority.values()) {
+                FunctionCounter.builder("arogith.limiter.rejected", filter, f -> f.getRejected(priority))
+                        .description("Requests answered 429 by the adaptive concurrency limiter")
+                        .tag("priority", priority.name().toLowerCase())
+                        .register(registry);
+            }
+        });
+
+        idempotencyFilter.ifAvailable(filter -> {
+            FunctionCounter.builder("arogith.idempotency.replayed", filter, IdempotencyFilter::getReplayed)
+                    .description("Repeated POSTs answered with the stored response")
+                    .register(registry);
+            FunctionCounter.builder("arogith.idempotency.coalesced", filter, IdempotencyFilter::getCoalesced)
+                    .description("Repeated POSTs that waited for the first execution of their key")
+                    .register(registry);
+        });
+
+        FunctionCounter.builder("arogith.cache.invalidation.published", cacheInvalidationBus, CacheInvalidationBus::getPublished)
+                .description("Cache invalidations sent to the other instances")
+                .register(registry);
+        cacheInvalidationListener.ifAvailable(listener -> {
+            FunctionCounter.builder("arogith.cache.invalidation.received", listener, CacheInvalidationListener::getReceived)
+                    .description("Cache invalidations received from the other instances")
+                    .register(registry);
+            FunctionCounter.builder("arogith.cache.invalidation.resyncs", listener, CacheInvalidationListener::getResyncs)
+                    .description("Full cache evictions after the listener (re)connected")
+                    .register(registry);
+            Gauge.builder("arogith.cache.invalidation.connected", listener, l -> l.isConnected() ? 1 : 0)
+                    .description("1 while the invalidation listener connection is up")
+                    .register(registry);
+        });
+
+        analyticsEngine.ifAvailable(engine -> {
+            Gauge.builder("arogith.analytics.snapshot.visits", engine, AnalyticsEngine::getSnapshotVisits)
+                    .description("Visit rows in the analytics snapshot")
+                    .register(registry);
+            Gauge.builder("arogith.analytics.snapshot.age", engine, AnalyticsEngine::getSnapshotAgeSeconds)
+                    .description("Seconds since the analytics snapshot was last refreshed, -1 while loading")
+                    .baseUnit("seconds")
+                    .register(registry);
+        });
+
+        patientDuplicateService.ifAvailable(service ->
+                Gauge.builder("arogith.duplicates.pending", service, PatientDuplicateService::getPending)
+                        .description("Probable duplicate patient pairs awaiting review after the last scan")
+                        .register(registry));
+
+        visitSearchService.ifAvailable(service ->
+                Gauge.builder("arogith.search.visits.indexed", service, VisitSearchService::getIndexedVisits)
+                        .description("Visits in the full-text search index")
+                        .register(registry));
+
+        autocompleteService.ifAvailable(service -> {
+            for (AutocompleteService.Catalog catalog : AutocompleteService.Catalog.values()) {
+                Gauge.builder("arogith.autocomplete.entries", service, s -> s.getEntries(catalog))
+                        .description("Entries in the autocomplete catalog")
+                        .tag("catalog", catalog.name().toLowerCase())
+                        .register(registry);
+            }
+        });
+
+        replicaLagMonitor.ifAvailable(monitor -> {
+            Gauge.builder("arogith.datasource.replica.lag", monitor, ReplicaLagMonitor::getLagMs)
+                    .description("Last measured replica lag in milliseconds, -1 if unreachable")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("arogith.datasource.replica.usable", monitor, m -> m.isReplicaUsable() ? 1 : 0)
+                    .description("1 while read-only transactions are routed to the replica")
+                    .register(registry);
+        });
+
+        routingDataSource.ifAvailable(router -> {
+            FunctionCounter.builder("arogith.datasource.routed", router, ReadWriteRoutingDataSource::getPrimaryConnections)
+                    .description("Connections handed out by the read/write router")
+                    .tag("target", ReadWriteRoutingDataSource.PRIMARY)
+                    .register(registry);
+            FunctionCounter.builder("arogith.datasource.routed", router, ReadWriteRoutingDataSource::getReplicaConnections)
+                    .description("Connections handed out by the read/write router")
+                    .tag("target", ReadWriteRoutingDataSource.REPLICA)
+                    .register(registry);
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package com.arogith.api.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Business counters for the OPD workflow. Per-minute rates come from the scraper,
+ * e.g. rate(arogith_patients_registered_total[1m]) * 60.
+ */
+@Component
+public class ClinicalMetrics {
+
+    private final Counter patientsRegistered;
+    private final Counter visitsCreated;
+    private final Counter labTestsOrdered;
+    private final Counter labResultsPosted;
+
+    public ClinicalMetrics(MeterRegistry meterRegistry) {
+        this.patientsRegistered = Counter.builder("arogith.patients.registered")
+                .description("Patients registered")
+                .register(meterRegistry);
+        this.visitsCreated = Counter.builder("arogith.visits.created")
+                .description("Visits created")
+                .register(meterRegistry);
+        this.labTestsOrdered = Counter.builder("arogith.labtests.ordered")
+                .description("Lab tests ordered")
+                .register(meterRegistry);
+        this.labResultsPosted = Counter.builder("arogith.labtests.results")
+                .description("Lab results posted")
+                .register(meterRegistry);
+    }
+
+    public void patientRegistered() {
+        patientsRegistered.increment();
+    }
+
+    public void visitCreated() {
+        visitsCreated.increment();
+    }
+
+    public void labTestsOrdered(int count) {
+        labTestsOrdered.increment(count);
+    }
+
+    public void labResultPosted() {
+        labResultsPosted.increment();
+    }
+}
@@ -0,0 +1,62 @@
+package com.arogith.api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Records a latency histogram per controller method, tagged with the response outcome
+ * so error rates can be derived from the same series.
+ */
+@Component
+@RequiredArgsConstructor
+public class ControllerMetricsInterceptor implements HandlerInterceptor {
+
+    public static final String METRIC_NAME = "arogith.controller.requests";
+
+    private static final String SAMPLE_ATTRIBUTE = ControllerMetricsInterceptor.class.getName() + ".sample";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            request.setAttribute(SAMPLE_ATTRIBUTE, Timer.start(meterRegistry));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object sample = request.getAttribute(SAMPLE_ATTRIBUTE);
+        if (!(sample instanceof Timer.Sample) || !(handler instanceof HandlerMethod handlerMethod)) {
+            return;
+        }
+        int status = response.getStatus();
+        ((Timer.Sample) sample).stop(Timer.builder(METRIC_NAME)
+                .description("Latency of API controller methods")
+                .tag("controller", handlerMethod.getBeanType().getSimpleName())
+                .tag("method", handlerMethod.getMethod().getName())
+                .tag("status", String.valueOf(status))
+                .tag("outcome", outcome(status, ex))
+                .tag("exception", ex != null ? ex.getClass().getSimpleName() : "none")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private String outcome(int status, Exception ex) {
+        if (ex != null || status >= 500) {
+            return "SERVER_ERROR";
+        }
+        if (status >= 400) {
+            return "CLIENT_ERROR";
+        }
+        return "SUCCESS";
+    }
+}
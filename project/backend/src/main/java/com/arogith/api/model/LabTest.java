@@ -1,5 +1,6 @@
 package com.arogith.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -14,8 +15,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class LabTest {
     
+    // Pooled sequence (INCREMENT BY 50 in schema.sql) so panel orders are inserted in one batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "labtest_id_seq")
+    @SequenceGenerator(name = "labtest_id_seq", sequenceName = "labtests_test_id_seq", allocationSize = 50)
     @Column(name = "test_id")
     private Long testId;
     
@@ -43,4 +46,19 @@ public class LabTest {
     
     @Column(name = "result_updated_at")
     private LocalDateTime resultUpdatedAt;
+    
+    @JsonIgnore
+    @Column(name = "version", nullable = false)
+    private long version;
+    
+    @JsonIgnore
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        version++;
+        updatedAt = LocalDateTime.now();
+    }
 } 
\ No newline at end of file
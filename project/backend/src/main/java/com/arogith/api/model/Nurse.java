@@ -1,8 +1,11 @@
 package com.arogith.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
@@ -12,6 +15,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Entity
 @Table(name = "nurse")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Nurse {
     
     @Id
@@ -36,6 +41,14 @@ public class Nurse {
     @Column(name = "status", length = 20)
     private String status;
 
+    @JsonIgnore
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @JsonIgnore
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
     public String getRole() {
         return role;
     }
@@ -51,4 +64,11 @@ public class Nurse {
     public void setStatus(String status) {
         this.status = status;
     }
-} 
\ No newline at end of file
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        version++;
+        updatedAt = LocalDateTime.now();
+    }
+}
\ No newline at end of file
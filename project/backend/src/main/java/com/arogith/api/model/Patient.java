@@ -1,12 +1,21 @@
 package com.arogith.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
+
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "patients")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -46,9 +55,30 @@ public class Patient {
     @Column(name = "total_visits", columnDefinition = "INT DEFAULT 0")
     private Integer totalVisits = 0;
     
+    // Filled in by the before_patient_insert trigger when not given, and read back after the
+    // insert so the cached patient has them
+    @Generated(event = EventType.INSERT, writable = true)
     @Column(name = "op_no", unique = true)
     private String opNo;
     
+    @Generated(event = EventType.INSERT, writable = true)
     @Column(name = "reg_no", unique = true)
     private String regNo;
+    
+    // Bumped on every change (UPDATEs issued with plain SQL bump them too); GET responses take
+    // their ETag and Last-Modified from these without loading the row
+    @JsonIgnore
+    @Column(name = "version", nullable = false)
+    private long version;
+    
+    @JsonIgnore
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        version++;
+        updatedAt = LocalDateTime.now();
+    }
 } 
\ No newline at end of file
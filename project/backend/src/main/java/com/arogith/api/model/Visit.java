@@ -1,5 +1,6 @@
 package com.arogith.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -15,8 +16,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Visit {
     
+    // Pooled sequence (INCREMENT BY 50 in schema.sql) so visit inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "visit_id_seq")
+    @SequenceGenerator(name = "visit_id_seq", sequenceName = "visits_visit_id_seq", allocationSize = 50)
     @Column(name = "visit_id")
     private Long visitId;
     
@@ -53,6 +56,14 @@ public class Visit {
     @Column(name = "patient_id")
     private String patientId;
     
+    @JsonIgnore
+    @Column(name = "version", nullable = false)
+    private long version;
+    
+    @JsonIgnore
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
     /**
      * Helper method to set patient ID from Patient entity.
      * This should be called when the patient entity is set.
@@ -74,4 +85,11 @@ public class Visit {
         }
         return this.patient != null ? this.patient.getPatientId() : null;
     }
-} 
\ No newline at end of file
+    
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        version++;
+        updatedAt = LocalDateTime.now();
+    }
+}
\ No newline at end of file
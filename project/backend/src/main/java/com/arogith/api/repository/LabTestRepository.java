@@ -1,9 +1,11 @@
 package com.arogith.api.repository;
 
 import com.arogith.api.model.LabTest;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,4 +13,8 @@ public interface LabTestRepository extends JpaRepository<LabTest, Long> {
     List<LabTest> findByPatientPatientId(String patientId);
     List<LabTest> findByVisitVisitId(Long visitId);
     List<LabTest> findByStatus(String status);
+
+    // Fetch the patients and visits in the same query rather than one select per test
+    @EntityGraph(attributePaths = {"patient", "visit", "visit.patient"})
+    List<LabTest> findByTestIdIn(Collection<Long> testIds);
 } 
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.arogith.api.repository;
 
 import com.arogith.api.model.Nurse;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,8 +12,12 @@ import java.util.Optional;
 
 @Repository
 public interface NurseRepository extends JpaRepository<Nurse, String> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Nurse> findByNurseId(String nurseId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsByNurseId(String nurseId);
+
     boolean existsByEmail(String email);
     List<Nurse> findByStatusIgnoreCase(String status);
 } 
\ No newline at end of file
@@ -1,13 +1,31 @@
 package com.arogith.api.repository;
 
 import com.arogith.api.model.Patient;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, String> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Patient> findByAadharNumber(String aadharNumber);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsByAadharNumber(String aadharNumber);
+
+    /**
+     * Bumps the row version of a patient whose row a database trigger changed (total_visits on a
+     * new visit), which Hibernate does not see.
+     */
+    @Modifying
+    @Query("UPDATE Patient p SET p.version = p.version + 1, p.updatedAt = :updatedAt WHERE p.patientId = :patientId")
+    int touch(@Param("patientId") String patientId, @Param("updatedAt") LocalDateTime updatedAt);
 } 
\ No newline at end of file
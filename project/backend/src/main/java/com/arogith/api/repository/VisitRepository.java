@@ -1,13 +1,19 @@
 package com.arogith.api.repository;
 
 import com.arogith.api.model.Visit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface VisitRepository extends JpaRepository<Visit, Long> {
     List<Visit> findByPatientPatientId(String patientId);
     List<Visit> findByPatientPatientIdOrderByVisitDateDesc(String patientId);
+
+    // Fetch the patients in the same query rather than one select per visit
+    @EntityGraph(attributePaths = "patient")
+    List<Visit> findByVisitIdIn(Collection<Long> visitIds);
 } 
\ No newline at end of file
@@ -0,0 +1,240 @@
+package com.arogith.api.search;
+
+import com.arogith.api.config.AutocompleteProperties;
+import com.arogith.api.config.BranchProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drug and diagnosis autocomplete for the prescription, complaint and symptom fields, so the same
+ * drug is not spelled five ways across visits.
+ *
+ * Each catalog is a file of entries (catalog/drugs.txt, catalog/diagnoses.txt by default) compiled
+ * into a CatalogSuggester, ranked by how many visits mention each entry. A background thread
+ * recompiles a catalog when its file changes and relearns the usage counts every
+ * usage-refresh-interval-ms; the new suggester replaces the old one in a single reference swap, so
+ * lookups never wait for a reload.
+ */
+@Service
+@ConditionalOnProperty(prefix = "arogith.autocomplete", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AutocompleteService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutocompleteService.class);
+
+    public enum Catalog {
+        DRUG("prescription"),
+        DIAGNOSIS("complaint", "symptoms");
+
+        private final String[] columns;
+
+        Catalog(String... columns) {
+            this.columns = columns;
+        }
+    }
+
+    private final AutocompleteProperties properties;
+    private final BranchProperties branchProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ResourceLoader resourceLoader;
+    private final ScheduledExecutorService reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autocomplete-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Written only on the reload thread (and once during start)
+    private final Map<Catalog, List<String>> entries = new EnumMap<>(Catalog.class);
+    private final Map<Catalog, Long> catalogModified = new EnumMap<>(Catalog.class);
+    private final Map<Catalog, Map<String, Long>> textCounts = new EnumMap<>(Catalog.class);
+    private volatile Map<Catalog, CatalogSuggester> suggesters = Map.of();
+
+    public AutocompleteService(AutocompleteProperties properties, BranchProperties branchProperties,
+                               JdbcTemplate jdbcTemplate, ResourceLoader resourceLoader) {
+        this.properties = properties;
+        this.branchProperties = branchProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.resourceLoader = resourceLoader;
+    }
+
+    /**
+     * Compiles the catalogs unranked, so autocomplete works from the first request; the usage
+     * counts follow from the background thread.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        for (Catalog catalog : Catalog.values()) {
+            readCatalog(catalog);
+            textCounts.put(catalog, Map.of());
+        }
+        publish();
+        reloader.scheduleWithFixedDelay(this::refreshUsage, 0, properties.getUsageRefreshIntervalMs(), TimeUnit.MILLISECONDS);
+        reloader.scheduleWithFixedDelay(this::checkCatalogs, properties.getCatalogCheckIntervalMs(),
+                properties.getCatalogCheckIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        reloader.shutdownNow();
+    }
+
+    /**
+     * Catalog entries with a word starting with the prefix, most used first.
+     */
+    public List<Map<String, Object>> suggest(Catalog catalog, String prefix, int limit) {
+        if (limit < 1 || limit > properties.getMaxSuggestions()) {
+            throw new IllegalArgumentException("limit must be between 1 and " + properties.getMaxSuggestions());
+        }
+        List<CatalogSuggester.Suggestion> suggestions;
+        try {
+            suggestions = suggesters.get(catalog).suggest(prefix, limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Map<String, Object>> result = new ArrayList<>(suggestions.size());
+        for (CatalogSuggester.Suggestion suggestion : suggestions) {
+            result.add(Map.of("name", suggestion.name(), "uses", suggestion.uses()));
+        }
+        return result;
+    }
+
+    /**
+     * Rereads both catalogs and relearns the usage counts now.
+     */
+    public Map<String, Object> reload() {
+        try {
+            return reloader.submit(() -> {
+                long start = System.nanoTime();
+                for (Catalog catalog : Catalog.values()) {
+                    readCatalog(catalog);
+                }
+                learnUsage();
+                publish();
+                Map<String, Object> result = new LinkedHashMap<>();
+                suggesters.forEach((catalog, suggester) ->
+                        result.put(catalog.name().toLowerCase(Locale.ROOT) + "Entries", suggester.size()));
+                result.put("reloadMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return result;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Autocomplete reload interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime
+                    ? runtime : new IllegalStateException("Autocomplete reload failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    public int getEntries(Catalog catalog) {
+        CatalogSuggester suggester = suggesters.get(catalog);
+        return suggester != null ? suggester.size() : 0;
+    }
+
+    void refreshUsage() {
+        try {
+            learnUsage();
+            publish();
+        } catch (Exception e) {
+            logger.error("Autocomplete usage refresh failed, will retry: {}", e.getMessage(), e);
+        }
+    }
+
+    void checkCatalogs() {
+        try {
+            boolean changed = false;
+            for (Catalog catalog : Catalog.values()) {
+                long modified = resource(catalog).lastModified();
+                if (modified != catalogModified.getOrDefault(catalog, 0L)) {
+                    readCatalog(catalog);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                publish();
+            }
+        } catch (Exception e) {
+            logger.error("Autocomplete catalog check failed, keeping the current catalogs: {}", e.getMessage(), e);
+        }
+    }
+
+    private void readCatalog(Catalog catalog) throws IOException {
+        Resource resource = resource(catalog);
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            reader.lines().forEach(lines::add);
+        }
+        entries.put(catalog, CatalogSuggester.parseCatalog(lines));
+        catalogModified.put(catalog, resource.lastModified());
+        logger.info("Autocomplete {} catalog read from {}: {} entries", catalog.name().toLowerCase(Locale.ROOT),
+                resource.getDescription(), entries.get(catalog).size());
+    }
+
+    /**
+     * Counts the distinct visit texts of every branch; the database does the grouping, so only a
+     * few thousand distinct values come back however many visits there are.
+     */
+    private void learnUsage() {
+        long start = System.nanoTime();
+        for (Catalog catalog : Catalog.values()) {
+            Map<String, Long> counts = new HashMap<>();
+            for (String schema : schemas()) {
+                List<String> selects = new ArrayList<>();
+                for (String column : catalog.columns) {
+                    selects.add("SELECT lower(" + column + ") AS text FROM " + schema + ".visits WHERE " + column + " IS NOT NULL");
+                }
+                jdbcTemplate.query("SELECT text, count(*) FROM (" + String.join(" UNION ALL ", selects) + ") t GROUP BY text",
+                        rs -> {
+                            counts.merge(rs.getString(1), rs.getLong(2), Long::sum);
+                        });
+            }
+            textCounts.put(catalog, counts);
+        }
+        logger.debug("Autocomplete usage learned in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void publish() throws IOException {
+        Map<Catalog, CatalogSuggester> compiled = new EnumMap<>(Catalog.class);
+        for (Catalog catalog : Catalog.values()) {
+            List<String> names = entries.get(catalog);
+            compiled.put(catalog, new CatalogSuggester(names, CatalogSuggester.countMentions(names, textCounts.get(catalog))));
+        }
+        suggesters = compiled;
+    }
+
+    private Resource resource(Catalog catalog) {
+        return resourceLoader.getResource(catalog == Catalog.DRUG
+                ? properties.getDrugCatalog() : properties.getDiagnosisCatalog());
+    }
+
+    private List<String> schemas() {
+        if (!branchProperties.isEnabled()) {
+            return List.of(branchProperties.getDefaultSchema());
+        }
+        return new ArrayList<>(new LinkedHashSet<>(branchProperties.getSchemas().values()));
+    }
+}
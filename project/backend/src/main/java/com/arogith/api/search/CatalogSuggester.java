@@ -0,0 +1,219 @@
+package com.arogith.api.search;
+
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.fst.WFSTCompletionLookup;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable prefix automaton over one catalog (drugs or diagnoses), ranked by how often each entry
+ * appears in past visits. Built once per reload and then only read, from any number of threads.
+ *
+ * Every entry is reachable from the start of each of its words ("clav" finds "Amoxicillin +
+ * Clavulanic acid 625mg"). Keys are normalised (lower case, "500 mg" as "500mg") and carry the
+ * entry's index after a separator, so entries sharing a word stay distinct in the FST.
+ */
+final class CatalogSuggester {
+
+    private static final char SEPARATOR = '\u001f';
+    private static final Pattern STRENGTH_SPACE = Pattern.compile("(\\d)\\s+(mg|mcg|g|ml|iu)\\b");
+    private static final Pattern NOT_WORD = Pattern.compile("[^a-z0-9+/.%]+");
+
+    record Suggestion(String name, long uses) {
+    }
+
+    private final List<String> names;
+    private final long[] uses;
+    private final WFSTCompletionLookup lookup;
+
+    CatalogSuggester(List<String> names, Map<String, Long> usesByName) throws IOException {
+        this.names = List.copyOf(names);
+        this.uses = new long[names.size()];
+        List<BytesRef> keys = new ArrayList<>();
+        List<Long> weights = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            uses[i] = usesByName.getOrDefault(names.get(i), 0L);
+            String normalized = normalize(names.get(i));
+            // A match on the first word ranks above the same entry matched further in
+            long weight = Math.min(Integer.MAX_VALUE / 2, uses[i]) * 2;
+            for (int start = 0; start < normalized.length(); start = normalized.indexOf(' ', start) + 1) {
+                keys.add(new BytesRef(normalized.substring(start) + SEPARATOR + i));
+                weights.add(start == 0 ? weight + 1 : weight);
+                if (normalized.indexOf(' ', start) < 0) {
+                    break;
+                }
+            }
+        }
+        this.lookup = new WFSTCompletionLookup(new ByteBuffersDirectory(), "catalog", false);
+        lookup.build(new ListInputIterator(keys, weights));
+    }
+
+    /**
+     * Up to limit distinct entries with a word starting with the prefix, most used first.
+     */
+    List<Suggestion> suggest(String prefix, int limit) throws IOException {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        // An entry can match at several of its words; ask for enough keys to fill the limit anyway
+        List<Lookup.LookupResult> results = lookup.lookup(key, false, limit * 4);
+        Set<Integer> seen = new LinkedHashSet<>();
+        for (Lookup.LookupResult result : results) {
+            String matched = result.key.toString();
+            seen.add(Integer.parseInt(matched.substring(matched.lastIndexOf(SEPARATOR) + 1)));
+            if (seen.size() == limit) {
+                break;
+            }
+        }
+        List<Suggestion> suggestions = new ArrayList<>(seen.size());
+        for (int i : seen) {
+            suggestions.add(new Suggestion(names.get(i), uses[i]));
+        }
+        return suggestions;
+    }
+
+    int size() {
+        return names.size();
+    }
+
+    /**
+     * How many visits mention each catalog entry, from visit texts counted by their distinct
+     * value. A text naming a drug without one of the strengths the catalog lists ("paracetamol",
+     * "paracetamol 1g") counts for every strength of it.
+     */
+    static Map<String, Long> countMentions(Collection<String> names, Map<String, Long> textCounts) {
+        Map<String, String> byNormalized = new HashMap<>();
+        Map<String, String> headOf = new HashMap<>();
+        Map<String, List<String>> byHead = new HashMap<>();
+        int maxWords = 1;
+        for (String name : names) {
+            String normalized = normalize(name);
+            byNormalized.put(normalized, name);
+            String[] words = normalized.split(" ");
+            maxWords = Math.max(maxWords, words.length);
+            int strength = 0;
+            while (strength < words.length && !words[strength].matches(".*\\d.*")) {
+                strength++;
+            }
+            if (strength > 0 && strength < words.length) {
+                String head = String.join(" ", List.of(words).subList(0, strength));
+                headOf.put(name, head);
+                byHead.computeIfAbsent(head, key -> new ArrayList<>()).add(name);
+            }
+        }
+
+        Map<String, Long> mentions = new HashMap<>();
+        for (Map.Entry<String, Long> text : textCounts.entrySet()) {
+            String[] words = normalize(text.getKey()).split(" ");
+            Set<String> found = new LinkedHashSet<>();
+            Set<String> heads = new LinkedHashSet<>();
+            for (int start = 0; start < words.length; start++) {
+                StringBuilder phrase = new StringBuilder();
+                for (int end = start; end < Math.min(words.length, start + maxWords); end++) {
+                    if (end > start) {
+                        phrase.append(' ');
+                    }
+                    phrase.append(words[end]);
+                    String name = byNormalized.get(phrase.toString());
+                    if (name != null) {
+                        found.add(name);
+                    }
+                    if (byHead.containsKey(phrase.toString())) {
+                        heads.add(phrase.toString());
+                    }
+                }
+            }
+            for (String name : found) {
+                heads.remove(headOf.get(name));
+            }
+            for (String head : heads) {
+                found.addAll(byHead.get(head));
+            }
+            for (String name : found) {
+                mentions.merge(name, text.getValue(), Long::sum);
+            }
+        }
+        return mentions;
+    }
+
+    static String normalize(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        lower = STRENGTH_SPACE.matcher(lower).replaceAll("$1$2");
+        return NOT_WORD.matcher(lower).replaceAll(" ").trim();
+    }
+
+    /**
+     * Distinct catalog entries in file order, without blank lines and # comments.
+     */
+    static List<String> parseCatalog(List<String> lines) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (String line : lines) {
+            String entry = line.strip();
+            if (!entry.isEmpty() && !entry.startsWith("#")) {
+                entries.putIfAbsent(normalize(entry), entry);
+            }
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    private static final class ListInputIterator implements InputIterator {
+
+        private final Iterator<BytesRef> keys;
+        private final Iterator<Long> weights;
+        private long weight;
+
+        ListInputIterator(List<BytesRef> keys, List<Long> weights) {
+            this.keys = keys.iterator();
+            this.weights = weights.iterator();
+        }
+
+        @Override
+        public BytesRef next() {
+            if (!keys.hasNext()) {
+                return null;
+            }
+            weight = weights.next();
+            return keys.next();
+        }
+
+        @Override
+        public long weight() {
+            return weight;
+        }
+
+        @Override
+        public BytesRef payload() {
+            return null;
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return false;
+        }
+
+        @Override
+        public Set<BytesRef> contexts() {
+            return null;
+        }
+
+        @Override
+        public boolean hasContexts() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.arogith.api.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lucene index of visit texts on local disk. One document per visit, keyed by branch schema and
+ * visit id; complaint, symptoms and prescription are analysed with English stemming ("coughing"
+ * finds "cough") and stored with offsets for highlighting.
+ *
+ * Writes become visible on the next refresh() (near-real-time, no commit needed) and durable on
+ * the next commit(), which also stores the caller's user data (the change log horizons).
+ */
+public final class VisitIndex implements Closeable {
+
+    public static final String COMPLAINT = "complaint";
+    public static final String SYMPTOMS = "symptoms";
+    public static final String PRESCRIPTION = "prescription";
+
+    private static final String[] TEXT_FIELDS = {COMPLAINT, SYMPTOMS, PRESCRIPTION};
+    private static final String KEY = "key";
+    private static final String SCHEMA = "schema";
+    private static final String BUILD = "build";
+    private static final String VISIT_ID = "visitId";
+    private static final String PATIENT_ID = "patientId";
+    private static final String VISIT_DATE = "visitDate";
+
+    private static final FieldType TEXT_WITH_OFFSETS = new FieldType();
+
+    static {
+        TEXT_WITH_OFFSETS.setTokenized(true);
+        TEXT_WITH_OFFSETS.setStored(true);
+        TEXT_WITH_OFFSETS.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        TEXT_WITH_OFFSETS.freeze();
+    }
+
+    public enum Order {
+        RELEVANCE, DATE
+    }
+
+    public record VisitDocument(String schema, long visitId, String patientId, LocalDateTime visitDate,
+                                String complaint, String symptoms, String prescription) {
+    }
+
+    /**
+     * highlights holds the matching passages of each text field that matched, with the terms in
+     * mark tags and the rest HTML-escaped.
+     */
+    public record Hit(long visitId, String patientId, LocalDateTime visitDate, float score, String complaint,
+                      String symptoms, String prescription, Map<String, String> highlights) {
+    }
+
+    public record Page(long total, List<Hit> hits) {
+    }
+
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final Map<String, Float> fieldWeights = Map.of(COMPLAINT, 1.5f, SYMPTOMS, 1.0f, PRESCRIPTION, 1.0f);
+
+    public VisitIndex(Path path) throws IOException {
+        this.directory = FSDirectory.open(path);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(64);
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    /**
+     * Adds or replaces the visit's document, tagged with the build it belongs to.
+     */
+    public void upsert(VisitDocument visit, String build) throws IOException {
+        Document document = new Document();
+        document.add(new StringField(KEY, key(visit.schema(), visit.visitId()), Field.Store.NO));
+        document.add(new StringField(SCHEMA, visit.schema(), Field.Store.NO));
+        document.add(new StringField(BUILD, build, Field.Store.NO));
+        document.add(new StoredField(VISIT_ID, visit.visitId()));
+        if (visit.patientId() != null) {
+            document.add(new StringField(PATIENT_ID, visit.patientId(), Field.Store.YES));
+        }
+        if (visit.visitDate() != null) {
+            long millis = visit.visitDate().toInstant(ZoneOffset.UTC).toEpochMilli();
+            document.add(new NumericDocValuesField(VISIT_DATE, millis));
+            document.add(new StoredField(VISIT_DATE, millis));
+        }
+        addText(document, COMPLAINT, visit.complaint());
+        addText(document, SYMPTOMS, visit.symptoms());
+        addText(document, PRESCRIPTION, visit.prescription());
+        writer.updateDocument(new Term(KEY, key(visit.schema(), visit.visitId())), document);
+    }
+
+    public void delete(String schema, long visitId) throws IOException {
+        writer.deleteDocuments(new Term(KEY, key(schema, visitId)));
+    }
+
+    /**
+     * Drops the schema's documents that a full rebuild did not write again, i.e. deleted visits.
+     */
+    public void deleteOtherBuilds(String schema, String build) throws IOException {
+        writer.deleteDocuments(new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(SCHEMA, schema)), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term(BUILD, build)), BooleanClause.Occur.MUST_NOT)
+                .build());
+    }
+
+    public void refresh() throws IOException {
+        searcherManager.maybeRefresh();
+    }
+
+    public void commit(Map<String, String> userData) throws IOException {
+        writer.setLiveCommitData(new HashMap<>(userData).entrySet());
+        writer.commit();
+    }
+
+    /**
+     * User data of the last commit, empty for a new index.
+     */
+    public Map<String, String> getCommittedUserData() {
+        Map<String, String> userData = new HashMap<>();
+        Iterable<Map.Entry<String, String>> committed = writer.getLiveCommitData();
+        if (committed != null) {
+            committed.forEach(entry -> userData.put(entry.getKey(), entry.getValue()));
+        }
+        return userData;
+    }
+
+    public int numDocs() {
+        return writer.getDocStats().numDocs;
+    }
+
+    /**
+     * One page of the schema's visits matching the query text. The text uses the simple query
+     * syntax: all words must match, "quoted phrase", -excluded, a | b, prefix*.
+     */
+    public Page search(String schema, String queryText, String patientId, Order order, int offset, int limit)
+            throws IOException {
+        Query text = parse(queryText);
+        BooleanQuery.Builder builder = new BooleanQuery.Builder()
+                .add(text, BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(SCHEMA, schema)), BooleanClause.Occur.FILTER);
+        if (patientId != null) {
+            builder.add(new TermQuery(new Term(PATIENT_ID, patientId)), BooleanClause.Occur.FILTER);
+        }
+        Query query = builder.build();
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            int wanted = offset + limit;
+            TopDocs top = order == Order.DATE
+                    ? searcher.search(query, wanted, new Sort(new SortField(VISIT_DATE, SortField.Type.LONG, true)), true)
+                    : searcher.search(query, wanted);
+            long total = top.totalHits.relation == TotalHits.Relation.EQUAL_TO
+                    ? top.totalHits.value : searcher.count(query);
+            ScoreDoc[] page = Arrays.copyOfRange(top.scoreDocs, Math.min(offset, top.scoreDocs.length),
+                    top.scoreDocs.length);
+            if (page.length == 0) {
+                return new Page(total, List.of());
+            }
+
+            int[] docIds = Arrays.stream(page).mapToInt(scoreDoc -> scoreDoc.doc).toArray();
+            int[] passages = new int[TEXT_FIELDS.length];
+            Arrays.fill(passages, 2);
+            Map<String, String[]> highlights = highlighter(searcher).highlightFields(TEXT_FIELDS, text, docIds, passages);
+
+            StoredFields storedFields = searcher.storedFields();
+            List<Hit> hits = new ArrayList<>(page.length);
+            for (int i = 0; i < page.length; i++) {
+                Document document = storedFields.document(page[i].doc);
+                Map<String, String> fragments = new LinkedHashMap<>();
+                for (String field : TEXT_FIELDS) {
+                    String fragment = highlights.get(field)[i];
+                    if (fragment != null) {
+                        fragments.put(field, fragment);
+                    }
+                }
+                Number millis = document.getField(VISIT_DATE) != null ? document.getField(VISIT_DATE).numericValue() : null;
+                hits.add(new Hit(
+                        document.getField(VISIT_ID).numericValue().longValue(),
+                        document.get(PATIENT_ID),
+                        millis != null ? LocalDateTime.ofEpochSecond(millis.longValue() / 1000,
+                                (int) (millis.longValue() % 1000) * 1_000_000, ZoneOffset.UTC) : null,
+                        Float.isNaN(page[i].score) ? 0 : page[i].score,
+                        document.get(COMPLAINT), document.get(SYMPTOMS), document.get(PRESCRIPTION),
+                        fragments));
+            }
+            return new Page(total, hits);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private Query parse(String queryText) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, fieldWeights);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = queryText == null || queryText.isBlank() ? new MatchAllDocsQuery() : parser.parse(queryText);
+        return query;
+    }
+
+    private UnifiedHighlighter highlighter(IndexSearcher searcher) {
+        return UnifiedHighlighter.builder(searcher, analyzer)
+                .withFormatter(new DefaultPassageFormatter("<mark>", "</mark>", " … ", true))
+                .withMaxNoHighlightPassages(0)
+                .build();
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null && !value.isBlank()) {
+            document.add(new Field(field, value, TEXT_WITH_OFFSETS));
+        }
+    }
+
+    private static String key(String schema, long visitId) {
+        return schema + "/" + visitId;
+    }
+
+    @Override
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+}
@@ -0,0 +1,183 @@
+package com.arogith.api.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Reads visits into a VisitIndex over connections of its own, like the analytics SnapshotLoader,
+ * so a rebuild streaming every visit never holds the request pool's connections.
+ *
+ * A rebuild first takes the branch's horizon (the xmin of a fresh snapshot), then splits the visit
+ * ids into ranges of rebuild-batch-size and reads and indexes them on several threads. Changes
+ * committed while it runs have change_log entries at or above the horizon and are replayed by the
+ * next applyChanges, which reloads each changed visit and is idempotent if an entry is seen twice.
+ */
+final class VisitIndexLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitIndexLoader.class);
+
+    private static final String HORIZON = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text";
+    private static final String VISIT_COLUMNS =
+            "SELECT visit_id, patient_id, visit_date, complaint, symptoms, prescription FROM ";
+    private static final int FETCH_SIZE = 1000;
+
+    private final DataSourceProperties dataSourceProperties;
+
+    VisitIndexLoader(DataSourceProperties dataSourceProperties) {
+        this.dataSourceProperties = dataSourceProperties;
+    }
+
+    /**
+     * Indexes every visit of the schema under the given build and returns the horizon to resume
+     * from. Documents of earlier builds are left for the caller to drop.
+     */
+    String rebuild(VisitIndex index, String schema, String build, int batchSize, ExecutorService workers)
+            throws SQLException {
+        String horizon;
+        List<long[]> ranges = new ArrayList<>();
+        try (Connection connection = open()) {
+            horizon = queryHorizon(connection);
+            // Id ranges of about batchSize visits each, whatever gaps deletions left in the sequence
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT min(visit_id), max(visit_id) FROM (SELECT visit_id, " +
+                            "(row_number() OVER (ORDER BY visit_id) - 1) / ? AS batch FROM " + schema + ".visits) t " +
+                            "GROUP BY batch ORDER BY 1")) {
+                statement.setInt(1, batchSize);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        ranges.add(new long[]{rs.getLong(1), rs.getLong(2)});
+                    }
+                }
+            }
+            connection.rollback();
+        }
+
+        List<CompletableFuture<Void>> batches = new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            batches.add(CompletableFuture.runAsync(() -> {
+                try (Connection connection = open();
+                     PreparedStatement statement = connection.prepareStatement(
+                             VISIT_COLUMNS + schema + ".visits WHERE visit_id BETWEEN ? AND ?")) {
+                    statement.setLong(1, range[0]);
+                    statement.setLong(2, range[1]);
+                    statement.setFetchSize(FETCH_SIZE);
+                    readVisits(statement, index, schema, build, null);
+                } catch (SQLException | IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, workers));
+        }
+        try {
+            CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            batches.forEach(batch -> batch.cancel(false));
+            if (e.getCause() instanceof SQLException sql) {
+                throw sql;
+            }
+            throw new SQLException("Indexing visits of " + schema + " failed", e.getCause());
+        }
+        return horizon;
+    }
+
+    /**
+     * Applies the visit changes logged since the last horizon of each schema; returns the number of
+     * visits reloaded or removed.
+     */
+    int applyChanges(VisitIndex index, Map<String, String> horizons, Map<String, String> builds) throws SQLException {
+        int reloaded = 0;
+        try (Connection connection = open()) {
+            for (Map.Entry<String, String> entry : horizons.entrySet()) {
+                String schema = entry.getKey();
+                try {
+                    String horizon = queryHorizon(connection);
+                    Set<Long> visitIds = new HashSet<>();
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "SELECT DISTINCT entity_id FROM " + schema + ".change_log " +
+                                    "WHERE tx_id >= ?::xid8 AND tx_id < ?::xid8 AND entity_type = 'visit'")) {
+                        statement.setString(1, entry.getValue());
+                        statement.setString(2, horizon);
+                        try (ResultSet rs = statement.executeQuery()) {
+                            while (rs.next()) {
+                                visitIds.add(Long.parseLong(rs.getString(1)));
+                            }
+                        }
+                    }
+
+                    if (!visitIds.isEmpty()) {
+                        try (PreparedStatement statement = connection.prepareStatement(
+                                VISIT_COLUMNS + schema + ".visits WHERE visit_id = ANY(?)")) {
+                            statement.setArray(1, connection.createArrayOf("bigint", visitIds.toArray()));
+                            statement.setFetchSize(FETCH_SIZE);
+                            Set<Long> found = new HashSet<>();
+                            readVisits(statement, index, schema, builds.get(schema), found);
+                            for (Long deleted : visitIds) {
+                                if (!found.contains(deleted)) {
+                                    index.delete(schema, deleted);
+                                }
+                            }
+                        }
+                    }
+                    reloaded += visitIds.size();
+                    entry.setValue(horizon);
+                } catch (IOException e) {
+                    throw new SQLException("Indexing visits of " + schema + " failed", e);
+                } finally {
+                    connection.rollback();
+                }
+            }
+        }
+        if (reloaded > 0) {
+            logger.debug("Visit index reloaded {} changed visits", reloaded);
+        }
+        return reloaded;
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+        connection.setAutoCommit(false);
+        connection.setReadOnly(true);
+        return connection;
+    }
+
+    private static String queryHorizon(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(HORIZON);
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static void readVisits(PreparedStatement statement, VisitIndex index, String schema, String build,
+                                   Set<Long> found) throws SQLException, IOException {
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                long visitId = rs.getLong(1);
+                Timestamp visitDate = rs.getTimestamp(3);
+                index.upsert(new VisitIndex.VisitDocument(schema, visitId, rs.getString(2),
+                        visitDate != null ? visitDate.toLocalDateTime() : null,
+                        rs.getString(4), rs.getString(5), rs.getString(6)), build);
+                if (found != null) {
+                    found.add(visitId);
+                }
+            }
+        }
+    }
+}
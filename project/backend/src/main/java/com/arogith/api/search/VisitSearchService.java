@@ -0,0 +1,304 @@
+package com.arogith.api.search;
+
+import com.arogith.api.audit.AuditAction;
+import com.arogith.api.audit.AuditEntity;
+import com.arogith.api.audit.AuditLog;
+import com.arogith.api.config.BranchContext;
+import com.arogith.api.config.BranchProperties;
+import com.arogith.api.config.SearchProperties;
+import com.arogith.api.model.Visit;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Full-text search over visit complaints, symptoms and prescriptions, from a Lucene index on local
+ * disk (VisitIndex) instead of ILIKE scans over visits.
+ *
+ * Visits written through VisitService on this instance are indexed right after their transaction
+ * commits and become searchable on the next refresh (refresh-interval-ms). Everything else (other
+ * instances, patient merges, direct SQL with a change_log entry) is picked up from the change log
+ * every catch-up-interval-ms, which also commits the index with each branch's horizon. A branch
+ * without a committed horizon (a new index, a new branch) is rebuilt from the database on start.
+ */
+@Service
+@ConditionalOnProperty(prefix = "arogith.search", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class VisitSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitSearchService.class);
+
+    private static final String HORIZON_KEY = "horizon.";
+    private static final String BUILD_KEY = "build.";
+
+    private final SearchProperties properties;
+    private final BranchProperties branchProperties;
+    private final AuditLog auditLog;
+    private final VisitIndexLoader loader;
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+            daemon("visit-search-refresh"));
+    // Catch-up and rebuilds run here one at a time; the horizons are only changed on this thread
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(
+            daemon("visit-search-maintenance"));
+    private final ExecutorService rebuildWorkers;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final Map<String, String> horizons = new ConcurrentHashMap<>();
+    private final Map<String, String> builds = new ConcurrentHashMap<>();
+    private VisitIndex index;
+
+    public VisitSearchService(SearchProperties properties, BranchProperties branchProperties, AuditLog auditLog,
+                              DataSourceProperties dataSourceProperties) {
+        this.properties = properties;
+        this.branchProperties = branchProperties;
+        this.auditLog = auditLog;
+        this.loader = new VisitIndexLoader(dataSourceProperties);
+        AtomicInteger workers = new AtomicInteger();
+        this.rebuildWorkers = Executors.newFixedThreadPool(Math.max(1, properties.getRebuildThreads()),
+                runnable -> daemon("visit-search-rebuild-" + workers.incrementAndGet()).newThread(runnable));
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path directory = Path.of(properties.getDirectory());
+        Files.createDirectories(directory);
+        index = new VisitIndex(directory);
+        index.getCommittedUserData().forEach((key, value) -> {
+            if (key.startsWith(HORIZON_KEY)) {
+                horizons.put(key.substring(HORIZON_KEY.length()), value);
+            } else if (key.startsWith(BUILD_KEY)) {
+                builds.put(key.substring(BUILD_KEY.length()), value);
+            }
+        });
+        logger.info("Visit search index opened at {} with {} documents", directory.toAbsolutePath(), index.numDocs());
+        refresher.scheduleWithFixedDelay(this::refresh, properties.getRefreshIntervalMs(),
+                properties.getRefreshIntervalMs(), TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(this::catchUp, 0, properties.getCatchUpIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        refresher.shutdownNow();
+        maintenance.shutdown();
+        if (!maintenance.awaitTermination(10, TimeUnit.SECONDS)) {
+            maintenance.shutdownNow();
+        }
+        rebuildWorkers.shutdownNow();
+        // Local writes after the last catch-up are replayed from the change log on the next start
+        index.close();
+    }
+
+    /**
+     * Indexes the visit once the current transaction commits; nothing happens on rollback.
+     */
+    public void indexAfterCommit(Visit visit) {
+        String schema = currentSchema();
+        VisitIndex.VisitDocument document = new VisitIndex.VisitDocument(schema, visit.getVisitId(),
+                visit.getPatientId(), visit.getVisitDate(), visit.getComplaint(), visit.getSymptoms(),
+                visit.getPrescription());
+        afterCommit(() -> {
+            String build = builds.get(schema);
+            // Before the branch's first build the rebuild will read the visit anyway
+            if (build != null) {
+                index.upsert(document, build);
+            }
+        });
+    }
+
+    public void removeAfterCommit(Long visitId) {
+        String schema = currentSchema();
+        afterCommit(() -> index.delete(schema, visitId));
+    }
+
+    /**
+     * One page of the current branch's visits matching the query, with highlighted passages.
+     */
+    public Map<String, Object> search(String query, String patientId, VisitIndex.Order order, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("q is required");
+        }
+        if (page < 0 || size < 1 || size > properties.getMaxPageSize()) {
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and " + properties.getMaxPageSize());
+        }
+        if ((long) (page + 1) * size > properties.getMaxResults()) {
+            throw new IllegalArgumentException("Results beyond the first " + properties.getMaxResults()
+                    + " are not available; refine the query");
+        }
+        String schema = currentSchema();
+        long start = System.nanoTime();
+        VisitIndex.Page result;
+        try {
+            result = index.search(schema, query, patientId, order, page * size, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        auditLog.record(AuditAction.LIST, AuditEntity.VISIT, null, patientId);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("query", query);
+        response.put("total", result.total());
+        response.put("page", page);
+        response.put("size", size);
+        response.put("hits", result.hits());
+        response.put("complete", horizons.containsKey(schema));
+        response.put("searchMs", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / 1000.0);
+        return response;
+    }
+
+    /**
+     * Rebuilds every branch from the database; one rebuild at a time. Searches keep answering from
+     * the old documents until each branch's rebuild has finished.
+     */
+    public Map<String, Object> rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("A visit index rebuild is already running");
+        }
+        try {
+            return maintenance.submit(() -> {
+                List<Map<String, Object>> branches = new ArrayList<>();
+                for (String schema : schemas()) {
+                    branches.add(rebuildSchema(schema));
+                }
+                commit();
+                index.refresh();
+                return Map.<String, Object>of("branches", branches, "documents", index.numDocs());
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Visit index rebuild interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime
+                    ? runtime : new IllegalStateException("Visit index rebuild failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    public int getIndexedVisits() {
+        return index != null ? index.numDocs() : 0;
+    }
+
+    void catchUp() {
+        try {
+            for (String schema : schemas()) {
+                if (!horizons.containsKey(schema)) {
+                    rebuildSchema(schema);
+                }
+            }
+            loader.applyChanges(index, horizons, builds);
+            commit();
+        } catch (Exception e) {
+            logger.error("Visit index catch-up failed, will retry: {}", e.getMessage(), e);
+        }
+    }
+
+    private Map<String, Object> rebuildSchema(String schema) throws Exception {
+        long start = System.nanoTime();
+        String build = Long.toString(System.currentTimeMillis(), 36);
+        String previous = builds.put(schema, build);
+        try {
+            String horizon = loader.rebuild(index, schema, build, properties.getRebuildBatchSize(), rebuildWorkers);
+            index.deleteOtherBuilds(schema, build);
+            horizons.put(schema, horizon);
+        } catch (Exception e) {
+            if (previous != null) {
+                builds.put(schema, previous);
+            } else {
+                builds.remove(schema);
+            }
+            throw e;
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Visit index of {} rebuilt in {} ms", schema, elapsed);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("schema", schema);
+        result.put("rebuildMs", elapsed);
+        return result;
+    }
+
+    private void commit() throws IOException {
+        Map<String, String> userData = new HashMap<>();
+        horizons.forEach((schema, horizon) -> userData.put(HORIZON_KEY + schema, horizon));
+        builds.forEach((schema, build) -> userData.put(BUILD_KEY + schema, build));
+        index.commit(userData);
+    }
+
+    private void refresh() {
+        try {
+            index.refresh();
+        } catch (Exception e) {
+            logger.warn("Visit index refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private void afterCommit(IndexUpdate update) {
+        Runnable guarded = () -> {
+            try {
+                update.apply();
+            } catch (Exception e) {
+                // The change log entry of the same transaction brings it in on the next catch-up
+                logger.warn("Could not index visit change, leaving it to catch-up: {}", e.getMessage());
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            guarded.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                guarded.run();
+            }
+        });
+    }
+
+    private String currentSchema() {
+        String schema = branchProperties.isEnabled() ? BranchContext.getSchema() : null;
+        return schema != null ? schema : branchProperties.getDefaultSchema();
+    }
+
+    private List<String> schemas() {
+        if (!branchProperties.isEnabled()) {
+            return List.of(branchProperties.getDefaultSchema());
+        }
+        return new ArrayList<>(new LinkedHashSet<>(branchProperties.getSchemas().values()));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @FunctionalInterface
+    private interface IndexUpdate {
+        void apply() throws IOException;
+    }
+}
@@ -0,0 +1,63 @@
+package com.arogith.api.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Result of an ?ids= lookup: what was found, in the order the ids were asked for, and the ids that
+ * matched nothing. Lets a worklist resolve all the patients, visits or lab tests it references with
+ * one request and one query instead of a GET per row.
+ */
+public record BatchLookup<K, T>(List<T> items, List<K> missing) {
+
+    /**
+     * The distinct ids of a comma-separated ids parameter, in their original order.
+     *
+     * @throws IllegalArgumentException if there are none, more than maxIds, or one does not parse
+     */
+    public static <K> List<K> parseIds(String ids, Function<String, K> parser, int maxIds) {
+        Set<K> parsed = new LinkedHashSet<>();
+        for (String id : ids.split(",")) {
+            String trimmed = id.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            try {
+                parsed.add(parser.apply(trimmed));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid id '" + trimmed + "'");
+            }
+            if (parsed.size() > maxIds) {
+                throw new IllegalArgumentException("At most " + maxIds + " ids can be looked up at once");
+            }
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("ids must name at least one id");
+        }
+        return new ArrayList<>(parsed);
+    }
+
+    static <K, T> BatchLookup<K, T> inRequestOrder(List<K> ids, Collection<T> found, Function<T, K> idOf) {
+        Map<K, T> byId = new HashMap<>(found.size() * 2);
+        for (T item : found) {
+            byId.put(idOf.apply(item), item);
+        }
+        List<T> items = new ArrayList<>(found.size());
+        List<K> missing = new ArrayList<>();
+        for (K id : ids) {
+            T item = byId.get(id);
+            if (item != null) {
+                items.add(item);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new BatchLookup<>(items, missing);
+    }
+}
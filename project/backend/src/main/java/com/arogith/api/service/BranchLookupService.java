@@ -0,0 +1,98 @@
+package com.arogith.api.service;
+
+import com.arogith.api.audit.AuditAction;
+import com.arogith.api.audit.AuditEntity;
+import com.arogith.api.audit.AuditLog;
+import com.arogith.api.config.BranchContext;
+import com.arogith.api.config.BranchProperties;
+import com.arogith.api.model.Patient;
+import com.arogith.api.repository.PatientRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lookups that have to see every branch. Each branch is queried on its own worker thread, so the
+ * total time is that of the slowest branch rather than the sum; a branch that does not answer
+ * within the timeout is reported as unavailable instead of failing the whole lookup.
+ */
+@Service
+public class BranchLookupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BranchLookupService.class);
+
+    private final PatientRepository patientRepository;
+    private final BranchProperties properties;
+    private final AuditLog auditLog;
+    private final ExecutorService executor;
+
+    public BranchLookupService(PatientRepository patientRepository, BranchProperties properties, AuditLog auditLog) {
+        this.patientRepository = patientRepository;
+        this.properties = properties;
+        this.auditLog = auditLog;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, properties.getLookupThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "branch-lookup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Patients registered with this Aadhar number in any branch, keyed by branch id.
+     */
+    public Map<String, Object> findByAadharInAllBranches(String aadharNumber) {
+        Map<String, CompletableFuture<Optional<Patient>>> lookups = new LinkedHashMap<>();
+        properties.getSchemas().forEach((branch, schema) -> lookups.put(branch, CompletableFuture.supplyAsync(
+                () -> BranchContext.callInSchema(schema, () -> patientRepository.findByAadharNumber(aadharNumber)),
+                executor)));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getLookupTimeoutMs());
+        List<Map<String, Object>> matches = new ArrayList<>();
+        List<String> unavailable = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Optional<Patient>>> lookup : lookups.entrySet()) {
+            String branch = lookup.getKey();
+            try {
+                Optional<Patient> patient = lookup.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                patient.ifPresent(found -> {
+                    auditLog.record(AuditAction.READ, AuditEntity.PATIENT, found.getPatientId(), found.getPatientId());
+                    Map<String, Object> match = new LinkedHashMap<>();
+                    match.put("branch", branch);
+                    match.put("patient", found);
+                    matches.add(match);
+                });
+            } catch (TimeoutException | ExecutionException e) {
+                logger.warn("Aadhar lookup in branch {} failed: {}", branch, e.toString());
+                lookup.getValue().cancel(true);
+                unavailable.add(branch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                unavailable.add(branch);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("matches", matches);
+        result.put("unavailableBranches", unavailable);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
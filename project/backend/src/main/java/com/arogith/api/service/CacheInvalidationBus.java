@@ -0,0 +1,77 @@
+package com.arogith.api.service;
+
+import com.arogith.api.config.BranchContext;
+import com.arogith.api.config.CacheInvalidationProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tells the other API instances which cached entities changed. Notifications go out with
+ * pg_notify on the writing transaction's connection, so Postgres delivers them only if and when
+ * that transaction commits (right away outside a transaction). CacheInvalidationListener evicts
+ * on the receiving side; the sending instance's own cache is already current. Nurse heartbeats go
+ * the same way, so every instance's presence registry knows who is still sending them.
+ *
+ * Payload: instanceId|entity|schema|id, schema "-" without branch routing.
+ */
+@Service
+@RequiredArgsConstructor
+public class CacheInvalidationBus {
+
+    public static final String PATIENT = "patient";
+    public static final String NURSE = "nurse";
+    public static final String PRESENCE = "presence";
+
+    static final String NO_SCHEMA = "-";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidationProperties properties;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicLong published = new AtomicLong();
+
+    public void patientChanged(String patientId) {
+        if (properties.isEnabled()) {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, properties.getChannel(), payload(PATIENT, patientId));
+            published.incrementAndGet();
+        }
+    }
+
+    public void nursesChanged(Collection<String> nurseIds) {
+        publishAll(NURSE, nurseIds);
+    }
+
+    /**
+     * Nurses whose heartbeat reached this instance.
+     */
+    public void heartbeatsReceived(Collection<String> nurseIds) {
+        publishAll(PRESENCE, nurseIds);
+    }
+
+    private void publishAll(String entity, Collection<String> ids) {
+        if (!properties.isEnabled() || ids.isEmpty()) {
+            return;
+        }
+        String[] payloads = ids.stream().map(id -> payload(entity, id)).toArray(String[]::new);
+        jdbcTemplate.query("SELECT pg_notify(?, p) FROM unnest(?::text[]) AS p", rs -> null,
+                properties.getChannel(), payloads);
+        published.addAndGet(payloads.length);
+    }
+
+    private String payload(String entity, String id) {
+        String schema = BranchContext.getSchema();
+        return instanceId + "|" + entity + "|" + (schema != null ? schema : NO_SCHEMA) + "|" + id;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+}
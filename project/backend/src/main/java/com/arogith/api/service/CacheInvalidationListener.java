@@ -0,0 +1,187 @@
+package com.arogith.api.service;
+
+import com.arogith.api.config.CacheInvalidationProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Listens for CacheInvalidationBus notifications from the other instances on a dedicated
+ * connection outside the Hikari pool (LISTEN holds its session for good) and evicts the named
+ * entries locally. Nurse changes and heartbeats also go to the presence registry.
+ *
+ * Notifications sent while the connection is down are lost, so every (re)connect starts with a
+ * resync: once LISTEN is active again the whole patient and nurse cache is dropped and the
+ * presence registry reloaded, and anything cached afterwards is either current or will be
+ * followed by a notification.
+ */
+@Component
+@ConditionalOnProperty(prefix = "arogith.cache.invalidation", name = "enabled", havingValue = "true")
+public class CacheInvalidationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationListener.class);
+
+    // A quiet socket does not notice a dead server; a query now and then does
+    private static final long LIVENESS_CHECK_MS = 30_000;
+
+    private final CacheInvalidationProperties properties;
+    private final DataSourceProperties dataSourceProperties;
+    private final EntityCacheService entityCacheService;
+    private final NursePresenceRegistry presenceRegistry;
+    private final String instanceId;
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile Connection connection;
+    private Thread thread;
+
+    public CacheInvalidationListener(CacheInvalidationProperties properties, DataSourceProperties dataSourceProperties,
+                                     EntityCacheService entityCacheService, NursePresenceRegistry presenceRegistry,
+                                     CacheInvalidationBus bus) {
+        this.properties = properties;
+        this.dataSourceProperties = dataSourceProperties;
+        this.entityCacheService = entityCacheService;
+        this.presenceRegistry = presenceRegistry;
+        this.instanceId = bus.getInstanceId();
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "cache-invalidation-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        closeQuietly(connection);
+        thread.join(properties.getPollTimeoutMs() * 2L);
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection listenerConnection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                connection = listenerConnection;
+                try (Statement statement = listenerConnection.createStatement()) {
+                    statement.execute("LISTEN " + properties.getChannel());
+                }
+                connected = true;
+                resync();
+                logger.info("Listening for cache invalidations on channel {}", properties.getChannel());
+
+                PGConnection pgConnection = listenerConnection.unwrap(PGConnection.class);
+                long lastActivity = System.currentTimeMillis();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(properties.getPollTimeoutMs());
+                    if (notifications != null && notifications.length > 0) {
+                        handle(notifications);
+                        lastActivity = System.currentTimeMillis();
+                    } else if (System.currentTimeMillis() - lastActivity > LIVENESS_CHECK_MS) {
+                        try (Statement statement = listenerConnection.createStatement()) {
+                            statement.execute("SELECT 1");
+                        }
+                        lastActivity = System.currentTimeMillis();
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    logger.warn("Cache invalidation listener lost its connection, reconnecting in {} ms: {}",
+                            properties.getReconnectDelayMs(), e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                logger.error("Cache invalidation listener failed, reconnecting: {}", e.getMessage(), e);
+            } finally {
+                connected = false;
+                connection = null;
+            }
+            sleepBeforeReconnect();
+        }
+    }
+
+    private void handle(PGNotification[] notifications) {
+        List<String> nurseIds = new ArrayList<>();
+        List<String> heardFrom = new ArrayList<>();
+        for (PGNotification notification : notifications) {
+            String[] parts = notification.getParameter().split("\\|", 4);
+            if (parts.length != 4 || parts[0].equals(instanceId)) {
+                continue;
+            }
+            received.incrementAndGet();
+            String schema = CacheInvalidationBus.NO_SCHEMA.equals(parts[2]) ? null : parts[2];
+            switch (parts[1]) {
+                case CacheInvalidationBus.PATIENT -> entityCacheService.evictRemotePatient(schema, parts[3]);
+                case CacheInvalidationBus.NURSE -> nurseIds.add(parts[3]);
+                case CacheInvalidationBus.PRESENCE -> heardFrom.add(parts[3]);
+                default -> logger.debug("Ignoring cache invalidation for {}", parts[1]);
+            }
+        }
+        if (!heardFrom.isEmpty()) {
+            presenceRegistry.remoteHeartbeats(heardFrom);
+        }
+        if (!nurseIds.isEmpty()) {
+            entityCacheService.evictRemoteNurses(nurseIds);
+            presenceRegistry.reload(nurseIds);
+        }
+    }
+
+    private void resync() {
+        resyncs.incrementAndGet();
+        entityCacheService.evictAll();
+        presenceRegistry.reloadAll();
+    }
+
+    private void sleepBeforeReconnect() {
+        if (!running) {
+            return;
+        }
+        try {
+            Thread.sleep(properties.getReconnectDelayMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Closing cache invalidation connection failed: {}", e.getMessage());
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getResyncs() {
+        return resyncs.get();
+    }
+}
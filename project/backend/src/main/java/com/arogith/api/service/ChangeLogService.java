@@ -0,0 +1,198 @@
+package com.arogith.api.service;
+
+import com.arogith.api.dto.SyncResponse;
+import com.arogith.api.model.LabTest;
+import com.arogith.api.model.Patient;
+import com.arogith.api.model.Visit;
+import com.arogith.api.repository.LabTestRepository;
+import com.arogith.api.repository.PatientRepository;
+import com.arogith.api.repository.VisitRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Append-only log of patient, visit and lab test changes that tablets replay to catch up after
+ * being offline, instead of downloading the full lists again.
+ *
+ * Each row carries the id of the transaction that wrote it. A sync token is a position
+ * (transaction id, change id) in that order, and a sync only returns rows of transactions older
+ * than the oldest one still running, so a slow transaction can never commit "behind" a token
+ * that was already handed out.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChangeLogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogService.class);
+
+    public static final String PATIENT = "patient";
+    public static final String VISIT = "visit";
+    public static final String LAB_TEST = "labtest";
+
+    private static final String UPSERT = "UPSERT";
+    private static final String DELETE = "DELETE";
+
+    private static final String INSERT_ENTRY =
+            "INSERT INTO change_log (entity_type, entity_id, operation) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PatientRepository patientRepository;
+    private final VisitRepository visitRepository;
+    private final LabTestRepository labTestRepository;
+
+    /**
+     * Record a create or update. Runs in the caller's transaction so the entry commits or rolls back with the change.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpsert(String entityType, Object entityId) {
+        record(entityType, entityId, UPSERT);
+    }
+
+    /**
+     * Record several creates or updates of one entity type as a single JDBC batch.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpserts(String entityType, Collection<?> entityIds) {
+        List<Object[]> args = new ArrayList<>(entityIds.size());
+        for (Object entityId : entityIds) {
+            args.add(new Object[]{entityType, String.valueOf(entityId), UPSERT});
+        }
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, args);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDelete(String entityType, Object entityId) {
+        record(entityType, entityId, DELETE);
+    }
+
+    /**
+     * Changes after the given token, at most limit log entries per page. Several entries for the
+     * same row within a page collapse into its current state (or a delete). Without a token the
+     * client only gets the current position and has to download the full lists once.
+     * Runs in a transaction so the queries use the branch connection Hibernate holds.
+     */
+    @Transactional(readOnly = true)
+    public SyncResponse getChanges(String since, int limit) {
+        // Every transaction below the horizon has finished, so its entries can no longer appear later
+        long horizon = Long.parseLong(jdbcTemplate.queryForObject(
+                "SELECT pg_snapshot_xmin(pg_current_snapshot())::text", String.class));
+        if (since == null || since.isBlank()) {
+            return SyncResponse.builder()
+                    .token(SyncToken.of(horizon, 0).toString())
+                    .reset(true)
+                    .build();
+        }
+        SyncToken token = SyncToken.parse(since);
+
+        List<Entry> entries = jdbcTemplate.query(
+                "SELECT change_id, tx_id::text AS tx_id, entity_type, entity_id, operation FROM change_log " +
+                        "WHERE (tx_id, change_id) > (?::xid8, ?) AND tx_id < ?::xid8 " +
+                        "ORDER BY tx_id, change_id LIMIT ?",
+                (rs, rowNum) -> new Entry(rs.getLong("change_id"), Long.parseLong(rs.getString("tx_id")),
+                        rs.getString("entity_type"), rs.getString("entity_id"), rs.getString("operation")),
+                String.valueOf(token.txId()), token.changeId(), String.valueOf(horizon), limit);
+
+        boolean hasMore = entries.size() == limit;
+        SyncToken next = hasMore
+                ? SyncToken.of(entries.get(entries.size() - 1).txId(), entries.get(entries.size() - 1).changeId())
+                : SyncToken.of(Math.max(horizon, token.txId()), 0);
+
+        // Last operation per row wins
+        Map<String, Entry> latest = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            String key = entry.entityType() + ":" + entry.entityId();
+            latest.remove(key);
+            latest.put(key, entry);
+        }
+
+        Set<String> patientIds = new HashSet<>();
+        Set<Long> visitIds = new HashSet<>();
+        Set<Long> labTestIds = new HashSet<>();
+        Map<String, List<String>> deleted = new LinkedHashMap<>();
+        for (Entry entry : latest.values()) {
+            if (DELETE.equals(entry.operation())) {
+                deleted.computeIfAbsent(entry.entityType(), type -> new ArrayList<>()).add(entry.entityId());
+                continue;
+            }
+            switch (entry.entityType()) {
+                case PATIENT -> patientIds.add(entry.entityId());
+                case VISIT -> visitIds.add(Long.valueOf(entry.entityId()));
+                case LAB_TEST -> labTestIds.add(Long.valueOf(entry.entityId()));
+                default -> logger.warn("Unknown entity type in change log: {}", entry.entityType());
+            }
+        }
+
+        List<Patient> patients = patientIds.isEmpty() ? List.of() : patientRepository.findAllById(patientIds);
+        List<Visit> visits = visitIds.isEmpty() ? List.of() : visitRepository.findAllById(visitIds);
+        List<LabTest> labTests = labTestIds.isEmpty() ? List.of() : labTestRepository.findAllById(labTestIds);
+
+        // Rows logged as upserted that no longer exist have been deleted since
+        patients.forEach(patient -> patientIds.remove(patient.getPatientId()));
+        visits.forEach(visit -> visitIds.remove(visit.getVisitId()));
+        labTests.forEach(labTest -> labTestIds.remove(labTest.getTestId()));
+        patientIds.forEach(id -> deleted.computeIfAbsent(PATIENT, type -> new ArrayList<>()).add(id));
+        visitIds.forEach(id -> deleted.computeIfAbsent(VISIT, type -> new ArrayList<>()).add(String.valueOf(id)));
+        labTestIds.forEach(id -> deleted.computeIfAbsent(LAB_TEST, type -> new ArrayList<>()).add(String.valueOf(id)));
+
+        return SyncResponse.builder()
+                .token(next.toString())
+                .hasMore(hasMore)
+                .patients(patients)
+                .visits(visits)
+                .labTests(labTests)
+                .deleted(deleted)
+                .build();
+    }
+
+    private void record(String entityType, Object entityId, String operation) {
+        jdbcTemplate.update(INSERT_ENTRY, entityType, String.valueOf(entityId), operation);
+    }
+
+    private record Entry(long changeId, long txId, String entityType, String entityId, String operation) {
+    }
+
+    /**
+     * Opaque to clients: "txId.changeId" of the last entry delivered, or "horizon.0" once caught up.
+     */
+    private record SyncToken(long txId, long changeId) {
+
+        static SyncToken of(long txId, long changeId) {
+            return new SyncToken(txId, changeId);
+        }
+
+        static SyncToken parse(String value) {
+            int dot = value.indexOf('.');
+            try {
+                if (dot > 0) {
+                    long txId = Long.parseLong(value.substring(0, dot));
+                    long changeId = Long.parseLong(value.substring(dot + 1));
+                    // Postgres would read a negative transaction id as one far ahead, silently skipping everything
+                    if (txId >= 0 && changeId >= 0) {
+                        return new SyncToken(txId, changeId);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+            throw new IllegalArgumentException("Invalid sync token: " + value);
+        }
+
+        @Override
+        public String toString() {
+            return txId + "." + changeId;
+        }
+    }
+}
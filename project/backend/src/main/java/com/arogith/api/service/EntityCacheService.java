@@ -0,0 +1,189 @@
+package com.arogith.api.service;
+
+import com.arogith.api.config.BranchContext;
+import com.arogith.api.config.BranchProperties;
+import com.arogith.api.model.Nurse;
+import com.arogith.api.model.Patient;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Evicts second-level cache entries for rows that are changed outside Hibernate
+ * (database triggers, batched JDBC updates) and exposes the cache statistics.
+ * Changes made through the repositories keep the cache up to date on their own.
+ * With branch schemas the cache keys carry the schema, so evictions name the branch explicitly.
+ */
+@Service
+@RequiredArgsConstructor
+public class EntityCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityCacheService.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final BranchProperties branchProperties;
+
+    /**
+     * Evicts the patient of the current branch.
+     */
+    public void evictPatient(String patientId) {
+        if (!branchProperties.isEnabled()) {
+            entityManagerFactory.getCache().evict(Patient.class, patientId);
+            return;
+        }
+        String schema = BranchContext.getSchema();
+        evictForBranch(Patient.class, patientId, schema != null ? schema : branchProperties.getDefaultSchema());
+    }
+
+    /**
+     * A patient changed by another instance (see CacheInvalidationListener). Cached query results
+     * over patients are invalidated too, the local update timestamps never saw that write.
+     */
+    public void evictRemotePatient(String schema, String patientId) {
+        if (!branchProperties.isEnabled()) {
+            entityManagerFactory.getCache().evict(Patient.class, patientId);
+        } else {
+            evictForBranch(Patient.class, patientId, schema != null ? schema : branchProperties.getDefaultSchema());
+        }
+        invalidateQueryResults("patients");
+    }
+
+    public void evictRemoteNurses(Collection<String> nurseIds) {
+        evictNurses(nurseIds);
+        invalidateQueryResults("nurse");
+    }
+
+    /**
+     * Drops every cached patient, nurse and query result, for when changes may have been missed.
+     */
+    public void evictAll() {
+        entityManagerFactory.getCache().evict(Patient.class);
+        entityManagerFactory.getCache().evict(Nurse.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        logger.info("Evicted all cached patients, nurses and query results");
+    }
+
+    /**
+     * Evict a patient once the current transaction commits, so a concurrent read
+     * cannot put the pre-commit row back into the cache.
+     */
+    public void evictPatientAfterCommit(String patientId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictPatient(patientId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictPatient(patientId);
+            }
+        });
+    }
+
+    /**
+     * For patient rows written with plain SQL: evicts them and the cached query results over
+     * patients once the transaction commits.
+     */
+    public void evictPatientsAfterCommit(Collection<String> patientIds) {
+        Runnable eviction = () -> {
+            patientIds.forEach(this::evictPatient);
+            invalidateQueryResults("patients");
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+
+    public void evictNurses(Collection<String> nurseIds) {
+        for (String nurseId : nurseIds) {
+            if (!branchProperties.isEnabled()) {
+                entityManagerFactory.getCache().evict(Nurse.class, nurseId);
+                continue;
+            }
+            // Nurses are shared, but every branch caches its own copy
+            for (String schema : new LinkedHashSet<>(branchProperties.getSchemas().values())) {
+                evictForBranch(Nurse.class, nurseId, schema);
+            }
+        }
+        logger.debug("Evicted {} nurses from the second-level cache", nurseIds.size());
+    }
+
+    /**
+     * Cache.evict(Class, Object) builds a key without tenant, which matches nothing in multi-tenant mode.
+     */
+    private void evictForBranch(Class<?> entityClass, Object id, String schema) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(entityClass);
+        EntityDataAccess cacheAccess = persister.getCacheAccessStrategy();
+        if (cacheAccess != null) {
+            cacheAccess.evict(cacheAccess.generateCacheKey(id, persister, sessionFactory, schema));
+        }
+    }
+
+    private void invalidateQueryResults(String table) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            sessionFactory.getCache().getTimestampsCache()
+                    .invalidate(new String[]{table}, (SharedSessionContractImplementor) session);
+        }
+    }
+
+    /**
+     * Hit/miss counts for the cached regions next to the statement counts,
+     * to show how much database work the cache absorbs.
+     */
+    public Map<String, Object> getStatistics() {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statisticsEnabled", stats.isStatisticsEnabled());
+        result.put("secondLevelCacheHits", stats.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMisses", stats.getSecondLevelCacheMissCount());
+        result.put("secondLevelCachePuts", stats.getSecondLevelCachePutCount());
+        result.put("queryCacheHits", stats.getQueryCacheHitCount());
+        result.put("queryCacheMisses", stats.getQueryCacheMissCount());
+        result.put("queryCachePuts", stats.getQueryCachePutCount());
+        result.put("queryExecutions", stats.getQueryExecutionCount());
+        result.put("entityLoads", stats.getEntityLoadCount());
+        result.put("preparedStatements", stats.getPrepareStatementCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : stats.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = stats.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Object> regionStats = new LinkedHashMap<>();
+            regionStats.put("hits", region.getHitCount());
+            regionStats.put("misses", region.getMissCount());
+            regionStats.put("puts", region.getPutCount());
+            regions.put(regionName, regionStats);
+        }
+        result.put("regions", regions);
+        return result;
+    }
+}
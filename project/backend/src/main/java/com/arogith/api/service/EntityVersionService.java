@@ -0,0 +1,129 @@
+package com.arogith.api.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validators for conditional GETs, from the version and updated_at columns of the rows a response
+ * is built from. One aggregate query reads only those columns, so a client revalidating an
+ * unchanged patient or list gets its 304 without the entities being loaded or serialized.
+ *
+ * A response covers the matching rows plus the many-to-one rows serialized inside them (a lab
+ * test's patient and visit, and the visit's patient); with ?fields= only the associations the
+ * fields name. Rows are counted too, so deleting one changes the validator although it leaves no
+ * version behind.
+ */
+@Service
+public class EntityVersionService {
+
+    private static final String VERSION = "version";
+    private static final String UPDATED_AT = "updatedAt";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Matching rows, the sum of their versions (and those of their associations) and the latest
+     * change among them, null if there are no rows.
+     */
+    public record EntityVersion(long rows, long versionSum, LocalDateTime lastModified) {
+
+        public String etag() {
+            long modified = lastModified != null ? lastModifiedMillis() : 0;
+            return rows + "." + versionSum + "." + Long.toHexString(modified);
+        }
+
+        public long lastModifiedMillis() {
+            return lastModified != null ? lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+        }
+    }
+
+    /**
+     * The version of the rows of type matching where (as in SparseFieldsetService.select), for the
+     * full representation if fields is null.
+     */
+    @Transactional(readOnly = true)
+    public EntityVersion versionOf(Class<?> type, Map<String, Object> where, String fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(type);
+        List<From<?, ?>> sources = new ArrayList<>(List.of(root));
+        // The full form nests one level further (a lab test's visit with its patient)
+        joinVersioned(root, entityManager.getMetamodel().entity(type), fields == null ? 2 : 1,
+                fields == null ? null : associationsNamed(fields), sources);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(cb.count(root));
+        for (From<?, ?> source : sources) {
+            selections.add(cb.sum(cb.coalesce(source.<Long>get(VERSION), 0L)));
+            selections.add(cb.greatest(source.<LocalDateTime>get(UPDATED_AT)));
+        }
+        query.multiselect(selections);
+        query.where(SparseFieldsetService.predicates(cb, root, where));
+
+        Tuple result = entityManager.createQuery(query).getSingleResult();
+        long versionSum = 0;
+        LocalDateTime lastModified = null;
+        for (int i = 0; i < sources.size(); i++) {
+            Long sum = (Long) result.get(1 + 2 * i);
+            LocalDateTime modified = (LocalDateTime) result.get(2 + 2 * i);
+            versionSum += sum != null ? sum : 0;
+            if (modified != null && (lastModified == null || modified.isAfter(lastModified))) {
+                lastModified = modified;
+            }
+        }
+        return new EntityVersion((Long) result.get(0), versionSum, lastModified);
+    }
+
+    private void joinVersioned(From<?, ?> from, ManagedType<?> type, int depth, Set<String> only,
+                               List<From<?, ?>> sources) {
+        for (SingularAttribute<?, ?> attribute : type.getSingularAttributes()) {
+            if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.MANY_TO_ONE
+                    || (only != null && !only.contains(attribute.getName()))) {
+                continue;
+            }
+            EntityType<?> target = entityManager.getMetamodel().entity(attribute.getJavaType());
+            if (target.getAttributes().stream().noneMatch(targetAttribute -> VERSION.equals(targetAttribute.getName()))) {
+                continue;
+            }
+            Join<?, ?> join = from.join(attribute.getName(), JoinType.LEFT);
+            sources.add(join);
+            if (depth > 1) {
+                joinVersioned(join, target, depth - 1, null, sources);
+            }
+        }
+    }
+
+    private static Set<String> associationsNamed(String fields) {
+        Set<String> associations = new HashSet<>();
+        for (String field : fields.split(",")) {
+            int dot = field.indexOf('.');
+            if (dot > 0) {
+                associations.add(field.substring(0, dot).trim());
+            }
+        }
+        return associations;
+    }
+}
@@ -0,0 +1,97 @@
+package com.arogith.api.service;
+
+import com.arogith.api.config.IdempotencyProperties;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Durable side of Idempotency-Key handling: one row per key in idempotency_keys, claimed before the
+ * request runs and completed with the response afterwards, so repeats are recognised across
+ * restarts and across instances.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "arogith.idempotency", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdempotencyProperties properties;
+
+    /**
+     * Response recorded for a key. status is null while the first request is still running.
+     */
+    public record StoredResponse(String requestHash, Integer status, String contentType, byte[] body, long storedAt) {
+
+        public boolean isComplete() {
+            return status != null;
+        }
+    }
+
+    public Optional<StoredResponse> find(String key) {
+        List<StoredResponse> rows = jdbcTemplate.query(
+                "SELECT request_hash, status, content_type, body, created_at FROM idempotency_keys WHERE idempotency_key = ?",
+                (rs, rowNum) -> new StoredResponse(
+                        rs.getString("request_hash"),
+                        (Integer) rs.getObject("status"),
+                        rs.getString("content_type"),
+                        rs.getBytes("body"),
+                        rs.getTimestamp("created_at").getTime()),
+                key);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Claim a key for execution. Fails if the key is completed or another execution holds a claim
+     * younger than the in-flight timeout.
+     */
+    public boolean claim(String key, String requestHash) {
+        int inserted = jdbcTemplate.update(
+                "INSERT INTO idempotency_keys (idempotency_key, request_hash) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                key, requestHash);
+        if (inserted == 1) {
+            return true;
+        }
+        Timestamp abandonedBefore = new Timestamp(System.currentTimeMillis() - properties.getInFlightTimeoutMs());
+        int taken = jdbcTemplate.update(
+                "UPDATE idempotency_keys SET request_hash = ?, created_at = CURRENT_TIMESTAMP " +
+                "WHERE idempotency_key = ? AND status IS NULL AND created_at < ?",
+                requestHash, key, abandonedBefore);
+        if (taken == 1) {
+            logger.warn("Took over abandoned idempotency key {}", key);
+        }
+        return taken == 1;
+    }
+
+    public void complete(String key, StoredResponse response) {
+        jdbcTemplate.update(
+                "UPDATE idempotency_keys SET status = ?, content_type = ?, body = ? WHERE idempotency_key = ?",
+                response.status(), response.contentType(), response.body(), key);
+    }
+
+    /**
+     * Drop an unfinished claim so the client's next retry runs again.
+     */
+    public void release(String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ? AND status IS NULL", key);
+    }
+
+    @Scheduled(fixedDelayString = "${arogith.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - properties.getRetentionHours() * 3_600_000L);
+        int purged = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?", cutoff);
+        if (purged > 0) {
+            logger.debug("Purged {} expired idempotency keys", purged);
+        }
+    }
+}
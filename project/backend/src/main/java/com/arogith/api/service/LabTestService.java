@@ -1,5 +1,9 @@
 package com.arogith.api.service;
 
+import com.arogith.api.audit.AuditAction;
+import com.arogith.api.audit.AuditEntity;
+import com.arogith.api.audit.AuditLog;
+import com.arogith.api.metrics.ClinicalMetrics;
 import com.arogith.api.model.LabTest;
 import com.arogith.api.model.Patient;
 import com.arogith.api.model.Visit;
@@ -8,39 +12,121 @@ import com.arogith.api.repository.PatientRepository;
 import com.arogith.api.repository.VisitRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class LabTestService {
 
+    private static final String PATIENT_ID_FIELD = "patient.patientId";
+
     private final LabTestRepository labTestRepository;
     private final PatientRepository patientRepository;
     private final VisitRepository visitRepository;
+    private final ClinicalMetrics clinicalMetrics;
+    private final ChangeLogService changeLogService;
+    private final AuditLog auditLog;
+    private final SparseFieldsetService sparseFieldsetService;
     
+    @Transactional(readOnly = true)
     public List<LabTest> getAllLabTests() {
+        auditLog.record(AuditAction.LIST, AuditEntity.LAB_TEST, null, null);
         return labTestRepository.findAll();
     }
     
     public Optional<LabTest> getLabTestById(Long testId) {
-        return labTestRepository.findById(testId);
+        Optional<LabTest> labTest = labTestRepository.findById(testId);
+        labTest.ifPresent(found -> auditLog.record(AuditAction.READ, AuditEntity.LAB_TEST, testId, patientIdOf(found)));
+        return labTest;
+    }
+    
+    /**
+     * The lab tests with the given ids, with their patients and visits, read with one IN query, in
+     * the order asked for.
+     */
+    @Transactional(readOnly = true)
+    public BatchLookup<Long, LabTest> getLabTestsByIds(List<Long> testIds) {
+        BatchLookup<Long, LabTest> lookup = BatchLookup.inRequestOrder(testIds,
+                labTestRepository.findByTestIdIn(testIds), LabTest::getTestId);
+        lookup.items().forEach(found -> auditLog.record(AuditAction.READ, AuditEntity.LAB_TEST,
+                found.getTestId(), patientIdOf(found)));
+        return lookup;
     }
     
+    @Transactional(readOnly = true)
     public List<LabTest> getLabTestsByPatientId(String patientId) {
+        auditLog.record(AuditAction.LIST, AuditEntity.LAB_TEST, null, patientId);
         return labTestRepository.findByPatientPatientId(patientId);
     }
     
+    @Transactional(readOnly = true)
     public List<LabTest> getLabTestsByVisitId(Long visitId) {
-        return labTestRepository.findByVisitVisitId(visitId);
+        List<LabTest> labTests = labTestRepository.findByVisitVisitId(visitId);
+        auditLog.record(AuditAction.LIST, AuditEntity.LAB_TEST, "visit:" + visitId,
+                labTests.isEmpty() ? null : patientIdOf(labTests.get(0)));
+        return labTests;
     }
     
+    @Transactional(readOnly = true)
     public List<LabTest> getLabTestsByStatus(String status) {
+        auditLog.record(AuditAction.LIST, AuditEntity.LAB_TEST, "status:" + status, null);
         return labTestRepository.findByStatus(status);
     }
     
+    @Transactional(readOnly = true)
+    public List<SparseFieldsetService.Row> getAllLabTests(String fields) {
+        auditLog.record(AuditAction.LIST, AuditEntity.LAB_TEST, null, null);
+        return sparseFieldsetService.select(LabTest.class, fields, Map.of(), null);
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<SparseFieldsetService.Row> getLabTestById(Long testId, String fields) {
+        Optional<SparseFieldsetService.Row> labTest = sparseFieldsetService
+                .select(LabTest.class, fields, Map.of("testId", testId), null, PATIENT_ID_FIELD).stream().findFirst();
+        labTest.ifPresent(found -> auditLog.record(AuditAction.READ, AuditEntity.LAB_TEST, testId,
+                (String) found.get(PATIENT_ID_FIELD)));
+        return labTest;
+    }
+    
+    @Transactional(readOnly = true)
+    public BatchLookup<Long, SparseFieldsetService.Row> getLabTestsByIds(List<Long> testIds, String fields) {
+        List<SparseFieldsetService.Row> rows = sparseFieldsetService
+                .select(LabTest.class, fields, Map.of("testId", testIds), null, "testId", PATIENT_ID_FIELD);
+        BatchLookup<Long, SparseFieldsetService.Row> lookup = BatchLookup.inRequestOrder(testIds, rows,
+                row -> (Long) row.get("testId"));
+        lookup.items().forEach(found -> auditLog.record(AuditAction.READ, AuditEntity.LAB_TEST,
+                found.get("testId"), (String) found.get(PATIENT_ID_FIELD)));
+        return lookup;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<SparseFieldsetService.Row> getLabTestsByPatientId(String patientId, String fields) {
+        auditLog.record(AuditAction.LIST, AuditEntity.LAB_TEST, null, patientId);
+        return sparseFieldsetService.select(LabTest.class, fields, Map.of(PATIENT_ID_FIELD, patientId), null);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<SparseFieldsetService.Row> getLabTestsByVisitId(Long visitId, String fields) {
+        List<SparseFieldsetService.Row> labTests = sparseFieldsetService
+                .select(LabTest.class, fields, Map.of("visit.visitId", visitId), null, PATIENT_ID_FIELD);
+        auditLog.record(AuditAction.LIST, AuditEntity.LAB_TEST, "visit:" + visitId,
+                labTests.isEmpty() ? null : (String) labTests.get(0).get(PATIENT_ID_FIELD));
+        return labTests;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<SparseFieldsetService.Row> getLabTestsByStatus(String status, String fields) {
+        auditLog.record(AuditAction.LIST, AuditEntity.LAB_TEST, "status:" + status, null);
+        return sparseFieldsetService.select(LabTest.class, fields, Map.of("status", status), null);
+    }
+    
+    @Transactional
     public LabTest createLabTest(String patientId, Long visitId, LabTest labTest) {
         Patient patient = patientRepository.findById(patientId)
                 .orElseThrow(() -> new RuntimeException("Patient not found with id: " + patientId));
@@ -64,9 +150,49 @@ public class LabTestService {
         labTest.setPatient(patient);
         labTest.setVisit(visit);
         
-        return labTestRepository.save(labTest);
+        LabTest savedLabTest = labTestRepository.save(labTest);
+        changeLogService.recordUpsert(ChangeLogService.LAB_TEST, savedLabTest.getTestId());
+        auditLog.recordAfterCommit(AuditAction.CREATE, AuditEntity.LAB_TEST, savedLabTest.getTestId(), patientId);
+        clinicalMetrics.labTestsOrdered(1);
+        return savedLabTest;
+    }
+    
+    /**
+     * Order a panel of tests for one visit. Patient and visit are looked up once and the rows
+     * are written as a single JDBC batch when the transaction commits.
+     */
+    @Transactional
+    public List<LabTest> createLabTestPanel(String patientId, Long visitId, List<LabTest> labTests) {
+        Patient patient = patientRepository.findById(patientId)
+                .orElseThrow(() -> new RuntimeException("Patient not found with id: " + patientId));
+        Visit visit = visitRepository.findById(visitId)
+                .orElseThrow(() -> new RuntimeException("Visit not found with id: " + visitId));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<LabTest> panel = new ArrayList<>(labTests.size());
+        for (LabTest labTest : labTests) {
+            labTest.setTestId(null);
+            if (labTest.getStatus() == null) {
+                labTest.setStatus("Pending");
+            }
+            if (labTest.getTestGivenAt() == null) {
+                labTest.setTestGivenAt(now);
+            }
+            labTest.setPatient(patient);
+            labTest.setVisit(visit);
+            panel.add(labTest);
+        }
+
+        List<LabTest> savedLabTests = labTestRepository.saveAll(panel);
+        changeLogService.recordUpserts(ChangeLogService.LAB_TEST,
+                savedLabTests.stream().map(LabTest::getTestId).toList());
+        savedLabTests.forEach(saved ->
+                auditLog.recordAfterCommit(AuditAction.CREATE, AuditEntity.LAB_TEST, saved.getTestId(), patientId));
+        clinicalMetrics.labTestsOrdered(savedLabTests.size());
+        return savedLabTests;
     }
     
+    @Transactional
     public LabTest updateLabTest(Long testId, LabTest labTestDetails) {
         LabTest labTest = labTestRepository.findById(testId)
                 .orElseThrow(() -> new RuntimeException("Lab test not found with id: " + testId));
@@ -83,9 +209,13 @@ public class LabTestService {
         
         // resultUpdatedAt is handled by the database trigger
         
-        return labTestRepository.save(labTest);
+        LabTest updatedLabTest = labTestRepository.save(labTest);
+        changeLogService.recordUpsert(ChangeLogService.LAB_TEST, testId);
+        auditLog.recordAfterCommit(AuditAction.UPDATE, AuditEntity.LAB_TEST, testId, patientIdOf(updatedLabTest));
+        return updatedLabTest;
     }
     
+    @Transactional
     public LabTest updateLabTestResult(Long testId, String result, String status) {
         LabTest labTest = labTestRepository.findById(testId)
                 .orElseThrow(() -> new RuntimeException("Lab test not found with id: " + testId));
@@ -100,10 +230,22 @@ public class LabTestService {
         
         // resultUpdatedAt is handled by the database trigger
         
-        return labTestRepository.save(labTest);
+        LabTest savedLabTest = labTestRepository.save(labTest);
+        changeLogService.recordUpsert(ChangeLogService.LAB_TEST, testId);
+        auditLog.recordAfterCommit(AuditAction.UPDATE, AuditEntity.LAB_TEST, testId, patientIdOf(savedLabTest));
+        clinicalMetrics.labResultPosted();
+        return savedLabTest;
     }
     
+    @Transactional
     public void deleteLabTest(Long testId) {
+        String patientId = labTestRepository.findById(testId).map(this::patientIdOf).orElse(null);
         labTestRepository.deleteById(testId);
+        changeLogService.recordDelete(ChangeLogService.LAB_TEST, testId);
+        auditLog.recordAfterCommit(AuditAction.DELETE, AuditEntity.LAB_TEST, testId, patientId);
+    }
+
+    private String patientIdOf(LabTest labTest) {
+        return labTest.getPatient() != null ? labTest.getPatient().getPatientId() : null;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,292 @@
+package com.arogith.api.service;
+
+import com.arogith.api.model.Nurse;
+import com.arogith.api.repository.NurseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.With;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of nurse presence (status + last heartbeat).
+ * Status changes are kept in memory and written to the nurse table in periodic batches,
+ * so tablets toggling On-duty/Break do not cost a read and a full entity save each time.
+ *
+ * Only nurses whose client has sent a heartbeat are timed out: one that just sets its status
+ * (as the app does at login) keeps that status until it changes it.
+ *
+ * With several instances each keeps its own registry. The nurses heard from are published on the
+ * CacheInvalidationBus with every flush, and CacheInvalidationListener applies them and the status
+ * rows the other instances wrote, so an instance does not time out a nurse whose heartbeats go to
+ * another one, and all of them answer /active alike.
+ */
+@Component
+@RequiredArgsConstructor
+public class NursePresenceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(NursePresenceRegistry.class);
+
+    public static final String STATUS_ACTIVE = "Active";
+    public static final String STATUS_OFFLINE = "Offline";
+
+    private final NurseRepository nurseRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityCacheService entityCacheService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final Map<String, Presence> presences = new ConcurrentHashMap<>();
+
+    // Latest status per nurse that has not been written to the database yet
+    private final Map<String, String> pendingWrites = new ConcurrentHashMap<>();
+
+    // Nurses whose heartbeat arrived here since the last flush, for the other instances
+    private final Set<String> heardFrom = ConcurrentHashMap.newKeySet();
+
+    @Value("${arogith.presence.heartbeat-timeout-ms:120000}")
+    private long heartbeatTimeoutMs;
+
+    /**
+     * Load the current status of every nurse so the registry answers reads from the first request.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPresences() {
+        try {
+            Instant now = Instant.now();
+            for (Nurse nurse : nurseRepository.findAll()) {
+                presences.put(nurse.getNurseId(), Presence.of(nurse, now, false));
+            }
+            logger.info("Loaded presence for {} nurses", presences.size());
+        } catch (Exception e) {
+            logger.error("Error loading nurse presence: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Record a status change. Returns false if the nurse does not exist.
+     */
+    public boolean updateStatus(String nurseId, String status) {
+        if (!presences.containsKey(nurseId) && !register(nurseId)) {
+            return false;
+        }
+        presences.computeIfPresent(nurseId,
+                (id, current) -> current.withStatus(status).withLastHeartbeat(Instant.now()));
+        pendingWrites.put(nurseId, status);
+        return true;
+    }
+
+    /**
+     * Refresh the heartbeat of a nurse, which from now on times out without one. A nurse that had
+     * timed out to Offline comes back as Active. Returns false if the nurse does not exist.
+     */
+    public boolean heartbeat(String nurseId) {
+        if (!presences.containsKey(nurseId) && !register(nurseId)) {
+            return false;
+        }
+        heardFrom.add(nurseId);
+        presences.computeIfPresent(nurseId, (id, current) -> {
+            Presence refreshed = current.withLastHeartbeat(Instant.now()).withHeartbeatSeen(true);
+            if (current.getStatus() == null || STATUS_OFFLINE.equalsIgnoreCase(current.getStatus())) {
+                pendingWrites.put(id, STATUS_ACTIVE);
+                return refreshed.withStatus(STATUS_ACTIVE);
+            }
+            return refreshed;
+        });
+        return true;
+    }
+
+    public List<Presence> getPresencesByStatus(String status) {
+        List<Presence> result = new ArrayList<>();
+        for (Presence presence : presences.values()) {
+            if (status.equalsIgnoreCase(presence.getStatus())) {
+                result.add(presence);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return presences.size();
+    }
+
+    /**
+     * Keep the cached profile fields in line with a nurse saved through the service.
+     */
+    public void refresh(Nurse nurse) {
+        presences.compute(nurse.getNurseId(), (id, current) -> current == null
+                ? Presence.of(nurse, Instant.now(), false)
+                : Presence.of(nurse, current.getLastHeartbeat(), current.isHeartbeatSeen()));
+        pendingWrites.remove(nurse.getNurseId());
+    }
+
+    public void remove(String nurseId) {
+        presences.remove(nurseId);
+        pendingWrites.remove(nurseId);
+    }
+
+    /**
+     * Nurses whose heartbeats reached another instance, so they time out here no sooner than there.
+     */
+    public void remoteHeartbeats(Collection<String> nurseIds) {
+        Instant now = Instant.now();
+        for (String nurseId : nurseIds) {
+            presences.computeIfPresent(nurseId,
+                    (id, current) -> current.withLastHeartbeat(now).withHeartbeatSeen(true));
+        }
+    }
+
+    /**
+     * Take over the rows of nurses another instance changed, unless this one still has a newer
+     * status to write. A status changed elsewhere counts as a sign of life.
+     */
+    public void reload(Collection<String> nurseIds) {
+        Map<String, Nurse> found = new HashMap<>();
+        nurseRepository.findAllById(nurseIds).forEach(nurse -> found.put(nurse.getNurseId(), nurse));
+        Instant now = Instant.now();
+        for (String nurseId : nurseIds) {
+            Nurse nurse = found.get(nurseId);
+            if (nurse == null) {
+                remove(nurseId);
+                continue;
+            }
+            presences.compute(nurseId, (id, current) -> {
+                if (current == null) {
+                    return Presence.of(nurse, now, false);
+                }
+                if (pendingWrites.containsKey(id)) {
+                    return current;
+                }
+                boolean changed = !Objects.equals(current.getStatus(), nurse.getStatus());
+                return Presence.of(nurse, changed ? now : current.getLastHeartbeat(), current.isHeartbeatSeen());
+            });
+        }
+    }
+
+    /**
+     * Reload every nurse after changes from the other instances may have been missed. Heartbeats
+     * they received in the meantime are unknown, so every timeout starts over.
+     */
+    public void reloadAll() {
+        Instant now = Instant.now();
+        Set<String> existing = new HashSet<>();
+        for (Nurse nurse : nurseRepository.findAll()) {
+            existing.add(nurse.getNurseId());
+            presences.compute(nurse.getNurseId(), (id, current) -> {
+                if (current == null) {
+                    return Presence.of(nurse, now, false);
+                }
+                return pendingWrites.containsKey(id)
+                        ? current.withLastHeartbeat(now)
+                        : Presence.of(nurse, now, current.isHeartbeatSeen());
+            });
+        }
+        presences.keySet().retainAll(existing);
+    }
+
+    /**
+     * Mark nurses whose heartbeat is older than the timeout as Offline. Nurses that never sent one
+     * are left alone.
+     */
+    @Scheduled(fixedDelayString = "${arogith.presence.sweep-interval-ms:15000}")
+    public void expireStalePresences() {
+        Instant cutoff = Instant.now().minusMillis(heartbeatTimeoutMs);
+        for (String nurseId : presences.keySet()) {
+            presences.computeIfPresent(nurseId, (id, current) -> {
+                if (!current.isHeartbeatSeen() || STATUS_OFFLINE.equalsIgnoreCase(current.getStatus())
+                        || !current.getLastHeartbeat().isBefore(cutoff)) {
+                    return current;
+                }
+                logger.debug("Nurse {} timed out, marking Offline", id);
+                pendingWrites.put(id, STATUS_OFFLINE);
+                return current.withStatus(STATUS_OFFLINE);
+            });
+        }
+    }
+
+    /**
+     * Write pending status changes to the nurse table in a single JDBC batch, after telling the
+     * other instances which nurses were heard from.
+     */
+    @Scheduled(fixedDelayString = "${arogith.presence.flush-interval-ms:10000}")
+    public void flushPendingStatuses() {
+        publishHeartbeats();
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        Map<String, String> batch = new HashMap<>(pendingWrites);
+        List<Object[]> args = new ArrayList<>(batch.size());
+        batch.forEach((nurseId, status) -> args.add(new Object[]{status, nurseId}));
+        try {
+            jdbcTemplate.batchUpdate("UPDATE nurse SET status = ?, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+                    "WHERE nurse_id = ?", args);
+            // Only drop entries that did not change again while the batch was running
+            batch.forEach(pendingWrites::remove);
+            // The batch bypasses Hibernate, so cached nurse rows are now stale
+            entityCacheService.evictNurses(batch.keySet());
+            cacheInvalidationBus.nursesChanged(batch.keySet());
+            logger.debug("Flushed {} nurse status changes", batch.size());
+        } catch (Exception e) {
+            logger.error("Error flushing nurse statuses, will retry: {}", e.getMessage(), e);
+        }
+    }
+
+    private void publishHeartbeats() {
+        if (heardFrom.isEmpty()) {
+            return;
+        }
+        List<String> batch = new ArrayList<>(heardFrom);
+        batch.forEach(heardFrom::remove);
+        try {
+            cacheInvalidationBus.heartbeatsReceived(batch);
+        } catch (Exception e) {
+            // The next heartbeats are published with the next flush
+            logger.warn("Error publishing nurse heartbeats: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Pick up a nurse created after startup (or by another instance).
+     */
+    private boolean register(String nurseId) {
+        return nurseRepository.findByNurseId(nurseId)
+                .map(nurse -> {
+                    presences.putIfAbsent(nurseId, Presence.of(nurse, Instant.now(), false));
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    @lombok.Value
+    @With
+    public static class Presence {
+        String nurseId;
+        String name;
+        String email;
+        String role;
+        String status;
+        Instant lastHeartbeat;
+        // Whether the nurse's client sends heartbeats at all, i.e. whether it can time out
+        boolean heartbeatSeen;
+
+        static Presence of(Nurse nurse, Instant lastHeartbeat, boolean heartbeatSeen) {
+            return new Presence(nurse.getNurseId(), nurse.getName(), nurse.getEmail(),
+                    nurse.getRole(), nurse.getStatus(), lastHeartbeat, heartbeatSeen);
+        }
+    }
+}
@@ -16,4 +16,9 @@ public interface NurseService {
     boolean validateCredentials(String nurseId, String password);
     boolean updateNurseStatus(String nurseId, String status);
     List<Nurse> getNursesByStatus(String status);
+    boolean recordHeartbeat(String nurseId);
+    List<Nurse> getActiveNurses();
+    List<SparseFieldsetService.Row> getAllNurses(String fields);
+    Optional<SparseFieldsetService.Row> getNurseById(String id, String fields);
+    List<SparseFieldsetService.Row> getActiveNurses(String fields);
 } 
\ No newline at end of file
@@ -4,17 +4,25 @@ import com.arogith.api.model.Nurse;
 import com.arogith.api.repository.NurseRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class NurseServiceImpl implements NurseService {
 
     private final NurseRepository nurseRepository;
+    private final NursePresenceRegistry presenceRegistry;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final SparseFieldsetService sparseFieldsetService;
 
     @Override
+    @Transactional(readOnly = true)
     public List<Nurse> getAllNurses() {
         return nurseRepository.findAll();
     }
@@ -30,13 +38,24 @@ public class NurseServiceImpl implements NurseService {
     }
 
     @Override
+    @Transactional
     public Nurse saveNurse(Nurse nurse) {
-        return nurseRepository.save(nurse);
+        // A nurse sent in a PUT body carries no version; continue from the stored one
+        if (nurse.getNurseId() != null) {
+            nurseRepository.findById(nurse.getNurseId()).ifPresent(stored -> nurse.setVersion(stored.getVersion()));
+        }
+        Nurse savedNurse = nurseRepository.save(nurse);
+        presenceRegistry.refresh(savedNurse);
+        cacheInvalidationBus.nursesChanged(List.of(savedNurse.getNurseId()));
+        return savedNurse;
     }
 
     @Override
+    @Transactional
     public void deleteNurse(String id) {
         nurseRepository.deleteById(id);
+        presenceRegistry.remove(id);
+        cacheInvalidationBus.nursesChanged(List.of(id));
     }
 
     @Override
@@ -63,18 +82,63 @@ public class NurseServiceImpl implements NurseService {
 
     @Override
     public boolean updateNurseStatus(String nurseId, String status) {
-        Optional<Nurse> nurseOptional = nurseRepository.findByNurseId(nurseId);
-        if (nurseOptional.isPresent()) {
-            Nurse nurse = nurseOptional.get();
-            nurse.setStatus(status);
-            nurseRepository.save(nurse);
-            return true;
-        }
-        return false;
+        // Held in memory and flushed to the nurse table in batches by the registry
+        return presenceRegistry.updateStatus(nurseId, status);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Nurse> getNursesByStatus(String status) {
         return nurseRepository.findByStatusIgnoreCase(status);
     }
-} 
\ No newline at end of file
+
+    @Override
+    public boolean recordHeartbeat(String nurseId) {
+        return presenceRegistry.heartbeat(nurseId);
+    }
+
+    @Override
+    public List<Nurse> getActiveNurses() {
+        return presenceRegistry.getPresencesByStatus(NursePresenceRegistry.STATUS_ACTIVE).stream()
+                .map(presence -> {
+                    Nurse nurse = new Nurse();
+                    nurse.setNurseId(presence.getNurseId());
+                    nurse.setName(presence.getName());
+                    nurse.setEmail(presence.getEmail());
+                    nurse.setRole(presence.getRole());
+                    nurse.setStatus(presence.getStatus());
+                    return nurse;
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SparseFieldsetService.Row> getAllNurses(String fields) {
+        return sparseFieldsetService.select(Nurse.class, fields, Map.of(), null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<SparseFieldsetService.Row> getNurseById(String id, String fields) {
+        return sparseFieldsetService.select(Nurse.class, fields, Map.of("nurseId", id), null).stream().findFirst();
+    }
+
+    /**
+     * Active nurses come from the presence registry, not the database; the fields are picked in memory.
+     */
+    @Override
+    public List<SparseFieldsetService.Row> getActiveNurses(String fields) {
+        return getActiveNurses().stream()
+                .map(nurse -> {
+                    Map<String, Object> values = new HashMap<>();
+                    values.put("nurse_id", nurse.getNurseId());
+                    values.put("name", nurse.getName());
+                    values.put("email", nurse.getEmail());
+                    values.put("role", nurse.getRole());
+                    values.put("status", nurse.getStatus());
+                    return sparseFieldsetService.project(Nurse.class, fields, values);
+                })
+                .collect(Collectors.toList());
+    }
+}
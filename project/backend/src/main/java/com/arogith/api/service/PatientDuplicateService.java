@@ -0,0 +1,426 @@
+package com.arogith.api.service;
+
+import com.arogith.api.audit.AuditAction;
+import com.arogith.api.audit.AuditEntity;
+import com.arogith.api.audit.AuditLog;
+import com.arogith.api.config.BranchContext;
+import com.arogith.api.config.BranchProperties;
+import com.arogith.api.config.DuplicateDetectionProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Finds patient records that are probably the same person and queues them in patient_duplicates
+ * for someone at the desk to merge or dismiss.
+ *
+ * A scan reads every patient of a branch, groups them by blocking key (PatientMatcher) and only
+ * scores pairs within a block, in parallel. A pair sharing several blocks is scored in the first
+ * of them only. Dismissed pairs stay dismissed; pending pairs that no longer score are dropped.
+ */
+@Service
+@ConditionalOnProperty(prefix = "arogith.duplicates", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PatientDuplicateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientDuplicateService.class);
+
+    private static final String QUEUE_PAIR =
+            "INSERT INTO patient_duplicates (patient_id_a, patient_id_b, score, reasons, detected_at) " +
+            "VALUES (?, ?, ?, ?, ?) ON CONFLICT (patient_id_a, patient_id_b) DO UPDATE " +
+            "SET score = EXCLUDED.score, reasons = EXCLUDED.reasons, detected_at = EXCLUDED.detected_at " +
+            "WHERE patient_duplicates.status = 'PENDING'";
+
+    private static final String PATIENT_SUMMARY =
+            "patient_id, name, surname, father_name, gender, age, phone_number, total_visits";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final DuplicateDetectionProperties properties;
+    private final BranchProperties branchProperties;
+    private final ChangeLogService changeLogService;
+    private final EntityCacheService entityCacheService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final AuditLog auditLog;
+    private final ForkJoinPool pool;
+    private final ExecutorService scanner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "duplicate-scan");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean scanning = new AtomicBoolean();
+
+    private volatile long pending;
+
+    public PatientDuplicateService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   DuplicateDetectionProperties properties, BranchProperties branchProperties,
+                                   ChangeLogService changeLogService, EntityCacheService entityCacheService,
+                                   CacheInvalidationBus cacheInvalidationBus, AuditLog auditLog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.properties = properties;
+        this.branchProperties = branchProperties;
+        this.changeLogService = changeLogService;
+        this.entityCacheService = entityCacheService;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.auditLog = auditLog;
+        int threads = properties.getScoringThreads() > 0
+                ? properties.getScoringThreads() : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    @Scheduled(initialDelayString = "${arogith.duplicates.initial-delay-ms:300000}",
+            fixedDelayString = "${arogith.duplicates.scan-interval-ms:21600000}")
+    public void scheduledScan() {
+        try {
+            scan();
+        } catch (IllegalStateException e) {
+            logger.debug("Skipping scheduled duplicate scan: {}", e.getMessage());
+        } catch (Exception e) {
+            logger.error("Duplicate patient scan failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Scans every branch and refreshes its review queue; one scan at a time. The scan runs on its
+     * own thread, where no branch's EntityManager is bound yet (a request thread has one open for
+     * its own branch with open-in-view, and every transaction on it would stay in that schema).
+     */
+    public Map<String, Object> scan() {
+        if (!scanning.compareAndSet(false, true)) {
+            throw new IllegalStateException("A duplicate scan is already running");
+        }
+        try {
+            return scanner.submit(this::scanAllBranches).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Duplicate scan interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime
+                    ? runtime : new IllegalStateException("Duplicate scan failed", e.getCause());
+        } finally {
+            scanning.set(false);
+        }
+    }
+
+    private Map<String, Object> scanAllBranches() {
+        List<Map<String, Object>> branches = new ArrayList<>();
+        long queued = 0;
+        for (String schema : schemas()) {
+            Map<String, Object> result = BranchContext.callInSchema(schema, this::scanBranch);
+            result.put("schema", schema);
+            branches.add(result);
+            queued += (Integer) result.get("pending");
+        }
+        pending = queued;
+        return Map.of("branches", branches);
+    }
+
+    private Map<String, Object> scanBranch() {
+        long start = System.nanoTime();
+        Timestamp scanStart = new Timestamp(System.currentTimeMillis());
+        List<PatientMatcher.Candidate> patients = readTransaction.execute(status -> jdbcTemplate.query(
+                "SELECT patient_id, name, surname, father_name, gender, age, phone_number FROM patients",
+                (rs, rowNum) -> new PatientMatcher.Candidate(rs.getString(1), rs.getString(2), rs.getString(3),
+                        rs.getString(4), rs.getString(5), (Integer) rs.getObject(6), rs.getString(7))));
+
+        // Block ids in first-seen order; each patient's own block ids are ascending
+        Map<String, Integer> blockIds = new HashMap<>();
+        List<List<Integer>> blocks = new ArrayList<>();
+        int[][] patientBlocks = new int[patients.size()][];
+        for (int p = 0; p < patients.size(); p++) {
+            List<String> keys = PatientMatcher.blockingKeys(patients.get(p), properties.getAgeToleranceYears());
+            int[] ids = new int[keys.size()];
+            for (int k = 0; k < keys.size(); k++) {
+                Integer id = blockIds.get(keys.get(k));
+                if (id == null) {
+                    id = blocks.size();
+                    blockIds.put(keys.get(k), id);
+                    blocks.add(new ArrayList<>());
+                }
+                blocks.get(id).add(p);
+                ids[k] = id;
+            }
+            Arrays.sort(ids);
+            patientBlocks[p] = ids;
+        }
+
+        List<Integer> scoredBlocks = new ArrayList<>();
+        boolean[] scored = new boolean[blocks.size()];
+        int skippedBlocks = 0;
+        for (int b = 0; b < blocks.size(); b++) {
+            int size = blocks.get(b).size();
+            if (size > properties.getMaxBlockSize()) {
+                skippedBlocks++;
+            } else if (size > 1) {
+                scoredBlocks.add(b);
+                scored[b] = true;
+            }
+        }
+        long pairs = 0;
+        for (int b : scoredBlocks) {
+            pairs += (long) blocks.get(b).size() * (blocks.get(b).size() - 1) / 2;
+        }
+        long scoringStart = System.nanoTime();
+        List<PatientMatcher.Match> matches;
+        try {
+            matches = pool.submit(() -> scoredBlocks.parallelStream()
+                    .flatMap(b -> scoreBlock(b, blocks.get(b), patients, patientBlocks, scored).stream())
+                    .toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Duplicate scan interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Duplicate scoring failed", e.getCause());
+        }
+        long scoringMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scoringStart);
+
+        Integer pendingPairs = writeTransaction.execute(status -> {
+            jdbcTemplate.batchUpdate(QUEUE_PAIR, matches.stream()
+                    .map(m -> new Object[]{m.patientIdA(), m.patientIdB(), m.score(), m.reasons(), scanStart})
+                    .toList());
+            jdbcTemplate.update("DELETE FROM patient_duplicates WHERE status = 'PENDING' AND detected_at < ?",
+                    scanStart);
+            return jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM patient_duplicates WHERE status = 'PENDING'", Integer.class);
+        });
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Duplicate scan of {} patients: {} blocks scored ({} pairs in {} ms), {} skipped as too large, "
+                        + "{} pairs queued in {} ms",
+                patients.size(), scoredBlocks.size(), pairs, scoringMs, skippedBlocks, matches.size(), elapsedMs);
+        if (skippedBlocks > 0) {
+            logger.debug("Raise arogith.duplicates.max-block-size to score the {} skipped blocks", skippedBlocks);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("patients", patients.size());
+        result.put("blocks", scoredBlocks.size());
+        result.put("pairs", pairs);
+        result.put("skippedBlocks", skippedBlocks);
+        result.put("matches", matches.size());
+        result.put("pending", pendingPairs);
+        result.put("scanMs", elapsedMs);
+        return result;
+    }
+
+    private List<PatientMatcher.Match> scoreBlock(int blockId, List<Integer> members,
+                                                  List<PatientMatcher.Candidate> patients, int[][] patientBlocks,
+                                                  boolean[] scored) {
+        List<PatientMatcher.Match> matches = new ArrayList<>();
+        for (int i = 0; i < members.size(); i++) {
+            for (int j = i + 1; j < members.size(); j++) {
+                int a = members.get(i);
+                int b = members.get(j);
+                if (firstSharedBlock(patientBlocks[a], patientBlocks[b], scored) != blockId) {
+                    continue;
+                }
+                PatientMatcher.Match match = PatientMatcher.score(patients.get(a), patients.get(b),
+                        properties.getAgeToleranceYears());
+                if (match.score() >= properties.getMinScore()) {
+                    matches.add(match);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * The lowest block both patients are in that is being scored.
+     */
+    private static int firstSharedBlock(int[] a, int[] b, boolean[] scored) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                if (scored[a[i]]) {
+                    return a[i];
+                }
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Pending pairs of the current branch, most likely duplicates first.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getReviewQueue(int limit) {
+        auditLog.record(AuditAction.LIST, AuditEntity.PATIENT, null, null);
+        return jdbcTemplate.query(
+                "SELECT d.score, d.reasons, d.detected_at, " + prefixed("a") + ", " + prefixed("b") +
+                " FROM patient_duplicates d" +
+                " JOIN patients a ON a.patient_id = d.patient_id_a" +
+                " JOIN patients b ON b.patient_id = d.patient_id_b" +
+                " WHERE d.status = 'PENDING' ORDER BY d.score DESC, d.patient_id_a, d.patient_id_b LIMIT ?",
+                (rs, rowNum) -> {
+                    Map<String, Object> pair = new LinkedHashMap<>();
+                    pair.put("score", rs.getDouble("score"));
+                    pair.put("reasons", rs.getString("reasons"));
+                    pair.put("detectedAt", rs.getTimestamp("detected_at").toLocalDateTime());
+                    pair.put("patientA", summary(rs, "a_"));
+                    pair.put("patientB", summary(rs, "b_"));
+                    return pair;
+                },
+                limit);
+    }
+
+    /**
+     * Folds the duplicate into the survivor: visits and lab tests are re-pointed with one statement
+     * each, fields the survivor lacks are taken from the duplicate, the visit counts are added up
+     * and the duplicate is deleted.
+     */
+    @Transactional
+    public Map<String, Object> merge(String survivorId, String duplicateId) {
+        if (survivorId.equals(duplicateId)) {
+            throw new IllegalArgumentException("Cannot merge a patient into itself");
+        }
+        // Both rows locked in a fixed order, so two merges of the same pair cannot deadlock
+        List<String> locked = jdbcTemplate.queryForList(
+                "SELECT patient_id FROM patients WHERE patient_id IN (?, ?) ORDER BY patient_id FOR UPDATE",
+                String.class, survivorId, duplicateId);
+        for (String patientId : List.of(survivorId, duplicateId)) {
+            if (!locked.contains(patientId)) {
+                throw new NoSuchElementException("Patient not found with ID: " + patientId);
+            }
+        }
+
+        List<Long> visitIds = jdbcTemplate.queryForList(
+                "UPDATE visits SET patient_id = ?, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE patient_id = ? RETURNING visit_id",
+                Long.class, survivorId, duplicateId);
+        List<Long> labTestIds = jdbcTemplate.queryForList(
+                "UPDATE labtests SET patient_id = ?, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE patient_id = ? RETURNING test_id",
+                Long.class, survivorId, duplicateId);
+        jdbcTemplate.update(
+                "UPDATE patients s SET " +
+                "father_name = COALESCE(NULLIF(s.father_name, ''), d.father_name), " +
+                "gender = COALESCE(NULLIF(s.gender, ''), d.gender), " +
+                "age = COALESCE(s.age, d.age), " +
+                "address = COALESCE(NULLIF(s.address, ''), d.address), " +
+                "blood_group = COALESCE(NULLIF(s.blood_group, ''), d.blood_group), " +
+                "phone_number = COALESCE(NULLIF(s.phone_number, ''), d.phone_number), " +
+                "photo = COALESCE(s.photo, d.photo), " +
+                "total_visits = COALESCE(s.total_visits, 0) + COALESCE(d.total_visits, 0), " +
+                "version = s.version + 1, updated_at = CURRENT_TIMESTAMP " +
+                "FROM patients d WHERE s.patient_id = ? AND d.patient_id = ?",
+                survivorId, duplicateId);
+
+        String first = survivorId.compareTo(duplicateId) < 0 ? survivorId : duplicateId;
+        String second = first.equals(survivorId) ? duplicateId : survivorId;
+        jdbcTemplate.update("UPDATE patient_duplicates SET status = 'MERGED', reviewed_at = CURRENT_TIMESTAMP " +
+                "WHERE patient_id_a = ? AND patient_id_b = ?", first, second);
+        jdbcTemplate.update("DELETE FROM patient_duplicates WHERE status = 'PENDING' " +
+                "AND (patient_id_a = ? OR patient_id_b = ?)", duplicateId, duplicateId);
+        jdbcTemplate.update("DELETE FROM patients WHERE patient_id = ?", duplicateId);
+
+        if (!visitIds.isEmpty()) {
+            changeLogService.recordUpserts(ChangeLogService.VISIT, visitIds);
+        }
+        if (!labTestIds.isEmpty()) {
+            changeLogService.recordUpserts(ChangeLogService.LAB_TEST, labTestIds);
+        }
+        changeLogService.recordUpsert(ChangeLogService.PATIENT, survivorId);
+        changeLogService.recordDelete(ChangeLogService.PATIENT, duplicateId);
+        // Written around Hibernate, so neither the cached rows nor cached queries know about it
+        entityCacheService.evictPatientsAfterCommit(List.of(survivorId, duplicateId));
+        cacheInvalidationBus.patientChanged(survivorId);
+        cacheInvalidationBus.patientChanged(duplicateId);
+        auditLog.recordAfterCommit(AuditAction.UPDATE, AuditEntity.PATIENT, survivorId, survivorId);
+        auditLog.recordAfterCommit(AuditAction.DELETE, AuditEntity.PATIENT, duplicateId, duplicateId);
+        logger.info("Merged patient {} into {}: {} visits and {} lab tests moved",
+                duplicateId, survivorId, visitIds.size(), labTestIds.size());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("survivorId", survivorId);
+        result.put("mergedPatientId", duplicateId);
+        result.put("movedVisits", visitIds.size());
+        result.put("movedLabTests", labTestIds.size());
+        return result;
+    }
+
+    /**
+     * Marks a queued pair as not a duplicate; later scans leave it alone.
+     */
+    @Transactional
+    public void dismiss(String patientIdA, String patientIdB) {
+        String first = patientIdA.compareTo(patientIdB) < 0 ? patientIdA : patientIdB;
+        String second = first.equals(patientIdA) ? patientIdB : patientIdA;
+        int updated = jdbcTemplate.update(
+                "UPDATE patient_duplicates SET status = 'DISMISSED', reviewed_at = CURRENT_TIMESTAMP " +
+                "WHERE patient_id_a = ? AND patient_id_b = ?", first, second);
+        if (updated == 0) {
+            throw new NoSuchElementException("No queued pair for patients " + first + " and " + second);
+        }
+    }
+
+    public long getPending() {
+        return pending;
+    }
+
+    private List<String> schemas() {
+        if (!branchProperties.isEnabled()) {
+            return List.of(branchProperties.getDefaultSchema());
+        }
+        return new ArrayList<>(new LinkedHashSet<>(branchProperties.getSchemas().values()));
+    }
+
+    private static String prefixed(String alias) {
+        return Arrays.stream(PATIENT_SUMMARY.split(", "))
+                .map(column -> alias + "." + column + " AS " + alias + "_" + column)
+                .collect(Collectors.joining(", "));
+    }
+
+    private static Map<String, Object> summary(ResultSet rs, String prefix) throws SQLException {
+        Map<String, Object> patient = new LinkedHashMap<>();
+        patient.put("patientId", rs.getString(prefix + "patient_id"));
+        patient.put("name", rs.getString(prefix + "name"));
+        patient.put("surname", rs.getString(prefix + "surname"));
+        patient.put("fatherName", rs.getString(prefix + "father_name"));
+        patient.put("gender", rs.getString(prefix + "gender"));
+        patient.put("age", rs.getObject(prefix + "age"));
+        patient.put("phoneNumber", rs.getString(prefix + "phone_number"));
+        patient.put("totalVisits", rs.getObject(prefix + "total_visits"));
+        return patient;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scanner.shutdownNow();
+        pool.shutdownNow();
+    }
+}
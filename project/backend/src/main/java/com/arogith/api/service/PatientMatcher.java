@@ -0,0 +1,247 @@
+package com.arogith.api.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Blocking keys and pair scoring for duplicate patient detection.
+ *
+ * Names are registered as transliterated by whoever is at the desk ("Lakshmi"/"Laxmi",
+ * "Srinivas"/"Sreenivas"), so blocking uses a phonetic skeleton rather than the spelling: common
+ * digraphs and vowel doublings are folded, and vowels after the first letter are dropped.
+ */
+final class PatientMatcher {
+
+    private static final double NAME_WEIGHT = 0.6;
+    private static final double SURNAME_WEIGHT = 0.4;
+    private static final double STRONG_SIMILARITY = 0.9;
+    private static final double DIFFERENT_PHONE_FACTOR = 0.8;
+    private static final double DIFFERENT_GENDER_FACTOR = 0.5;
+
+    private static final String[][] FOLDS = {
+            {"ksh", "x"}, {"x", "ks"}, {"ph", "f"}, {"sh", "s"}, {"th", "t"}, {"dh", "d"}, {"bh", "b"},
+            {"kh", "k"}, {"gh", "g"}, {"jh", "j"}, {"ch", "c"}, {"ck", "k"}, {"q", "k"}, {"w", "v"},
+            {"z", "j"}, {"ee", "i"}, {"oo", "u"}, {"aa", "a"}, {"y", "i"}
+    };
+
+    private PatientMatcher() {
+    }
+
+    /**
+     * The columns duplicate detection looks at, normalised once per scan rather than once per pair.
+     */
+    static final class Candidate {
+
+        final String patientId;
+        final String name;
+        final String surname;
+        final String fatherName;
+        final String gender;
+        final Integer age;
+        final String phone;
+        final String nameKey;
+        final String surnameKey;
+        final String fatherNameKey;
+
+        Candidate(String patientId, String name, String surname, String fatherName, String gender,
+                  Integer age, String phoneNumber) {
+            this.patientId = patientId;
+            this.name = normalize(name);
+            this.surname = normalize(surname);
+            this.fatherName = normalize(fatherName);
+            this.gender = normalize(gender);
+            this.age = age;
+            this.phone = phoneKey(phoneNumber);
+            this.nameKey = phoneticKey(name);
+            this.surnameKey = phoneticKey(surname);
+            this.fatherNameKey = phoneticKey(fatherName);
+        }
+    }
+
+    record Match(String patientIdA, String patientIdB, double score, String reasons) {
+    }
+
+    /**
+     * Keys under which two records are compared at all: the (unordered) name and surname, name and
+     * father's name, each within an age band, and the phone number. Two records whose ages differ by
+     * at most ageTolerance always share a band.
+     */
+    static List<String> blockingKeys(Candidate candidate, int ageTolerance) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String band : ageBands(candidate.age, ageTolerance)) {
+            if (!candidate.nameKey.isEmpty() && !candidate.surnameKey.isEmpty()) {
+                keys.add("ns|" + unordered(candidate.nameKey, candidate.surnameKey) + "|" + band);
+            }
+            if (!candidate.nameKey.isEmpty() && !candidate.fatherNameKey.isEmpty()) {
+                keys.add("nf|" + candidate.nameKey + "|" + candidate.fatherNameKey + "|" + band);
+            }
+        }
+        if (candidate.phone != null) {
+            keys.add("ph|" + candidate.phone);
+        }
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * Similarity of name and surname (also compared crosswise, for registrations with the two
+     * swapped), scaled down by the evidence against: a different father's name or phone number, an
+     * age gap beyond the tolerance, a different gender. Fields missing on either side count neither way.
+     */
+    static Match score(Candidate a, Candidate b, int ageTolerance) {
+        List<String> reasons = new ArrayList<>();
+        double straight = similarity(a.name, a.nameKey, b.name, b.nameKey) * NAME_WEIGHT
+                + similarity(a.surname, a.surnameKey, b.surname, b.surnameKey) * SURNAME_WEIGHT;
+        double swapped = similarity(a.name, a.nameKey, b.surname, b.surnameKey) * NAME_WEIGHT
+                + similarity(a.surname, a.surnameKey, b.name, b.nameKey) * SURNAME_WEIGHT;
+        double score = Math.max(straight, swapped);
+        if (score >= STRONG_SIMILARITY) {
+            reasons.add(swapped > straight ? "swappedNames" : "names");
+        }
+
+        if (!a.fatherName.isEmpty() && !b.fatherName.isEmpty()) {
+            double father = similarity(a.fatherName, a.fatherNameKey, b.fatherName, b.fatherNameKey);
+            if (father >= STRONG_SIMILARITY) {
+                reasons.add("fatherName");
+            } else {
+                score *= Math.max(0, 1 - 2 * (STRONG_SIMILARITY - father));
+            }
+        }
+        if (a.phone != null && b.phone != null) {
+            if (a.phone.equals(b.phone)) {
+                reasons.add("phone");
+            } else {
+                score *= DIFFERENT_PHONE_FACTOR;
+            }
+        }
+        if (a.age != null && b.age != null) {
+            int gap = Math.abs(a.age - b.age) - ageTolerance;
+            if (gap > 0) {
+                score *= Math.max(0, 1 - gap * 0.1);
+            } else {
+                reasons.add("age");
+            }
+        }
+        if (!a.gender.isEmpty() && !b.gender.isEmpty() && !a.gender.equals(b.gender)) {
+            score *= DIFFERENT_GENDER_FACTOR;
+        }
+
+        boolean ordered = a.patientId.compareTo(b.patientId) < 0;
+        return new Match(ordered ? a.patientId : b.patientId, ordered ? b.patientId : a.patientId,
+                Math.round(score * 1000) / 1000.0, String.join(",", reasons));
+    }
+
+    static String phoneticKey(String value) {
+        if (value == null) {
+            return "";
+        }
+        String key = value.toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "");
+        for (String[] fold : FOLDS) {
+            key = key.replace(fold[0], fold[1]);
+        }
+        if (key.isEmpty()) {
+            return key;
+        }
+        StringBuilder skeleton = new StringBuilder().append(key.charAt(0));
+        for (int i = 1; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if ("aeiouh".indexOf(c) < 0 && c != skeleton.charAt(skeleton.length() - 1)) {
+                skeleton.append(c);
+            }
+        }
+        return skeleton.toString();
+    }
+
+    /**
+     * The last ten digits, or null for numbers too short or made of one repeated digit, which are
+     * placeholders rather than a patient's phone.
+     */
+    static String phoneKey(String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        String digits = phoneNumber.replaceAll("\\D", "");
+        if (digits.length() < 7 || digits.chars().distinct().count() == 1) {
+            return null;
+        }
+        return digits.length() > 10 ? digits.substring(digits.length() - 10) : digits;
+    }
+
+    private static List<String> ageBands(Integer age, int tolerance) {
+        if (age == null) {
+            return List.of("?");
+        }
+        int width = 2 * tolerance + 1;
+        int low = Math.floorDiv(Math.max(0, age - tolerance), width);
+        int high = Math.floorDiv(Math.max(0, age + tolerance), width);
+        return low == high ? List.of(String.valueOf(low)) : List.of(String.valueOf(low), String.valueOf(high));
+    }
+
+    private static String unordered(String first, String second) {
+        return first.compareTo(second) <= 0 ? first + "|" + second : second + "|" + first;
+    }
+
+    /**
+     * Jaro-Winkler similarity of normalised values, lifted to 0.95 when their phonetic keys agree.
+     */
+    private static double similarity(String a, String aKey, String b, String bKey) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        double similarity = jaroWinkler(a, b);
+        if (similarity < 0.95 && !aKey.isEmpty() && aKey.equals(bKey)) {
+            return 0.95;
+        }
+        return similarity;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static double jaroWinkler(String a, String b) {
+        if (a.equals(b)) {
+            return 1;
+        }
+        int window = Math.max(0, Math.max(a.length(), b.length()) / 2 - 1);
+        boolean[] matchedA = new boolean[a.length()];
+        boolean[] matchedB = new boolean[b.length()];
+        int matches = 0;
+        for (int i = 0; i < a.length(); i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(b.length() - 1, i + window);
+            for (int j = from; j <= to; j++) {
+                if (!matchedB[j] && a.charAt(i) == b.charAt(j)) {
+                    matchedA[i] = true;
+                    matchedB[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0;
+        }
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < a.length(); i++) {
+            if (matchedA[i]) {
+                while (!matchedB[j]) {
+                    j++;
+                }
+                if (a.charAt(i) != b.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+        double jaro = ((double) matches / a.length() + (double) matches / b.length()
+                + (matches - transpositions / 2.0) / matches) / 3;
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(a.length(), b.length())) && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+}
@@ -1,5 +1,9 @@
 package com.arogith.api.service;
 
+import com.arogith.api.audit.AuditAction;
+import com.arogith.api.audit.AuditEntity;
+import com.arogith.api.audit.AuditLog;
+import com.arogith.api.metrics.ClinicalMetrics;
 import com.arogith.api.model.Patient;
 import com.arogith.api.repository.PatientRepository;
 import lombok.RequiredArgsConstructor;
@@ -7,6 +11,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -15,19 +20,79 @@ import java.util.UUID;
 public class PatientService {
 
     private final PatientRepository patientRepository;
+    private final ClinicalMetrics clinicalMetrics;
+    private final ChangeLogService changeLogService;
+    private final AuditLog auditLog;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final SparseFieldsetService sparseFieldsetService;
     
+    @Transactional(readOnly = true)
     public List<Patient> getAllPatients() {
+        auditLog.record(AuditAction.LIST, AuditEntity.PATIENT, null, null);
         return patientRepository.findAll();
     }
     
     public Optional<Patient> getPatientById(String patientId) {
-        return patientRepository.findById(patientId);
+        Optional<Patient> patient = patientRepository.findById(patientId);
+        patient.ifPresent(found -> auditLog.record(AuditAction.READ, AuditEntity.PATIENT, patientId, patientId));
+        return patient;
     }
     
     public Optional<Patient> getPatientByAadhar(String aadharNumber) {
-        return patientRepository.findByAadharNumber(aadharNumber);
+        Optional<Patient> patient = patientRepository.findByAadharNumber(aadharNumber);
+        patient.ifPresent(found -> auditLog.record(AuditAction.READ, AuditEntity.PATIENT,
+                found.getPatientId(), found.getPatientId()));
+        return patient;
     }
     
+    /**
+     * The patients with the given ids, read with one IN query, in the order asked for.
+     */
+    @Transactional(readOnly = true)
+    public BatchLookup<String, Patient> getPatientsByIds(List<String> patientIds) {
+        BatchLookup<String, Patient> lookup = BatchLookup.inRequestOrder(patientIds,
+                patientRepository.findAllById(patientIds), Patient::getPatientId);
+        lookup.items().forEach(found -> auditLog.record(AuditAction.READ, AuditEntity.PATIENT,
+                found.getPatientId(), found.getPatientId()));
+        return lookup;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<SparseFieldsetService.Row> getAllPatients(String fields) {
+        auditLog.record(AuditAction.LIST, AuditEntity.PATIENT, null, null);
+        return sparseFieldsetService.select(Patient.class, fields, Map.of(), null);
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<SparseFieldsetService.Row> getPatientById(String patientId, String fields) {
+        Optional<SparseFieldsetService.Row> patient = sparseFieldsetService
+                .select(Patient.class, fields, Map.of("patientId", patientId), null).stream().findFirst();
+        patient.ifPresent(found -> auditLog.record(AuditAction.READ, AuditEntity.PATIENT, patientId, patientId));
+        return patient;
+    }
+    
+    @Transactional(readOnly = true)
+    public BatchLookup<String, SparseFieldsetService.Row> getPatientsByIds(List<String> patientIds, String fields) {
+        List<SparseFieldsetService.Row> rows = sparseFieldsetService
+                .select(Patient.class, fields, Map.of("patientId", patientIds), null, "patientId");
+        BatchLookup<String, SparseFieldsetService.Row> lookup = BatchLookup.inRequestOrder(patientIds, rows,
+                row -> (String) row.get("patientId"));
+        lookup.items().forEach(found -> auditLog.record(AuditAction.READ, AuditEntity.PATIENT,
+                found.get("patientId"), (String) found.get("patientId")));
+        return lookup;
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<SparseFieldsetService.Row> getPatientByAadhar(String aadharNumber, String fields) {
+        Optional<SparseFieldsetService.Row> patient = sparseFieldsetService
+                .select(Patient.class, fields, Map.of("aadharNumber", aadharNumber), null, "patientId")
+                .stream().findFirst();
+        patient.ifPresent(found -> auditLog.record(AuditAction.READ, AuditEntity.PATIENT,
+                found.get("patientId"), (String) found.get("patientId")));
+        return patient;
+    }
+    
+    @Transactional
     public Patient createPatient(Patient patient) {
         // Generate patient ID if not provided
         if (patient.getPatientId() == null || patient.getPatientId().isEmpty()) {
@@ -42,7 +107,13 @@ public class PatientService {
             patient.setTotalVisits(0);
         }
         
-        return patientRepository.save(patient);
+        Patient savedPatient = patientRepository.save(patient);
+        changeLogService.recordUpsert(ChangeLogService.PATIENT, savedPatient.getPatientId());
+        cacheInvalidationBus.patientChanged(savedPatient.getPatientId());
+        auditLog.recordAfterCommit(AuditAction.CREATE, AuditEntity.PATIENT,
+                savedPatient.getPatientId(), savedPatient.getPatientId());
+        clinicalMetrics.patientRegistered();
+        return savedPatient;
     }
     
     /**
@@ -66,12 +137,19 @@ public class PatientService {
         // Use JDBC template for direct SQL execution to avoid ORM issues with BYTEA
         // This is a workaround for the bytea/bigint type mismatch error
         try {
-            return patientRepository.save(patient);
+            Patient savedPatient = patientRepository.save(patient);
+            changeLogService.recordUpsert(ChangeLogService.PATIENT, savedPatient.getPatientId());
+            cacheInvalidationBus.patientChanged(savedPatient.getPatientId());
+            auditLog.recordAfterCommit(AuditAction.CREATE, AuditEntity.PATIENT,
+                    savedPatient.getPatientId(), savedPatient.getPatientId());
+            clinicalMetrics.patientRegistered();
+            return savedPatient;
         } catch (Exception e) {
             throw new RuntimeException("Failed to create patient without photo: " + e.getMessage(), e);
         }
     }
     
+    @Transactional
     public Patient updatePatient(String patientId, Patient patientDetails) {
         Patient patient = patientRepository.findById(patientId)
                 .orElseThrow(() -> new RuntimeException("Patient not found with id: " + patientId));
@@ -119,14 +197,22 @@ public class PatientService {
         }
         
         try {
-            return patientRepository.save(patient);
+            Patient updatedPatient = patientRepository.save(patient);
+            changeLogService.recordUpsert(ChangeLogService.PATIENT, patientId);
+            cacheInvalidationBus.patientChanged(patientId);
+            auditLog.recordAfterCommit(AuditAction.UPDATE, AuditEntity.PATIENT, patientId, patientId);
+            return updatedPatient;
         } catch (Exception e) {
             throw new RuntimeException("Failed to update patient: " + e.getMessage(), e);
         }
     }
     
+    @Transactional
     public void deletePatient(String patientId) {
         patientRepository.deleteById(patientId);
+        changeLogService.recordDelete(ChangeLogService.PATIENT, patientId);
+        cacheInvalidationBus.patientChanged(patientId);
+        auditLog.recordAfterCommit(AuditAction.DELETE, AuditEntity.PATIENT, patientId, patientId);
     }
     
     public boolean existsByAadhar(String aadharNumber) {
@@ -134,6 +220,7 @@ public class PatientService {
     }
 
     // Add a count method to get the total number of patients
+    @Transactional(readOnly = true)
     public long count() {
         return patientRepository.count();
     }
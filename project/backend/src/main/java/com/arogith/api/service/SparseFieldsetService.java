@@ -0,0 +1,247 @@
+package com.arogith.api.service;
+
+import com.arogith.api.model.Nurse;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonValue;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ?fields= on the GET endpoints. Only the requested attributes are selected, with a JPA tuple
+ * query, so the SQL reads just those columns and joins only the associations a nested field
+ * ("patient.name" on a lab test) needs, rather than loading whole entities and dropping fields
+ * while serializing.
+ *
+ * Selectable fields are the entity's basic attributes under their JSON names, plus the basic
+ * attributes of its many-to-one associations as association.attribute, leaving out @JsonIgnore
+ * ones (the row versions). Nurses are exposed under the NurseDTO names, without the password.
+ */
+@Service
+public class SparseFieldsetService {
+
+    private static final Map<Class<?>, Map<String, String>> EXPOSED_AS = Map.of(
+            Nurse.class, orderedMap("nurse_id", "nurseId", "name", "name", "email", "email",
+                    "role", "role", "status", "status"));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<Class<?>, Map<String, String>> selectable = new ConcurrentHashMap<>();
+
+    /**
+     * Thrown for a fields parameter naming something that cannot be selected.
+     */
+    public static class UnknownFieldException extends IllegalArgumentException {
+        public UnknownFieldException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * One result: serialized as the requested fields (dotted ones nested under their association),
+     * while get() also sees the fields the caller selected for its own use.
+     */
+    public static final class Row {
+
+        private final Map<String, Object> values;
+        private final Map<String, Object> body;
+
+        private Row(Map<String, Object> values, Map<String, Object> body) {
+            this.values = values;
+            this.body = body;
+        }
+
+        public Object get(String field) {
+            return values.get(field);
+        }
+
+        @JsonValue
+        public Map<String, Object> body() {
+            return body;
+        }
+    }
+
+    /**
+     * Rows of the entity matching every where entry (attribute path to a value, or to a collection
+     * any of whose values may match), newest first by the newestFirst attribute if given. Hidden
+     * fields are selected too but not serialized.
+     */
+    public List<Row> select(Class<?> type, String fields, Map<String, Object> where, String newestFirst,
+                            String... hidden) {
+        Map<String, String> available = selectable(type);
+        Set<String> requested = parse(type, fields, available);
+        List<String> selected = new ArrayList<>(requested);
+        for (String field : hidden) {
+            if (!requested.contains(field)) {
+                selected.add(field);
+            }
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(type);
+        Map<String, Join<?, ?>> joins = new HashMap<>();
+        List<Selection<?>> selections = new ArrayList<>(selected.size());
+        for (String field : selected) {
+            String attribute = available.get(field);
+            int dot = attribute.indexOf('.');
+            From<?, ?> from = dot < 0 ? root
+                    : joins.computeIfAbsent(attribute.substring(0, dot), association -> root.join(association, JoinType.LEFT));
+            selections.add(from.get(attribute.substring(dot + 1)));
+        }
+        query.multiselect(selections);
+
+        query.where(predicates(cb, root, where));
+        if (newestFirst != null) {
+            query.orderBy(cb.desc(path(root, newestFirst)));
+        }
+
+        List<Tuple> tuples = entityManager.createQuery(query).getResultList();
+        List<Row> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> values = new HashMap<>();
+            Map<String, Object> body = new LinkedHashMap<>();
+            for (int i = 0; i < selected.size(); i++) {
+                String field = selected.get(i);
+                Object value = tuple.get(i);
+                values.put(field, value);
+                if (requested.contains(field)) {
+                    putNested(body, field, value);
+                }
+            }
+            rows.add(new Row(values, body));
+        }
+        return rows;
+    }
+
+    /**
+     * The requested fields of values already in memory (keyed by field name), for results that are
+     * not read from the database.
+     */
+    public Row project(Class<?> type, String fields, Map<String, Object> values) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        for (String field : parse(type, fields, selectable(type))) {
+            putNested(body, field, values.get(field));
+        }
+        return new Row(values, body);
+    }
+
+    /**
+     * Throws UnknownFieldException for a fields parameter select would reject, without reading
+     * anything.
+     */
+    public void validate(Class<?> type, String fields) {
+        parse(type, fields, selectable(type));
+    }
+
+    private Set<String> parse(Class<?> type, String fields, Map<String, String> available) {
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String trimmed = field.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!available.containsKey(trimmed)) {
+                throw new UnknownFieldException("Unknown field '" + trimmed + "' for " + type.getSimpleName()
+                        + "; selectable: " + String.join(", ", available.keySet()));
+            }
+            requested.add(trimmed);
+        }
+        if (requested.isEmpty()) {
+            throw new UnknownFieldException("fields must name at least one field");
+        }
+        return requested;
+    }
+
+    private Map<String, String> selectable(Class<?> type) {
+        return selectable.computeIfAbsent(type, entity -> {
+            if (EXPOSED_AS.containsKey(entity)) {
+                return EXPOSED_AS.get(entity);
+            }
+            EntityType<?> entityType = entityManager.getMetamodel().entity(entity);
+            Map<String, String> fields = new LinkedHashMap<>();
+            addBasic(fields, "", entityType);
+            for (SingularAttribute<?, ?> attribute : entityType.getSingularAttributes()) {
+                if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.MANY_TO_ONE) {
+                    addBasic(fields, attribute.getName() + ".",
+                            entityManager.getMetamodel().managedType(attribute.getJavaType()));
+                }
+            }
+            return fields;
+        });
+    }
+
+    private static void addBasic(Map<String, String> fields, String prefix, ManagedType<?> type) {
+        type.getSingularAttributes().stream()
+                .filter(attribute -> attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC)
+                .filter(attribute -> !(attribute.getJavaMember() instanceof Field field
+                        && field.isAnnotationPresent(JsonIgnore.class)))
+                .map(Attribute::getName)
+                .sorted()
+                .forEach(name -> fields.put(prefix + name, prefix + name));
+    }
+
+    /**
+     * One predicate per where entry: the attribute path equals the value, or is in it if the value
+     * is a collection.
+     */
+    static Predicate[] predicates(CriteriaBuilder cb, Root<?> root, Map<String, Object> where) {
+        List<Predicate> predicates = new ArrayList<>();
+        where.forEach((attribute, value) -> predicates.add(value instanceof Collection<?> values
+                ? path(root, attribute).in(values) : cb.equal(path(root, attribute), value)));
+        return predicates.toArray(Predicate[]::new);
+    }
+
+    private static Path<?> path(Root<?> root, String attribute) {
+        Path<?> path = root;
+        for (String part : attribute.split("\\.")) {
+            path = path.get(part);
+        }
+        return path;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putNested(Map<String, Object> body, String field, Object value) {
+        int dot = field.indexOf('.');
+        if (dot < 0) {
+            body.put(field, value);
+        } else {
+            ((Map<String, Object>) body.computeIfAbsent(field.substring(0, dot), key -> new LinkedHashMap<>()))
+                    .put(field.substring(dot + 1), value);
+        }
+    }
+
+    private static Map<String, String> orderedMap(String... pairs) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put(pairs[i], pairs[i + 1]);
+        }
+        return map;
+    }
+}
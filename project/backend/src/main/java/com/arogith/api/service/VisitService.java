@@ -1,17 +1,24 @@
 package com.arogith.api.service;
 
+import com.arogith.api.audit.AuditAction;
+import com.arogith.api.audit.AuditEntity;
+import com.arogith.api.audit.AuditLog;
+import com.arogith.api.metrics.ClinicalMetrics;
 import com.arogith.api.model.Patient;
 import com.arogith.api.model.Visit;
 import com.arogith.api.repository.PatientRepository;
 import com.arogith.api.repository.VisitRepository;
+import com.arogith.api.search.VisitSearchService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -22,27 +29,88 @@ public class VisitService {
 
     private final VisitRepository visitRepository;
     private final PatientRepository patientRepository;
+    private final ClinicalMetrics clinicalMetrics;
+    private final EntityCacheService entityCacheService;
+    private final ChangeLogService changeLogService;
+    private final AuditLog auditLog;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final ObjectProvider<VisitSearchService> visitSearchService;
+    private final SparseFieldsetService sparseFieldsetService;
     
+    @Transactional(readOnly = true)
     public List<Visit> getAllVisits() {
         logger.debug("Getting all visits");
+        auditLog.record(AuditAction.LIST, AuditEntity.VISIT, null, null);
         return visitRepository.findAll();
     }
     
     public Optional<Visit> getVisitById(Long visitId) {
         logger.debug("Getting visit by ID: {}", visitId);
-        return visitRepository.findById(visitId);
+        Optional<Visit> visit = visitRepository.findById(visitId);
+        visit.ifPresent(found -> auditLog.record(AuditAction.READ, AuditEntity.VISIT, visitId, found.getPatientId()));
+        return visit;
     }
     
+    /**
+     * The visits with the given ids, with their patients, read with one IN query, in the order
+     * asked for.
+     */
+    @Transactional(readOnly = true)
+    public BatchLookup<Long, Visit> getVisitsByIds(List<Long> visitIds) {
+        BatchLookup<Long, Visit> lookup = BatchLookup.inRequestOrder(visitIds,
+                visitRepository.findByVisitIdIn(visitIds), Visit::getVisitId);
+        lookup.items().forEach(found -> auditLog.record(AuditAction.READ, AuditEntity.VISIT,
+                found.getVisitId(), found.getPatientId()));
+        return lookup;
+    }
+    
+    @Transactional(readOnly = true)
     public List<Visit> getVisitsByPatientId(String patientId) {
         logger.debug("Getting visits for patient ID: {}", patientId);
+        auditLog.record(AuditAction.LIST, AuditEntity.VISIT, null, patientId);
         return visitRepository.findByPatientPatientId(patientId);
     }
     
+    @Transactional(readOnly = true)
     public List<Visit> getVisitsByPatientIdOrderedByDate(String patientId) {
         logger.debug("Getting visits ordered by date for patient ID: {}", patientId);
+        auditLog.record(AuditAction.LIST, AuditEntity.VISIT, null, patientId);
         return visitRepository.findByPatientPatientIdOrderByVisitDateDesc(patientId);
     }
     
+    @Transactional(readOnly = true)
+    public List<SparseFieldsetService.Row> getAllVisits(String fields) {
+        auditLog.record(AuditAction.LIST, AuditEntity.VISIT, null, null);
+        return sparseFieldsetService.select(Visit.class, fields, Map.of(), null);
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<SparseFieldsetService.Row> getVisitById(Long visitId, String fields) {
+        Optional<SparseFieldsetService.Row> visit = sparseFieldsetService
+                .select(Visit.class, fields, Map.of("visitId", visitId), null, "patientId").stream().findFirst();
+        visit.ifPresent(found -> auditLog.record(AuditAction.READ, AuditEntity.VISIT, visitId,
+                (String) found.get("patientId")));
+        return visit;
+    }
+    
+    @Transactional(readOnly = true)
+    public BatchLookup<Long, SparseFieldsetService.Row> getVisitsByIds(List<Long> visitIds, String fields) {
+        List<SparseFieldsetService.Row> rows = sparseFieldsetService
+                .select(Visit.class, fields, Map.of("visitId", visitIds), null, "visitId", "patientId");
+        BatchLookup<Long, SparseFieldsetService.Row> lookup = BatchLookup.inRequestOrder(visitIds, rows,
+                row -> (Long) row.get("visitId"));
+        lookup.items().forEach(found -> auditLog.record(AuditAction.READ, AuditEntity.VISIT,
+                found.get("visitId"), (String) found.get("patientId")));
+        return lookup;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<SparseFieldsetService.Row> getVisitsByPatientId(String patientId, String fields, boolean newestFirst) {
+        auditLog.record(AuditAction.LIST, AuditEntity.VISIT, null, patientId);
+        return sparseFieldsetService.select(Visit.class, fields, Map.of("patientId", patientId),
+                newestFirst ? "visitDate" : null);
+    }
+    
     @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
     public Visit createVisit(String patientId, Visit visit) {
         logger.debug("Creating visit for patient ID: {}", patientId);
@@ -92,8 +160,20 @@ public class VisitService {
         logger.debug("About to save visit with patientId: {}", visit.getPatientId());
         
         try {
-            // Save visit (triggers will handle formatting of OP_NO and REG_NO and updating patient's total_visits)
-            Visit savedVisit = visitRepository.save(visit);
+            // Save visit (triggers will handle formatting of OP_NO and REG_NO and updating patient's total_visits).
+            // With the pooled id sequence save alone does not insert, so flush here: a constraint
+            // violation then fails this block before anything below is queued for the commit
+            Visit savedVisit = visitRepository.saveAndFlush(visit);
+            changeLogService.recordUpsert(ChangeLogService.VISIT, savedVisit.getVisitId());
+            auditLog.recordAfterCommit(AuditAction.CREATE, AuditEntity.VISIT, savedVisit.getVisitId(), patientId);
+            visitSearchService.ifAvailable(search -> search.indexAfterCommit(savedVisit));
+            // The patient row changes too (total_visits), so its ETag has to
+            patientRepository.touch(patientId, LocalDateTime.now());
+            changeLogService.recordUpsert(ChangeLogService.PATIENT, patientId);
+            clinicalMetrics.visitCreated();
+            // total_visits is bumped by a trigger, which the cached patient does not see
+            entityCacheService.evictPatientAfterCommit(patientId);
+            cacheInvalidationBus.patientChanged(patientId);
             logger.info("Successfully created visit with ID: {} for patient: {}", 
                        savedVisit.getVisitId(), patientId);
             return savedVisit;
@@ -127,6 +207,9 @@ public class VisitService {
         
         try {
             Visit updatedVisit = visitRepository.save(visit);
+            changeLogService.recordUpsert(ChangeLogService.VISIT, visitId);
+            auditLog.recordAfterCommit(AuditAction.UPDATE, AuditEntity.VISIT, visitId, updatedVisit.getPatientId());
+            visitSearchService.ifAvailable(search -> search.indexAfterCommit(updatedVisit));
             logger.info("Successfully updated visit with ID: {}", visitId);
             return updatedVisit;
         } catch (Exception e) {
@@ -140,7 +223,11 @@ public class VisitService {
         logger.debug("Deleting visit with ID: {}", visitId);
         
         try {
+            String patientId = visitRepository.findById(visitId).map(Visit::getPatientId).orElse(null);
             visitRepository.deleteById(visitId);
+            changeLogService.recordDelete(ChangeLogService.VISIT, visitId);
+            auditLog.recordAfterCommit(AuditAction.DELETE, AuditEntity.VISIT, visitId, patientId);
+            visitSearchService.ifAvailable(search -> search.removeAfterCommit(visitId));
             logger.info("Successfully deleted visit with ID: {}", visitId);
         } catch (Exception e) {
             logger.error("Error deleting visit {}: {}", visitId, e.getMessage(), e);
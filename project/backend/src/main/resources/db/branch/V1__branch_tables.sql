@@ -0,0 +1,87 @@
+-- Tables of one branch schema, applied by BranchSchemaConfig with the branch schema as Flyway's
+-- default schema. Patients, visits, lab tests and their change log live per branch; doctor, nurse
+-- and users stay shared in public. Keep the column definitions in step with db/migration.
+
+CREATE TABLE patients (
+    patient_id VARCHAR(255) PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    surname VARCHAR(255) NOT NULL,
+    father_name VARCHAR(255),
+    gender VARCHAR(255),
+    age INT,
+    address VARCHAR(255),
+    blood_group VARCHAR(255),
+    phone_number VARCHAR(255),
+    aadhar_number VARCHAR(255) UNIQUE NOT NULL,
+    photo VARCHAR(255),
+    total_visits INT DEFAULT 0,
+    op_no VARCHAR(255) UNIQUE,
+    reg_no VARCHAR(255) UNIQUE
+);
+
+CREATE TABLE visits (
+    visit_id BIGSERIAL PRIMARY KEY,
+    visit_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    bp VARCHAR(255),
+    complaint VARCHAR(255),
+    symptoms VARCHAR(255),
+    op_no VARCHAR(255),
+    reg_no VARCHAR(255),
+    status VARCHAR(255),
+    temperature VARCHAR(255),
+    weight VARCHAR(255),
+    prescription VARCHAR(255),
+    patient_id VARCHAR(255),
+    doctor_id VARCHAR(50),
+    CONSTRAINT fk_visits_patient FOREIGN KEY (patient_id) REFERENCES patients(patient_id),
+    CONSTRAINT fk_visits_doctor FOREIGN KEY (doctor_id) REFERENCES public.doctor(doctor_id)
+);
+
+CREATE TABLE labtests (
+    test_id BIGSERIAL PRIMARY KEY,
+    test_name VARCHAR(255),
+    result VARCHAR(255),
+    reference_range VARCHAR(255),
+    status VARCHAR(255) DEFAULT 'Pending',
+    visit_id BIGINT,
+    patient_id VARCHAR(255),
+    test_given_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    result_updated_at TIMESTAMP,
+    CONSTRAINT fk_labtests_visit_id FOREIGN KEY (visit_id) REFERENCES visits(visit_id),
+    CONSTRAINT fk_labtests_patient_id FOREIGN KEY (patient_id) REFERENCES patients(patient_id)
+);
+
+CREATE TABLE change_log (
+    change_id BIGSERIAL PRIMARY KEY,
+    tx_id XID8 NOT NULL DEFAULT pg_current_xact_id(),
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id VARCHAR(255) NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX idx_change_log_position ON change_log (tx_id, change_id);
+
+-- Pooled optimizer, must match allocationSize on the entities
+ALTER SEQUENCE visits_visit_id_seq INCREMENT BY 50;
+ALTER SEQUENCE labtests_test_id_seq INCREMENT BY 50;
+
+CREATE INDEX idx_visits_patient_date ON visits (patient_id, visit_date DESC);
+CREATE INDEX idx_labtests_patient ON labtests (patient_id);
+CREATE INDEX idx_labtests_visit ON labtests (visit_id);
+CREATE INDEX idx_labtests_status ON labtests (status);
+
+CREATE FUNCTION patients_default_op_reg_no() RETURNS trigger AS $$
+BEGIN
+    IF NEW.op_no IS NULL THEN
+        NEW.op_no := CONCAT('OP', NEW.patient_id);
+    END IF;
+    IF NEW.reg_no IS NULL THEN
+        NEW.reg_no := CONCAT('REG', NEW.patient_id);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER before_patient_insert
+    BEFORE INSERT ON patients
+    FOR EACH ROW EXECUTE FUNCTION patients_default_op_reg_no();
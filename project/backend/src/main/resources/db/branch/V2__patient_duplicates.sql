@@ -0,0 +1,13 @@
+-- Review queue of probable duplicate patients of this branch, as in db/migration V4
+CREATE TABLE patient_duplicates (
+    patient_id_a VARCHAR(255) NOT NULL,
+    patient_id_b VARCHAR(255) NOT NULL,
+    score DOUBLE PRECISION NOT NULL,
+    reasons VARCHAR(255),
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    detected_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    reviewed_at TIMESTAMP,
+    PRIMARY KEY (patient_id_a, patient_id_b)
+);
+CREATE INDEX idx_patient_duplicates_b ON patient_duplicates (patient_id_b);
+CREATE INDEX idx_patient_duplicates_pending ON patient_duplicates (score DESC) WHERE status = 'PENDING';
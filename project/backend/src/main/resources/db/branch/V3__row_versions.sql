@@ -0,0 +1,7 @@
+-- Row versions of this branch's tables, as in db/migration V5 (nurse lives in public)
+ALTER TABLE patients ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE patients ADD COLUMN updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE visits ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE visits ADD COLUMN updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE labtests ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE labtests ADD COLUMN updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
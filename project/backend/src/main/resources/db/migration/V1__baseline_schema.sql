@@ -0,0 +1,128 @@
+-- Consolidated Postgres schema, applied by Flyway in the fast-startup profile.
+-- Replaces the earlier V1-V4 scripts, which were never applied (V1 renamed a column that
+-- schema.sql already creates as symptoms, V4 used MySQL trigger syntax).
+-- Statements are idempotent, so an existing database is baselined at version 0 and migrated.
+-- Keep in step with schema.sql, which the default profile still runs on every boot.
+
+CREATE TABLE IF NOT EXISTS patients (
+    patient_id VARCHAR(255) PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    surname VARCHAR(255) NOT NULL,
+    father_name VARCHAR(255),
+    gender VARCHAR(255),
+    age INT,
+    address VARCHAR(255),
+    blood_group VARCHAR(255),
+    phone_number VARCHAR(255),
+    aadhar_number VARCHAR(255) UNIQUE NOT NULL,
+    photo VARCHAR(255),
+    total_visits INT DEFAULT 0,
+    op_no VARCHAR(255) UNIQUE,
+    reg_no VARCHAR(255) UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS doctor (
+    doctor_id VARCHAR(50) PRIMARY KEY,
+    name VARCHAR(100),
+    email VARCHAR(100) UNIQUE,
+    password TEXT NOT NULL,
+    role VARCHAR(50) DEFAULT 'DOCTOR',
+    status VARCHAR(20),
+    department VARCHAR(100),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS visits (
+    visit_id BIGSERIAL PRIMARY KEY,
+    visit_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    bp VARCHAR(255),
+    complaint VARCHAR(255),
+    symptoms VARCHAR(255),
+    op_no VARCHAR(255),
+    reg_no VARCHAR(255),
+    status VARCHAR(255),
+    temperature VARCHAR(255),
+    weight VARCHAR(255),
+    prescription VARCHAR(255),
+    patient_id VARCHAR(255),
+    doctor_id VARCHAR(50),
+    CONSTRAINT fk_visits_patient FOREIGN KEY (patient_id) REFERENCES patients(patient_id),
+    CONSTRAINT fk_visits_doctor FOREIGN KEY (doctor_id) REFERENCES doctor(doctor_id)
+);
+
+CREATE TABLE IF NOT EXISTS labtests (
+    test_id BIGSERIAL PRIMARY KEY,
+    test_name VARCHAR(255),
+    result VARCHAR(255),
+    reference_range VARCHAR(255),
+    status VARCHAR(255) DEFAULT 'Pending',
+    visit_id BIGINT,
+    patient_id VARCHAR(255),
+    test_given_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    result_updated_at TIMESTAMP,
+    CONSTRAINT fk_labtests_visit_id FOREIGN KEY (visit_id) REFERENCES visits(visit_id),
+    CONSTRAINT fk_labtests_patient_id FOREIGN KEY (patient_id) REFERENCES patients(patient_id)
+);
+
+CREATE TABLE IF NOT EXISTS nurse (
+    nurse_id VARCHAR(50) PRIMARY KEY,
+    name VARCHAR(100),
+    email VARCHAR(100) UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    role VARCHAR(50) DEFAULT 'NURSE',
+    status VARCHAR(20),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    role VARCHAR(50)
+);
+
+-- Change log replayed by /api/sync
+CREATE TABLE IF NOT EXISTS change_log (
+    change_id BIGSERIAL PRIMARY KEY,
+    tx_id XID8 NOT NULL DEFAULT pg_current_xact_id(),
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id VARCHAR(255) NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_change_log_position ON change_log (tx_id, change_id);
+
+-- Pooled optimizer on Visit and LabTest (allocationSize = 50)
+ALTER SEQUENCE visits_visit_id_seq INCREMENT BY 50;
+ALTER SEQUENCE labtests_test_id_seq INCREMENT BY 50;
+
+-- Default OP and REG numbers from the patient ID (Postgres version of the old V3/V4 scripts)
+UPDATE patients
+SET op_no = COALESCE(op_no, CONCAT('OP', patient_id)),
+    reg_no = COALESCE(reg_no, CONCAT('REG', patient_id))
+WHERE op_no IS NULL OR reg_no IS NULL;
+
+CREATE OR REPLACE FUNCTION patients_default_op_reg_no() RETURNS trigger AS $$
+BEGIN
+    IF NEW.op_no IS NULL THEN
+        NEW.op_no := CONCAT('OP', NEW.patient_id);
+    END IF;
+    IF NEW.reg_no IS NULL THEN
+        NEW.reg_no := CONCAT('REG', NEW.patient_id);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Leave a trigger of the same name alone if the database already has one
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_trigger
+                   WHERE tgname = 'before_patient_insert' AND tgrelid = 'patients'::regclass) THEN
+        CREATE TRIGGER before_patient_insert
+            BEFORE INSERT ON patients
+            FOR EACH ROW EXECUTE FUNCTION patients_default_op_reg_no();
+    END IF;
+END
+$$;
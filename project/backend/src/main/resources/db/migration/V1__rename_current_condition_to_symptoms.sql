@@ -1,2 +0,0 @@
--- Rename current_condition column to symptoms in visits table
-ALTER TABLE visits RENAME COLUMN current_condition TO symptoms; 
\ No newline at end of file
@@ -0,0 +1,8 @@
+-- Indexes for the repository lookups (checked by RepositoryQueryPlanTest).
+-- visits (patient_id, visit_date DESC) serves both findByPatientPatientId variants;
+-- nurse uses upper(status) because findByStatusIgnoreCase compares upper(status) = upper(?).
+CREATE INDEX IF NOT EXISTS idx_visits_patient_date ON visits (patient_id, visit_date DESC);
+CREATE INDEX IF NOT EXISTS idx_labtests_patient ON labtests (patient_id);
+CREATE INDEX IF NOT EXISTS idx_labtests_visit ON labtests (visit_id);
+CREATE INDEX IF NOT EXISTS idx_labtests_status ON labtests (status);
+CREATE INDEX IF NOT EXISTS idx_nurse_status_upper ON nurse (upper(status));
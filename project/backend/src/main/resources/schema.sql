@@ -80,4 +80,94 @@ CREATE TABLE IF NOT EXISTS users (
     email VARCHAR(255) NOT NULL UNIQUE,
     password VARCHAR(255) NOT NULL,
     role VARCHAR(50)
-); 
\ No newline at end of file
+); 
+
+-- Change log replayed by /api/sync. tx_id is the writing transaction, so readers can tell
+-- when every entry below a position has committed.
+CREATE TABLE IF NOT EXISTS change_log (
+    change_id BIGSERIAL PRIMARY KEY,
+    tx_id XID8 NOT NULL DEFAULT pg_current_xact_id(),
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id VARCHAR(255) NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_change_log_position ON change_log (tx_id, change_id);
+
+-- Visit and lab test IDs are allocated by Hibernate in blocks of 50 (pooled optimizer),
+-- must match allocationSize on the entities
+ALTER SEQUENCE IF EXISTS visits_visit_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS labtests_test_id_seq INCREMENT BY 50;
+
+-- Default OP and REG numbers from the patient ID, as db/migration/V1 does. The script runner splits
+-- statements on semicolons outside quotes and knows nothing of $$, so the bodies are quoted strings.
+UPDATE patients
+SET op_no = COALESCE(op_no, CONCAT('OP', patient_id)),
+    reg_no = COALESCE(reg_no, CONCAT('REG', patient_id))
+WHERE op_no IS NULL OR reg_no IS NULL;
+
+CREATE OR REPLACE FUNCTION patients_default_op_reg_no() RETURNS trigger AS '
+BEGIN
+    IF NEW.op_no IS NULL THEN
+        NEW.op_no := CONCAT(''OP'', NEW.patient_id);
+    END IF;
+    IF NEW.reg_no IS NULL THEN
+        NEW.reg_no := CONCAT(''REG'', NEW.patient_id);
+    END IF;
+    RETURN NEW;
+END;
+' LANGUAGE plpgsql;
+
+-- Leave a trigger of the same name alone if the database already has one
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_trigger
+                   WHERE tgname = ''before_patient_insert'' AND tgrelid = ''patients''::regclass) THEN
+        CREATE TRIGGER before_patient_insert
+            BEFORE INSERT ON patients
+            FOR EACH ROW EXECUTE FUNCTION patients_default_op_reg_no();
+    END IF;
+END
+';
+
+-- Indexes for the repository lookups (checked by RepositoryQueryPlanTest)
+CREATE INDEX IF NOT EXISTS idx_visits_patient_date ON visits (patient_id, visit_date DESC);
+CREATE INDEX IF NOT EXISTS idx_labtests_patient ON labtests (patient_id);
+CREATE INDEX IF NOT EXISTS idx_labtests_visit ON labtests (visit_id);
+CREATE INDEX IF NOT EXISTS idx_labtests_status ON labtests (status);
+CREATE INDEX IF NOT EXISTS idx_nurse_status_upper ON nurse (upper(status));
+
+-- Idempotency-Key claims and stored responses for retried POSTs (status is NULL while the first request runs)
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    status INT,
+    content_type VARCHAR(255),
+    body BYTEA,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created ON idempotency_keys (created_at);
+
+-- Review queue of probable duplicate patients (patient_id_a < patient_id_b), filled by PatientDuplicateService
+CREATE TABLE IF NOT EXISTS patient_duplicates (
+    patient_id_a VARCHAR(255) NOT NULL,
+    patient_id_b VARCHAR(255) NOT NULL,
+    score DOUBLE PRECISION NOT NULL,
+    reasons VARCHAR(255),
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    detected_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    reviewed_at TIMESTAMP,
+    PRIMARY KEY (patient_id_a, patient_id_b)
+);
+CREATE INDEX IF NOT EXISTS idx_patient_duplicates_b ON patient_duplicates (patient_id_b);
+CREATE INDEX IF NOT EXISTS idx_patient_duplicates_pending ON patient_duplicates (score DESC) WHERE status = 'PENDING';
+
+-- Row versions behind the ETag / Last-Modified of GET responses, bumped by the application on every change
+ALTER TABLE patients ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE patients ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE visits ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE visits ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE labtests ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE labtests ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE nurse ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE nurse ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
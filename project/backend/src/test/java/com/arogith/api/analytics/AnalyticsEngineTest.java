@@ -0,0 +1,183 @@
+package com.arogith.api.analytics;
+
+import com.arogith.api.analytics.AnalyticsQuery.Dimension;
+import com.arogith.api.config.AnalyticsProperties;
+import com.arogith.api.config.BranchProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Group-by and filter results over a known data set, loaded through a stubbed SnapshotLoader.
+ */
+class AnalyticsEngineTest {
+
+    private final SnapshotLoader loader = mock(SnapshotLoader.class);
+    private AnalyticsEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = new AnalyticsEngine(new AnalyticsProperties(), new BranchProperties(), loader);
+        doAnswer(invocation -> {
+            ColumnStore store = invocation.getArgument(0);
+            int branch = store.branchCode("public");
+            store.upsertPatient(branch, "P1", 34, "Male");
+            store.upsertPatient(branch, "P2", 8, "female");
+            store.upsertPatient(branch, "P3", null, null);
+            store.upsertVisit(branch, 1, day(2024, 1, 1), "Fever", null, "P1");
+            store.upsertVisit(branch, 2, day(2024, 1, 3), "fever ", "headache", "P1");
+            store.upsertVisit(branch, 3, day(2024, 1, 8), "Cough and fever", null, "P2");
+            store.upsertVisit(branch, 4, day(2024, 2, 1), "Cough", "headache", "P2");
+            store.upsertVisit(branch, 5, AnalyticsSnapshot.NO_DAY, "Fever", null, "P3");
+            invocation.<Map<String, String>>getArgument(2).put("public", "1");
+            return null;
+        }).when(loader).loadAll(any(), anyList(), anyMap());
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    void queriesWaitForTheFirstLoad() {
+        assertThrows(IllegalStateException.class, () -> engine.query(query(List.of(Dimension.COMPLAINT))));
+    }
+
+    @Test
+    void groupsByComplaintAndTime() {
+        engine.refresh();
+
+        assertEquals(Map.of("fever", 3L, "cough and fever", 1L, "cough", 1L),
+                counts(engine.query(query(List.of(Dimension.COMPLAINT)))));
+
+        Map<String, Object> feverByWeek = engine.query(new AnalyticsQuery(List.of(Dimension.WEEK), "FEVER", null, null,
+                null, null, null, null, null, 10));
+        Map<String, Long> expected = new HashMap<>();
+        expected.put("2024-01-01", 2L);
+        expected.put("2024-01-08", 1L);
+        expected.put(null, 1L);
+        assertEquals(expected, counts(feverByWeek));
+        assertEquals(4L, feverByWeek.get("matchedVisits"));
+        assertEquals(5, feverByWeek.get("snapshotVisits"));
+
+        Map<String, Long> byMonth = counts(engine.query(query(List.of(Dimension.MONTH))));
+        assertEquals(3L, byMonth.get("2024-01"));
+        assertEquals(1L, byMonth.get("2024-02"));
+        assertEquals(1L, byMonth.get(null));
+    }
+
+    @Test
+    void filtersOnDatesDemographicsAndSymptoms() {
+        engine.refresh();
+
+        assertEquals(Map.of("30-39|male", 2L, "0-9|female", 1L),
+                counts(engine.query(new AnalyticsQuery(List.of(Dimension.AGE_BAND, Dimension.GENDER), null, null, null,
+                        null, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), null, null, 10))));
+        assertEquals(Map.of("unknown|", 1L, "0-19|female", 2L, "20-39|male", 2L),
+                counts(engine.query(new AnalyticsQuery(List.of(Dimension.AGE_BAND, Dimension.GENDER), null, null, null,
+                        null, null, null, null, null, 20))));
+
+        // A patient of unknown age never passes an age filter
+        assertEquals(2L, matched(new AnalyticsQuery(List.of(), null, null, null, null, null, null, 10, null, 10)));
+        assertEquals(2L, matched(new AnalyticsQuery(List.of(), null, null, "FEMALE", null, null, null, null, null, 10)));
+        assertEquals(2L, matched(new AnalyticsQuery(List.of(), null, "Headache", null, null, null, null, null, null, 10)));
+        assertEquals(0L, matched(new AnalyticsQuery(List.of(), "rash", null, null, null, null, null, null, null, 10)));
+    }
+
+    @Test
+    void changesAppliedAfterTheLoadShowInTheNextSnapshot() throws Exception {
+        engine.refresh();
+        doAnswer(invocation -> {
+            ColumnStore store = invocation.getArgument(0);
+            int branch = store.branchCode("public");
+            store.removeVisit(branch, 1);
+            store.upsertVisit(branch, 4, day(2024, 2, 1), "Fever", null, "P2");
+            return 2;
+        }).when(loader).applyChanges(any(), anyMap());
+
+        engine.refresh();
+
+        assertEquals(Map.of("fever", 3L, "cough and fever", 1L),
+                counts(engine.query(query(List.of(Dimension.COMPLAINT)))));
+        assertEquals(4, engine.getSnapshotVisits());
+    }
+
+    @Test
+    void largeSnapshotsCountTheSameWhenSplitAcrossThePool() throws Exception {
+        String[] complaints = {"fever", "cough", "headache", "rash", "fever and cough"};
+        long[] expected = new long[complaints.length];
+        doAnswer(invocation -> {
+            ColumnStore store = invocation.getArgument(0);
+            int branch = store.branchCode("public");
+            for (int i = 0; i < 200; i++) {
+                store.upsertPatient(branch, "P" + i, i % 90, i % 2 == 0 ? "male" : "female");
+            }
+            for (int visit = 0; visit < 100_000; visit++) {
+                int complaint = (visit * 7) % complaints.length;
+                store.upsertVisit(branch, visit, day(2023, 1, 1) + visit % 365, complaints[complaint], null,
+                        "P" + visit % 200);
+            }
+            invocation.<Map<String, String>>getArgument(2).put("public", "1");
+            return null;
+        }).when(loader).loadAll(any(), anyList(), anyMap());
+        // Patient Pi is i % 90 years old
+        for (int visit = 0; visit < 100_000; visit++) {
+            if ((visit % 200) % 90 >= 40) {
+                expected[(visit * 7) % complaints.length]++;
+            }
+        }
+
+        engine.refresh();
+
+        Map<String, Long> counts = counts(engine.query(new AnalyticsQuery(List.of(Dimension.COMPLAINT), null, null, null,
+                null, null, null, 40, null, 10)));
+        Map<String, Long> expectedCounts = new HashMap<>();
+        for (int i = 0; i < complaints.length; i++) {
+            expectedCounts.put(complaints[i], expected[i]);
+        }
+        assertEquals(expectedCounts, counts);
+    }
+
+    private long matched(AnalyticsQuery query) {
+        return (long) engine.query(query).get("matchedVisits");
+    }
+
+    private static AnalyticsQuery query(List<Dimension> groupBy) {
+        return new AnalyticsQuery(groupBy, null, null, null, null, null, null, null, null, 10);
+    }
+
+    /**
+     * Visits per group, keyed by the group's values joined with "|" (a single value as is).
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> counts(Map<String, Object> result) {
+        List<String> groupBy = (List<String>) result.get("groupBy");
+        Map<String, Long> counts = new HashMap<>();
+        for (Map<String, Object> group : (List<Map<String, Object>>) result.get("groups")) {
+            String key = groupBy.size() == 1 ? (String) group.get(groupBy.get(0))
+                    : groupBy.stream().map(dimension -> group.get(dimension) == null ? "" : (String) group.get(dimension))
+                    .collect(Collectors.joining("|"));
+            counts.put(key, (Long) group.get("visits"));
+        }
+        return counts;
+    }
+
+    private static int day(int year, int month, int dayOfMonth) {
+        return (int) LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+}
@@ -0,0 +1,87 @@
+package com.arogith.api.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnStoreTest {
+
+    private static final int JAN_1 = (int) LocalDate.of(2024, 1, 1).toEpochDay();
+
+    @Test
+    void upsertsReplaceRowsAndRemovesAreCountedOnce() {
+        ColumnStore store = new ColumnStore();
+        int branch = store.branchCode("public");
+        store.upsertPatient(branch, "P1", 34, "Male");
+        store.upsertVisit(branch, 1, JAN_1, "Fever ", null, "P1");
+        store.upsertVisit(branch, 2, JAN_1 + 1, "fever", "cough", "P1");
+        store.upsertVisit(branch, 1, JAN_1 + 2, "Cough", null, "P1");
+        assertEquals(2, store.visitCount());
+
+        store.removeVisit(branch, 2);
+        store.removeVisit(branch, 2);
+        store.removeVisit(branch, 99);
+        assertEquals(1, store.visitCount());
+
+        store.upsertVisit(branch, 2, JAN_1 + 1, "FEVER", null, "P1");
+        AnalyticsSnapshot snapshot = store.publish();
+        assertEquals(2, snapshot.rows);
+        assertEquals(2, snapshot.visits);
+        assertEquals("cough", snapshot.complaints[snapshot.complaint[0]]);
+        assertEquals(JAN_1 + 2, snapshot.day[0]);
+        // "Fever ", "fever" and "FEVER" share one dictionary code
+        assertEquals("fever", snapshot.complaints[snapshot.complaint[1]]);
+        assertEquals(2, snapshot.complaints.length);
+        // The day range only ever widens; it sizes the time buckets
+        assertEquals(JAN_1, snapshot.minDay);
+        assertEquals(34, snapshot.patientAge[snapshot.patient[0]]);
+        assertEquals("male", snapshot.genders[snapshot.patientGender[snapshot.patient[0]]]);
+    }
+
+    @Test
+    void sameVisitIdInAnotherBranchIsAnotherVisit() {
+        ColumnStore store = new ColumnStore();
+        int main = store.branchCode("public");
+        int north = store.branchCode("branch_north");
+        store.upsertVisit(main, 1, JAN_1, "fever", null, "P1");
+        store.upsertVisit(north, 1, JAN_1, "fever", null, "P1");
+        assertEquals(2, store.visitCount());
+
+        AnalyticsSnapshot snapshot = store.publish();
+        assertTrue(snapshot.patient[0] != snapshot.patient[1]);
+        assertEquals("branch_north", snapshot.branches[snapshot.branch[1]]);
+    }
+
+    @Test
+    void publishedSnapshotIsNotChangedByLaterWrites() {
+        ColumnStore store = new ColumnStore();
+        int branch = store.branchCode("public");
+        store.upsertPatient(branch, "P1", 34, "male");
+        store.upsertVisit(branch, 1, JAN_1, "fever", null, "P1");
+        store.upsertVisit(branch, 2, JAN_1, "fever", null, "P1");
+        AnalyticsSnapshot published = store.publish();
+
+        store.upsertVisit(branch, 1, JAN_1 + 5, "cough", null, "P1");
+        store.removeVisit(branch, 2);
+        store.upsertPatient(branch, "P1", 35, "male");
+        for (long visitId = 3; visitId < 3000; visitId++) {
+            store.upsertVisit(branch, visitId, JAN_1, "fever", null, "P1");
+        }
+
+        assertEquals(2, published.rows);
+        assertEquals(2, published.visits);
+        assertEquals("fever", published.complaints[published.complaint[0]]);
+        assertEquals(JAN_1, published.day[0]);
+        assertFalse(published.removed[1]);
+        assertEquals(34, published.patientAge[published.patient[0]]);
+
+        AnalyticsSnapshot next = store.publish();
+        assertEquals(2998, next.visits);
+        assertTrue(next.removed[1]);
+        assertEquals(35, next.patientAge[next.patient[0]]);
+    }
+}
@@ -0,0 +1,109 @@
+package com.arogith.api.analytics;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Full load and change-log replay against an embedded Postgres, with just the columns the loader reads.
+ */
+class SnapshotLoaderTest {
+
+    private static EmbeddedPostgres embeddedPostgres;
+    private static SnapshotLoader loader;
+
+    @BeforeAll
+    static void start() throws IOException, SQLException {
+        embeddedPostgres = EmbeddedPostgres.builder().start();
+        execute("CREATE TABLE patients (patient_id VARCHAR(50) PRIMARY KEY, age INT, gender VARCHAR(20))",
+                "CREATE TABLE visits (visit_id BIGINT PRIMARY KEY, visit_date TIMESTAMP, complaint TEXT, symptoms TEXT, "
+                        + "patient_id VARCHAR(50))",
+                "CREATE TABLE change_log (change_id BIGSERIAL PRIMARY KEY, tx_id XID8 NOT NULL DEFAULT pg_current_xact_id(), "
+                        + "entity_type VARCHAR(20) NOT NULL, entity_id VARCHAR(255) NOT NULL, operation VARCHAR(10) NOT NULL)",
+                "INSERT INTO patients VALUES ('P1', 34, 'Male'), ('P2', 8, 'Female')",
+                "INSERT INTO visits VALUES (1, '2024-01-01 09:30', 'Fever', NULL, 'P1'), "
+                        + "(2, '2024-01-02 10:00', 'Cough', NULL, 'P2'), (3, NULL, 'Fever', NULL, 'P2')");
+
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(embeddedPostgres.getJdbcUrl("postgres", "postgres"));
+        properties.setUsername("postgres");
+        properties.setPassword("postgres");
+        loader = new SnapshotLoader(properties, 2);
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        embeddedPostgres.close();
+    }
+
+    @Test
+    void replaysLoggedChangesAndWaitsForRunningTransactions() throws SQLException {
+        ColumnStore store = new ColumnStore();
+        Map<String, String> horizons = new HashMap<>();
+        loader.loadAll(store, List.of("public"), horizons);
+        assertEquals(3, store.visitCount());
+        assertEquals(Map.of("fever", 2L, "cough", 1L), complaints(store.publish()));
+
+        execute("BEGIN",
+                "UPDATE visits SET complaint = 'Rash' WHERE visit_id = 1",
+                "DELETE FROM visits WHERE visit_id = 2",
+                "INSERT INTO visits VALUES (4, '2024-01-05 08:00', 'fever', NULL, 'P1')",
+                "UPDATE patients SET age = 35 WHERE patient_id = 'P1'",
+                "INSERT INTO change_log (entity_type, entity_id, operation) VALUES ('visit', '1', 'UPSERT'), "
+                        + "('visit', '2', 'DELETE'), ('visit', '4', 'UPSERT'), ('patient', 'P1', 'UPSERT')",
+                "COMMIT");
+        assertEquals(4, loader.applyChanges(store, horizons));
+
+        AnalyticsSnapshot replayed = store.publish();
+        assertEquals(3, replayed.visits);
+        assertEquals(Map.of("fever", 2L, "rash", 1L), complaints(replayed));
+        assertEquals(35, replayed.patientAge[replayed.patient[0]]);
+
+        try (Connection slow = embeddedPostgres.getPostgresDatabase().getConnection();
+             Statement statement = slow.createStatement()) {
+            slow.setAutoCommit(false);
+            statement.execute("INSERT INTO visits VALUES (5, '2024-01-06 08:00', 'Cough', NULL, 'P2')");
+            statement.execute("INSERT INTO change_log (entity_type, entity_id, operation) VALUES ('visit', '5', 'UPSERT')");
+            execute("INSERT INTO visits VALUES (6, '2024-01-06 09:00', 'Cough', NULL, 'P2')",
+                    "INSERT INTO change_log (entity_type, entity_id, operation) VALUES ('visit', '6', 'UPSERT')");
+
+            // Neither is applied while the older transaction is running, and the horizon stays before it
+            assertEquals(0, loader.applyChanges(store, horizons));
+            slow.commit();
+        }
+        assertEquals(2, loader.applyChanges(store, horizons));
+        assertEquals(5, store.visitCount());
+        assertEquals(0, loader.applyChanges(store, horizons));
+    }
+
+    private static Map<String, Long> complaints(AnalyticsSnapshot snapshot) {
+        Map<String, Long> counts = new HashMap<>();
+        for (int row = 0; row < snapshot.rows; row++) {
+            if (!snapshot.removed[row]) {
+                counts.merge(snapshot.complaints[snapshot.complaint[row]], 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static void execute(String... sql) throws SQLException {
+        try (Connection connection = embeddedPostgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String each : sql) {
+                statement.execute(each);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.arogith.api.audit;
+
+import com.arogith.api.config.AuditProperties;
+import com.arogith.api.config.BranchContext;
+import com.arogith.api.config.BranchProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentAppendsAcrossSegmentsAreAllQueryable() throws Exception {
+        AuditLog auditLog = open();
+        int threads = 8;
+        int perThread = 5_000;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String patientId = String.format("%03d", t);
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    auditLog.append(new AuditRecord(1_000_000L + i, AuditAction.READ, AuditEntity.VISIT,
+                            String.valueOf(i), patientId, "N0001", "10.0.0.1", null));
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        auditLog.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.filter(AuditSegment::isSegmentFile).count() > 1, "expected the log to roll over");
+        }
+        assertEquals(threads * perThread, auditLog.getAppended());
+        assertEquals(0, auditLog.getDropped());
+
+        AuditReader reader = new AuditReader(directory);
+        for (int t = 0; t < threads; t++) {
+            List<AuditRecord> records = reader.query(null, String.format("%03d", t), 0, Long.MAX_VALUE, Integer.MAX_VALUE);
+            assertEquals(perThread, records.size());
+        }
+        assertEquals(threads * perThread, reader.query(null, null, 0, Long.MAX_VALUE, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void queryFiltersByTimeRangeAndReadsTheOpenSegment() throws Exception {
+        AuditLog auditLog = open();
+        for (int i = 0; i < 100; i++) {
+            auditLog.append(new AuditRecord(i * 1000L, AuditAction.UPDATE, AuditEntity.LAB_TEST,
+                    String.valueOf(i), i % 2 == 0 ? "001" : null, "N0001", null, null));
+        }
+
+        // Still unsealed: answered by scanning
+        List<AuditRecord> records = auditLog.query("001", 10_000, 19_000, 100);
+        assertEquals(5, records.size());
+        assertEquals(10_000, records.get(0).timestamp());
+        AuditRecord last = records.get(records.size() - 1);
+        assertEquals("18", last.entityId());
+        assertEquals(AuditAction.UPDATE, last.action());
+        assertEquals("N0001", last.actor());
+
+        auditLog.close();
+
+        // Sealed: answered from the header range and the patient index
+        AuditReader reader = new AuditReader(directory);
+        assertEquals(5, reader.query(null, "001", 10_000, 19_000, 100).size());
+        assertEquals(3, reader.query(null, "001", 0, Long.MAX_VALUE, 3).size());
+        assertEquals(0, reader.query(null, "001", 200_000, 300_000, 100).size());
+    }
+
+    @Test
+    void recordsAfterAnUnpublishedOneSurviveACrash() throws Exception {
+        AuditLog crashed = open();
+        for (int i = 0; i < 10; i++) {
+            crashed.append(new AuditRecord(i * 1000L, AuditAction.READ, AuditEntity.VISIT,
+                    String.valueOf(i), "001", "N0001", null, null));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(AuditSegment::isSegmentFile).findFirst().orElseThrow();
+        }
+        // The fifth writer died after copying its record but before publishing the length
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int offset = AuditSegment.HEADER_SIZE;
+            for (int i = 0; i < 4; i++) {
+                offset += AuditSegment.recordLength(buffer, offset);
+            }
+            buffer.putInt(offset, 0);
+            buffer.force();
+        }
+
+        // Unsealed: scanned past the gap
+        List<AuditRecord> scanned = new AuditReader(directory).query(null, "001", 0, Long.MAX_VALUE, 100);
+        assertEquals(9, scanned.size());
+        assertEquals("9", scanned.get(8).entityId());
+
+        // Sealed by the next start, without a close: header, index and data end cover the later records
+        AuditLog restarted = open();
+        restarted.close();
+        AuditReader reader = new AuditReader(directory);
+        List<AuditRecord> indexed = reader.query(null, "001", 0, Long.MAX_VALUE, 100);
+        assertEquals(9, indexed.size());
+        assertTrue(indexed.stream().noneMatch(record -> "4".equals(record.entityId())));
+        assertEquals(5, reader.query(null, null, 5_000, Long.MAX_VALUE, 100).size());
+    }
+
+    @Test
+    void recordsAreKeptApartByBranch() throws Exception {
+        BranchProperties branches = new BranchProperties();
+        branches.setEnabled(true);
+        branches.setSchemas(Map.of("main", "public", "north", "branch_north"));
+        AuditLog auditLog = open(branches);
+        try {
+            auditLog.record(AuditAction.READ, AuditEntity.PATIENT, "082", "082");
+            BranchContext.callInSchema("branch_north", () -> {
+                auditLog.record(AuditAction.UPDATE, AuditEntity.PATIENT, "082", "082");
+                return null;
+            });
+
+            List<AuditRecord> main = auditLog.query("082", 0, Long.MAX_VALUE, 100);
+            assertEquals(1, main.size());
+            assertEquals(AuditAction.READ, main.get(0).action());
+            assertEquals("public", main.get(0).branch());
+            List<AuditRecord> north = BranchContext.callInSchema("branch_north",
+                    () -> query(auditLog, "082"));
+            assertEquals(1, north.size());
+            assertEquals(AuditAction.UPDATE, north.get(0).action());
+        } finally {
+            auditLog.close();
+        }
+        assertEquals(1, new AuditReader(directory).query("branch_north", "082", 0, Long.MAX_VALUE, 100).size());
+        assertEquals(2, new AuditReader(directory).query(null, "082", 0, Long.MAX_VALUE, 100).size());
+    }
+
+    private static List<AuditRecord> query(AuditLog auditLog, String patientId) {
+        try {
+            return auditLog.query(patientId, 0, Long.MAX_VALUE, 100);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private AuditLog open() throws Exception {
+        return open(new BranchProperties());
+    }
+
+    private AuditLog open(BranchProperties branches) throws Exception {
+        AuditProperties properties = new AuditProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSizeMb(1);
+        AuditLog auditLog = new AuditLog(properties, branches);
+        auditLog.open();
+        return auditLog;
+    }
+}
@@ -0,0 +1,149 @@
+package com.arogith.api.benchmark;
+
+import com.arogith.api.config.AdmissionProperties;
+import com.arogith.api.filter.AdmissionControlFilter;
+import jakarta.servlet.FilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares today's execution model (200 Tomcat platform threads queueing on a 10-connection pool with a
+ * 30 s connection timeout) against virtual threads with and without the admission filter.
+ * The database is simulated by a semaphore sized like the Hikari pool, held for a fixed service time,
+ * and requests arrive open-loop at a rate above the pool's capacity to reproduce a morning burst.
+ *
+ * Run with:
+ * mvn -B test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.arogith.api.benchmark.AdmissionBenchmark
+ * Tunables (system properties): bench.rate (req/s, default 800), bench.seconds (default 5),
+ * bench.serviceMs (default 20), bench.poolSize (default 10).
+ * The virtual-thread scenarios only run on Java 21+.
+ */
+public class AdmissionBenchmark {
+
+    private static final int RATE = Integer.getInteger("bench.rate", 800);
+    private static final int SECONDS = Integer.getInteger("bench.seconds", 5);
+    private static final int SERVICE_MS = Integer.getInteger("bench.serviceMs", 20);
+    private static final int POOL_SIZE = Integer.getInteger("bench.poolSize", 10);
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("rate=%d req/s, duration=%d s, service=%d ms, pool=%d (capacity ~%d req/s)%n",
+                RATE, SECONDS, SERVICE_MS, POOL_SIZE, POOL_SIZE * 1000 / SERVICE_MS);
+        System.out.printf("%-34s %8s %8s %8s %10s %9s %9s %9s%n",
+                "scenario", "ok", "503", "timeout", "ok/s", "p50 ms", "p99 ms", "p999 ms");
+
+        run("platform-200 (today)", platformExecutor(), 30_000, false);
+        ExecutorService virtualExecutor = virtualExecutor();
+        if (virtualExecutor == null) {
+            System.out.println("virtual threads unavailable on Java " + Runtime.version().feature() + ", skipped");
+            return;
+        }
+        run("virtual, no admission", virtualExecutor, 30_000, false);
+        run("virtual + admission (5 s pool timeout)", virtualExecutor(), 5_000, true);
+    }
+
+    private static void run(String name, ExecutorService executor, long poolTimeoutMs, boolean admission)
+            throws Exception {
+        Semaphore pool = new Semaphore(POOL_SIZE);
+        AdmissionControlFilter filter = null;
+        if (admission) {
+            AdmissionProperties properties = new AdmissionProperties();
+            properties.setEnabled(true);
+            properties.setReservedConnections(0);
+            filter = new AdmissionControlFilter(properties, POOL_SIZE);
+        }
+        FilterChain database = (request, response) -> {
+            try {
+                if (!pool.tryAcquire(poolTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    ((MockHttpServletResponse) response).setStatus(500);
+                    return;
+                }
+                try {
+                    Thread.sleep(SERVICE_MS);
+                } finally {
+                    pool.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        int total = RATE * SECONDS;
+        long intervalNanos = 1_000_000_000L / RATE;
+        CountDownLatch done = new CountDownLatch(total);
+        ConcurrentLinkedQueue<Long> okLatencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger timedOut = new AtomicInteger();
+        AdmissionControlFilter admissionFilter = filter;
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long arrival = begin + i * intervalNanos;
+            long delay = arrival - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            executor.execute(() -> {
+                try {
+                    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/patients");
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    if (admissionFilter != null) {
+                        admissionFilter.doFilter(request, response, database);
+                    } else {
+                        database.doFilter(request, response);
+                    }
+                    if (response.getStatus() == 503) {
+                        rejected.incrementAndGet();
+                    } else if (response.getStatus() == 500) {
+                        timedOut.incrementAndGet();
+                    } else {
+                        okLatencies.add(System.nanoTime() - arrival);
+                    }
+                } catch (Exception e) {
+                    timedOut.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        double elapsedSeconds = (System.nanoTime() - begin) / 1e9;
+        executor.shutdown();
+
+        long[] sorted = okLatencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%-34s %8d %8d %8d %10.1f %9.1f %9.1f %9.1f%n",
+                name, sorted.length, rejected.get(), timedOut.get(), sorted.length / elapsedSeconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static ExecutorService platformExecutor() {
+        // Tomcat default: 200 worker threads in front of an effectively unbounded accept backlog
+        return new ThreadPoolExecutor(200, 200, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    }
+
+    private static ExecutorService virtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
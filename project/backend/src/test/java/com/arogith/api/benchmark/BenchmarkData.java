@@ -0,0 +1,169 @@
+package com.arogith.api.benchmark;
+
+import com.arogith.api.model.LabTest;
+import com.arogith.api.model.Nurse;
+import com.arogith.api.model.Patient;
+import com.arogith.api.model.Visit;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic but realistically shaped entities for the benchmarks, generated from a fixed seed.
+ */
+final class BenchmarkData {
+
+    private static final String[] NAMES = {"Lakshmi", "Ravi", "Sita", "Venkatesh", "Anjali", "Suresh", "Padma", "Kiran"};
+    private static final String[] SURNAMES = {"Reddy", "Rao", "Sharma", "Naidu", "Goud", "Kumar", "Devi", "Varma"};
+    private static final String[] COMPLAINTS = {"Fever", "Cough and cold", "Headache", "Stomach pain",
+            "Body ache", "Joint pain", "Breathlessness", "Skin rash"};
+    private static final String[] TESTS = {"CBC", "Blood Sugar (Fasting)", "Lipid Profile", "LFT", "RFT",
+            "Urine Routine", "Malaria Antigen", "Dengue NS1"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * ObjectMapper configured like Spring Boot's auto-configured one for this application.
+     */
+    static ObjectMapper objectMapper() {
+        return objectMapper(null);
+    }
+
+    /**
+     * Same configuration on top of a binary format (CBORFactory, SmileFactory); null for JSON.
+     */
+    static ObjectMapper objectMapper(JsonFactory factory) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.FAIL_ON_EMPTY_BEANS, SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (factory != null) {
+            builder.factory(factory);
+        }
+        return builder.build();
+    }
+
+    static List<Patient> patients(int count) {
+        Random random = new Random(42);
+        List<Patient> patients = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            patients.add(patient(i, random));
+        }
+        return patients;
+    }
+
+    static List<Visit> visits(List<Patient> patients) {
+        Random random = new Random(43);
+        List<Visit> visits = new ArrayList<>(patients.size());
+        long visitId = 1;
+        for (Patient patient : patients) {
+            visits.add(visit(visitId++, patient, random));
+        }
+        return visits;
+    }
+
+    static List<LabTest> labTests(List<Visit> visits) {
+        Random random = new Random(44);
+        List<LabTest> labTests = new ArrayList<>(visits.size());
+        long testId = 1;
+        for (Visit visit : visits) {
+            LabTest labTest = new LabTest();
+            labTest.setTestId(testId++);
+            labTest.setTestName(TESTS[random.nextInt(TESTS.length)]);
+            labTest.setResult(random.nextBoolean() ? String.format("%.1f", 4 + random.nextDouble() * 10) : null);
+            labTest.setReferenceRange("4.0 - 11.0");
+            labTest.setStatus(labTest.getResult() != null ? "Completed" : "Pending");
+            labTest.setVisit(visit);
+            labTest.setPatient(visit.getPatient());
+            labTest.setTestGivenAt(visit.getVisitDate().plusMinutes(20));
+            labTest.setResultUpdatedAt(labTest.getResult() != null ? visit.getVisitDate().plusHours(3) : null);
+            labTests.add(labTest);
+        }
+        return labTests;
+    }
+
+    static List<Nurse> nurses(int count) {
+        List<Nurse> nurses = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Nurse nurse = new Nurse();
+            nurse.setNurseId(String.format("N%04d", i));
+            nurse.setName(NAMES[i % NAMES.length] + " " + SURNAMES[i % SURNAMES.length]);
+            nurse.setEmail("nurse" + i + "@arogith.in");
+            nurse.setPassword("secret" + i);
+            nurse.setRole("NURSE");
+            nurse.setStatus(i % 3 == 0 ? "Offline" : "Active");
+            nurse.setCreatedAt(LocalDateTime.of(2024, 1, 1, 9, 0).plusDays(i));
+            nurses.add(nurse);
+        }
+        return nurses;
+    }
+
+    /**
+     * The nested body the app posts to /api/patients.
+     */
+    static Map<String, Object> registrationBody() {
+        Map<String, Object> patient = new LinkedHashMap<>();
+        patient.put("name", "Lakshmi");
+        patient.put("surname", "Reddy");
+        patient.put("father_name", "Venkata");
+        patient.put("gender", "Female");
+        patient.put("age", "42");
+        patient.put("address", "12-4/3, Main Road, Warangal");
+        patient.put("blood_group", "B+");
+        patient.put("phone", "9876543210");
+        patient.put("aadhar_number", "123412341234");
+        Map<String, Object> visit = new LinkedHashMap<>();
+        visit.put("bp", "130/85");
+        visit.put("complaint", "Fever and body ache");
+        visit.put("currentCondition", "High temperature since two days");
+        visit.put("temperature", "101.2");
+        visit.put("weight", "64");
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("patient", patient);
+        body.put("visit", visit);
+        return body;
+    }
+
+    private static Patient patient(int i, Random random) {
+        Patient patient = new Patient();
+        patient.setPatientId(String.format("%03d", i));
+        patient.setName(NAMES[random.nextInt(NAMES.length)]);
+        patient.setSurname(SURNAMES[random.nextInt(SURNAMES.length)]);
+        patient.setFatherName(NAMES[random.nextInt(NAMES.length)]);
+        patient.setGender(random.nextBoolean() ? "Male" : "Female");
+        patient.setAge(1 + random.nextInt(90));
+        patient.setAddress((1 + random.nextInt(40)) + "-" + random.nextInt(9) + ", Gandhi Nagar, Hanamkonda, Telangana");
+        patient.setBloodGroup(random.nextBoolean() ? "O+" : "B+");
+        patient.setPhoneNumber("9" + (100000000L + random.nextInt(899999999)));
+        patient.setAadharNumber(String.valueOf(100000000000L + i));
+        patient.setPhoto("");
+        patient.setTotalVisits(1 + random.nextInt(6));
+        patient.setOpNo("OP" + patient.getPatientId());
+        patient.setRegNo("REG" + patient.getPatientId());
+        return patient;
+    }
+
+    private static Visit visit(long visitId, Patient patient, Random random) {
+        Visit visit = new Visit();
+        visit.setVisitId(visitId);
+        visit.setVisitDate(LocalDateTime.of(2025, 6, 1, 9, 0).plusMinutes(visitId * 7));
+        visit.setBp((100 + random.nextInt(60)) + "/" + (60 + random.nextInt(40)));
+        visit.setComplaint(COMPLAINTS[random.nextInt(COMPLAINTS.length)]);
+        visit.setSymptoms("Since " + (1 + random.nextInt(7)) + " days");
+        visit.setOpNo(patient.getOpNo());
+        visit.setRegNo(patient.getRegNo());
+        visit.setStatus("Active");
+        visit.setTemperature(String.format("%.1f", 97 + random.nextDouble() * 6));
+        visit.setWeight(String.valueOf(20 + random.nextInt(70)));
+        visit.setPrescription("Paracetamol 650mg TDS x 3 days");
+        visit.setPatient(patient);
+        return visit;
+    }
+}
@@ -0,0 +1,207 @@
+package com.arogith.api.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import com.arogith.api.logging.SampledDebugTurboFilter;
+import org.springframework.boot.logging.logback.StructuredLogEncoder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures the logging cost a request thread pays for one patient registration under the current
+ * configuration (synchronous appender, SQL/binder/web DEBUG, body at INFO) and under the prod profile
+ * (async JSON appender, framework loggers at INFO/WARN, application DEBUG sampled).
+ * Output goes to a temp file so the numbers are not dominated by terminal rendering.
+ *
+ * Run with:
+ * mvn -B test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.arogith.api.benchmark.LoggingOverheadBenchmark
+ * Tunables: bench.threads (default 16), bench.requests (per thread, default 20000).
+ */
+public class LoggingOverheadBenchmark {
+
+    private static final int THREADS = Integer.getInteger("bench.threads", 16);
+    private static final int REQUESTS = Integer.getInteger("bench.requests", 20_000);
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("threads=%d, requests/thread=%d%n", THREADS, REQUESTS);
+        System.out.printf("%-10s %12s %10s %10s %10s %10s%n", "profile", "req/s", "mean us", "p50 us", "p99 us", "p999 us");
+        // Warm up both configurations once before measuring
+        run("default", false, true);
+        run("prod", true, true);
+        run("default", false, false);
+        run("prod", true, false);
+    }
+
+    private static void run(String name, boolean prod, boolean warmup) throws Exception {
+        File file = File.createTempFile("logging-benchmark-" + name, ".log");
+        file.deleteOnExit();
+        LoggerContext context = prod ? prodContext(file) : defaultContext(file);
+
+        Logger controller = context.getLogger("com.arogith.api.controller.PatientController");
+        Logger sql = context.getLogger("org.hibernate.SQL");
+        Logger binder = context.getLogger("org.hibernate.orm.jdbc.bind");
+        Logger web = context.getLogger("org.springframework.web.servlet.DispatcherServlet");
+        Map<String, Object> body = sampleBody();
+
+        int requests = warmup ? REQUESTS / 4 : REQUESTS;
+        long[][] latencies = new long[THREADS][requests];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            long[] samples = latencies[t];
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < samples.length; i++) {
+                        long begin = System.nanoTime();
+                        logRegistration(controller, sql, binder, web, body, i);
+                        samples[i] = System.nanoTime() - begin;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        context.stop();
+
+        if (warmup) {
+            return;
+        }
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%-10s %12.0f %10.1f %10.1f %10.1f %10.1f%n", name, all.length / seconds,
+                Arrays.stream(all).average().orElse(0) / 1e3,
+                all[(int) (all.length * 0.50)] / 1e3,
+                all[(int) (all.length * 0.99)] / 1e3,
+                all[(int) (all.length * 0.999)] / 1e3);
+    }
+
+    /**
+     * The statements a POST /api/patients request emits on its own thread.
+     */
+    private static void logRegistration(Logger controller, Logger sql, Logger binder, Logger web,
+                                        Map<String, Object> body, int i) {
+        web.debug("POST \"/api/patients\", parameters={}", "{}");
+        controller.info("Received POST request to create patient");
+        controller.debug("Create patient request body: {}", body);
+        controller.debug("Generated patient ID: {}", i);
+        sql.debug("select count(*) from patients p1_0");
+        sql.debug("insert into patients (aadhar_number,address,age,blood_group,father_name,gender,name,op_no,"
+                + "phone_number,photo,reg_no,surname,total_visits,patient_id) values (?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+        for (int p = 1; p <= 14; p++) {
+            binder.trace("binding parameter ({}:VARCHAR) <- [{}]", p, body.get("name"));
+        }
+        controller.info("Patient created successfully without photo field: {}", i);
+        web.debug("Completed 201 CREATED");
+    }
+
+    private static LoggerContext defaultContext(File file) {
+        LoggerContext context = new LoggerContext();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p %pid --- [%t] %-40.40logger{39} : %m%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+        Appender<ILoggingEvent> appender = fileAppender(context, file, encoder);
+
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(appender);
+        // Levels from application.properties
+        context.getLogger("org.hibernate.SQL").setLevel(Level.DEBUG);
+        context.getLogger("org.hibernate.orm.jdbc.bind").setLevel(Level.TRACE);
+        context.getLogger("org.springframework.web").setLevel(Level.DEBUG);
+        context.getLogger("com.arogith.api").setLevel(Level.DEBUG);
+        return context;
+    }
+
+    private static LoggerContext prodContext(File file) {
+        LoggerContext context = new LoggerContext();
+        context.putObject(Environment.class.getName(), new StandardEnvironment());
+
+        SampledDebugTurboFilter sampler = new SampledDebugTurboFilter();
+        sampler.setContext(context);
+        sampler.setPermitsPerSecond(5);
+        sampler.start();
+        context.addTurboFilter(sampler);
+
+        StructuredLogEncoder encoder = new StructuredLogEncoder();
+        encoder.setContext(context);
+        encoder.setFormat("ecs");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+        Appender<ILoggingEvent> jsonAppender = fileAppender(context, file, encoder);
+
+        AsyncAppender async = new AsyncAppender();
+        async.setContext(context);
+        async.setQueueSize(8192);
+        async.setDiscardingThreshold(0);
+        async.setNeverBlock(true);
+        async.setIncludeCallerData(false);
+        async.addAppender(jsonAppender);
+        async.start();
+
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(async);
+        // Levels from application-prod.properties
+        context.getLogger("org.hibernate.SQL").setLevel(Level.WARN);
+        context.getLogger("org.hibernate.orm.jdbc.bind").setLevel(Level.WARN);
+        context.getLogger("org.springframework.web").setLevel(Level.INFO);
+        context.getLogger("com.arogith.api").setLevel(Level.DEBUG);
+        return context;
+    }
+
+    private static Appender<ILoggingEvent> fileAppender(LoggerContext context, File file,
+                                                        Encoder<ILoggingEvent> encoder) {
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(file.getAbsolutePath());
+        appender.setEncoder(encoder);
+        appender.start();
+        return appender;
+    }
+
+    private static Map<String, Object> sampleBody() {
+        Map<String, Object> patient = new LinkedHashMap<>();
+        patient.put("name", "Lakshmi");
+        patient.put("surname", "Reddy");
+        patient.put("fatherName", "Venkata");
+        patient.put("gender", "Female");
+        patient.put("age", 42);
+        patient.put("address", "12-4/3, Main Road, Warangal");
+        patient.put("bloodGroup", "B+");
+        patient.put("phoneNumber", "9876543210");
+        patient.put("aadharNumber", "123412341234");
+        Map<String, Object> visit = new LinkedHashMap<>();
+        visit.put("bp", "130/85");
+        visit.put("complaint", "Fever and body ache");
+        visit.put("symptoms", "High temperature since two days");
+        visit.put("temperature", "101.2");
+        visit.put("weight", "64");
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("patient", patient);
+        body.put("visit", visit);
+        return body;
+    }
+}
@@ -0,0 +1,131 @@
+package com.arogith.api.benchmark;
+
+import com.arogith.api.model.LabTest;
+import com.arogith.api.model.Patient;
+import com.arogith.api.model.Visit;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode/decode time of the patient, visit and lab test list payloads in JSON, CBOR and Smile,
+ * with and without the gzip step the server applies to responses above 1 KB.
+ * The main method prints the resulting payload sizes:
+ * mvn -B test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.arogith.api.benchmark.PayloadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<Patient> patients;
+    private List<Visit> visits;
+    private List<LabTest> labTests;
+    private byte[] encodedVisits;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = mapper(format);
+        patients = BenchmarkData.patients(size);
+        visits = BenchmarkData.visits(patients);
+        labTests = BenchmarkData.labTests(visits);
+        encodedVisits = objectMapper.writeValueAsBytes(visits);
+    }
+
+    @Benchmark
+    public byte[] encodePatients() throws IOException {
+        return objectMapper.writeValueAsBytes(patients);
+    }
+
+    @Benchmark
+    public byte[] encodeVisits() throws IOException {
+        return objectMapper.writeValueAsBytes(visits);
+    }
+
+    @Benchmark
+    public byte[] encodeLabTests() throws IOException {
+        return objectMapper.writeValueAsBytes(labTests);
+    }
+
+    @Benchmark
+    public byte[] encodeVisitsGzip() throws IOException {
+        return gzip(objectMapper.writeValueAsBytes(visits));
+    }
+
+    @Benchmark
+    public List<Visit> decodeVisits() throws IOException {
+        return objectMapper.readValue(encodedVisits, new TypeReference<List<Visit>>() {
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        List<Patient> patients = BenchmarkData.patients(size);
+        List<Visit> visits = BenchmarkData.visits(patients);
+        Map<String, List<?>> payloads = new LinkedHashMap<>();
+        payloads.put("patients", patients);
+        payloads.put("visits", visits);
+        payloads.put("labtests", BenchmarkData.labTests(visits));
+
+        System.out.printf("%d rows per list%n", size);
+        System.out.printf("%-10s %-6s %12s %12s %8s%n", "payload", "format", "raw bytes", "gzip bytes", "vs json");
+        for (Map.Entry<String, List<?>> payload : payloads.entrySet()) {
+            long jsonGzip = 0;
+            for (String format : List.of("json", "cbor", "smile")) {
+                byte[] raw = mapper(format).writeValueAsBytes(payload.getValue());
+                long compressed = gzip(raw).length;
+                if (jsonGzip == 0) {
+                    jsonGzip = compressed;
+                }
+                System.out.printf("%-10s %-6s %12d %12d %7.0f%%%n", payload.getKey(), format, raw.length, compressed,
+                        100.0 * compressed / jsonGzip);
+            }
+        }
+    }
+
+    private static ObjectMapper mapper(String format) {
+        return switch (format) {
+            case "cbor" -> BenchmarkData.objectMapper(new CBORFactory());
+            case "smile" -> BenchmarkData.objectMapper(new SmileFactory());
+            default -> BenchmarkData.objectMapper();
+        };
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+}
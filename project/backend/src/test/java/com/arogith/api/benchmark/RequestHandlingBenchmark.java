@@ -0,0 +1,98 @@
+package com.arogith.api.benchmark;
+
+import com.arogith.api.controller.PatientRequestParser;
+import com.arogith.api.dto.NurseDTO;
+import com.arogith.api.model.Nurse;
+import com.arogith.api.model.Patient;
+import com.arogith.api.model.Visit;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Per-request CPU work outside the database: parsing the registration payload,
+ * converting nurses to DTOs and writing JSON through Spring's HTTP message converter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestHandlingBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private ObjectMapper objectMapper;
+    private MappingJackson2HttpMessageConverter converter;
+    private byte[] registrationJson;
+    private Map<String, Object> registrationBody;
+    private List<Nurse> nurses;
+    private List<NurseDTO> nurseDtos;
+    private List<Patient> patients;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = BenchmarkData.objectMapper();
+        converter = new MappingJackson2HttpMessageConverter(objectMapper);
+        registrationBody = BenchmarkData.registrationBody();
+        registrationJson = objectMapper.writeValueAsBytes(registrationBody);
+        nurses = BenchmarkData.nurses(50);
+        nurseDtos = nurses.stream().map(NurseDTO::from).collect(Collectors.toList());
+        patients = BenchmarkData.patients(100);
+    }
+
+    @Benchmark
+    public void parseRegistration(Blackhole blackhole) {
+        Patient patient = PatientRequestParser.toPatient(PatientRequestParser.patientData(registrationBody));
+        Visit visit = PatientRequestParser.toVisit(registrationBody, "001");
+        blackhole.consume(patient);
+        blackhole.consume(visit);
+    }
+
+    @Benchmark
+    public void readAndParseRegistration(Blackhole blackhole) throws IOException {
+        Map<String, Object> body = objectMapper.readValue(registrationJson, MAP_TYPE);
+        blackhole.consume(PatientRequestParser.toPatient(PatientRequestParser.patientData(body)));
+        blackhole.consume(PatientRequestParser.toVisit(body, "001"));
+    }
+
+    @Benchmark
+    public List<NurseDTO> convertNursesToDto() {
+        return nurses.stream().map(NurseDTO::from).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] writeNurseListResponse() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(nurseDtos, MediaType.APPLICATION_JSON, message);
+        return message.getBodyAsBytes();
+    }
+
+    @Benchmark
+    public byte[] writePatientListResponse() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(patients, MediaType.APPLICATION_JSON, message);
+        return message.getBodyAsBytes();
+    }
+}
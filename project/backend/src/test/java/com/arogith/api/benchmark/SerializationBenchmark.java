@@ -0,0 +1,87 @@
+package com.arogith.api.benchmark;
+
+import com.arogith.api.model.LabTest;
+import com.arogith.api.model.Patient;
+import com.arogith.api.model.Visit;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the list endpoints' payloads, and the Lombok @Data toString()
+ * that debug logging of entities pays for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<Patient> patients;
+    private List<Visit> visits;
+    private List<LabTest> labTests;
+
+    @Setup
+    public void setUp() {
+        objectMapper = BenchmarkData.objectMapper();
+        patients = BenchmarkData.patients(size);
+        visits = BenchmarkData.visits(patients);
+        labTests = BenchmarkData.labTests(visits);
+    }
+
+    @Benchmark
+    public byte[] serializePatients() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(patients);
+    }
+
+    @Benchmark
+    public byte[] serializeVisits() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(visits);
+    }
+
+    @Benchmark
+    public byte[] serializeLabTests() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(labTests);
+    }
+
+    @Benchmark
+    public void toStringPatients(Blackhole blackhole) {
+        for (Patient patient : patients) {
+            blackhole.consume(patient.toString());
+        }
+    }
+
+    @Benchmark
+    public void toStringVisits(Blackhole blackhole) {
+        for (Visit visit : visits) {
+            blackhole.consume(visit.toString());
+        }
+    }
+
+    @Benchmark
+    public void toStringLabTests(Blackhole blackhole) {
+        for (LabTest labTest : labTests) {
+            blackhole.consume(labTest.toString());
+        }
+    }
+}
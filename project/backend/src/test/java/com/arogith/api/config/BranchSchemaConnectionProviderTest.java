@@ -0,0 +1,99 @@
+package com.arogith.api.config;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BranchSchemaConnectionProviderTest {
+
+    private static EmbeddedPostgres embeddedPostgres;
+    private static LocalContainerEntityManagerFactoryBean factoryBean;
+    private static EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    static void start() throws IOException, SQLException {
+        embeddedPostgres = EmbeddedPostgres.builder().start();
+        DataSource dataSource = embeddedPostgres.getPostgresDatabase();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE public.marker (name TEXT)");
+            statement.execute("INSERT INTO public.marker VALUES ('public')");
+            statement.execute("CREATE SCHEMA branch_a");
+            statement.execute("CREATE TABLE branch_a.marker (name TEXT)");
+            statement.execute("INSERT INTO branch_a.marker VALUES ('branch_a')");
+        }
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan(BranchSchemaConnectionProviderTest.class.getPackageName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+                AvailableSettings.MULTI_TENANT_CONNECTION_PROVIDER, new BranchSchemaConnectionProvider(dataSource),
+                AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, new BranchTenantResolver("public"),
+                // As with open-in-view: one connection for all the transactions of the EntityManager
+                AvailableSettings.CONNECTION_HANDLING, "DELAYED_ACQUISITION_AND_HOLD"));
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        factoryBean.destroy();
+        embeddedPostgres.close();
+    }
+
+    @AfterEach
+    void clearBranch() {
+        BranchContext.clear();
+    }
+
+    @Test
+    void transactionAfterARollbackStillUsesTheBranchSchema() {
+        BranchContext.setSchema("branch_a");
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            assertEquals("branch_a", marker(entityManager));
+            entityManager.getTransaction().rollback();
+
+            entityManager.getTransaction().begin();
+            assertEquals("branch_a", marker(entityManager));
+            entityManager.getTransaction().commit();
+
+            entityManager.getTransaction().begin();
+            assertEquals("branch_a", marker(entityManager));
+            entityManager.getTransaction().rollback();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Test
+    void defaultBranchUsesPublic() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            assertEquals("public", marker(entityManager));
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static String marker(EntityManager entityManager) {
+        return (String) entityManager.createNativeQuery("SELECT name FROM marker").getSingleResult();
+    }
+}
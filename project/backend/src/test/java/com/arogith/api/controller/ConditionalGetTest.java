@@ -0,0 +1,169 @@
+package com.arogith.api.controller;
+
+import com.arogith.api.audit.AuditAction;
+import com.arogith.api.audit.AuditEntity;
+import com.arogith.api.audit.AuditLog;
+import com.arogith.api.config.BranchProperties;
+import com.arogith.api.config.DuplicateDetectionProperties;
+import com.arogith.api.metrics.ClinicalMetrics;
+import com.arogith.api.model.Patient;
+import com.arogith.api.model.Visit;
+import com.arogith.api.repository.PatientRepository;
+import com.arogith.api.service.CacheInvalidationBus;
+import com.arogith.api.service.ChangeLogService;
+import com.arogith.api.service.EntityCacheService;
+import com.arogith.api.service.EntityVersionService;
+import com.arogith.api.service.PatientDuplicateService;
+import com.arogith.api.service.SparseFieldsetService;
+import com.arogith.api.service.VisitService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+
+/**
+ * ETags against an embedded Postgres: a cached representation has to stop revalidating once a
+ * write reaches its rows, including writes Hibernate does not make itself.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ConditionalGet.class, EntityVersionService.class, SparseFieldsetService.class, VisitService.class,
+        PatientDuplicateService.class})
+@EnableConfigurationProperties({BranchProperties.class, DuplicateDetectionProperties.class})
+class ConditionalGetTest {
+
+    private static EmbeddedPostgres embeddedPostgres;
+
+    @MockitoBean
+    private ClinicalMetrics clinicalMetrics;
+    @MockitoBean
+    private EntityCacheService entityCacheService;
+    @MockitoBean
+    private ChangeLogService changeLogService;
+    @MockitoBean
+    private AuditLog auditLog;
+    @MockitoBean
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private ConditionalGet conditionalGet;
+    @Autowired
+    private VisitService visitService;
+    @Autowired
+    private PatientDuplicateService patientDuplicateService;
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @DynamicPropertySource
+    static void embeddedDatabase(DynamicPropertyRegistry registry) throws IOException {
+        embeddedPostgres = EmbeddedPostgres.builder().start();
+        registry.add("spring.datasource.url", () -> embeddedPostgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        embeddedPostgres.close();
+    }
+
+    @Test
+    void newVisitChangesThePatientETag() {
+        savePatient("101");
+        Map<String, Object> where = Map.of("patientId", "101");
+        String etag = etag(Patient.class, where);
+        assertTrue(notModified(Patient.class, where, etag));
+
+        visitService.createVisit("101", new Visit());
+
+        assertFalse(notModified(Patient.class, where, etag));
+    }
+
+    @Test
+    void mergeChangesTheSurvivorAndItsVisitsETags() {
+        savePatient("201");
+        savePatient("202");
+        visitService.createVisit("201", new Visit());
+        visitService.createVisit("202", new Visit());
+        Map<String, Object> survivor = Map.of("patientId", "201");
+        String patientETag = etag(Patient.class, survivor);
+        String visitsETag = etag(Visit.class, survivor);
+        assertTrue(notModified(Patient.class, survivor, patientETag));
+        assertTrue(notModified(Visit.class, survivor, visitsETag));
+
+        patientDuplicateService.merge("201", "202");
+
+        assertFalse(notModified(Patient.class, survivor, patientETag));
+        assertFalse(notModified(Visit.class, survivor, visitsETag));
+    }
+
+    @Test
+    void notModifiedReadsAreAuditedAndUnknownFieldsRejectedFirst() {
+        savePatient("301");
+        visitService.createVisit("301", new Visit());
+        Map<String, Object> where = Map.of("patientId", "301");
+        String patientETag = etag(Patient.class, where);
+        String visitsETag = etag(Visit.class, where);
+        clearInvocations(auditLog);
+
+        assertTrue(conditionalGet.entityNotModified(conditionalRequest(patientETag), Patient.class, where, null));
+        verify(auditLog).record(AuditAction.READ, AuditEntity.PATIENT, "301", "301");
+        assertTrue(notModified(Visit.class, where, visitsETag));
+        verify(auditLog).record(AuditAction.LIST, AuditEntity.VISIT, null, "301");
+
+        assertThrows(SparseFieldsetService.UnknownFieldException.class, () -> conditionalGet.entityNotModified(
+                conditionalRequest(patientETag), Patient.class, where, "name,nickname"));
+    }
+
+    private void savePatient(String patientId) {
+        Patient patient = new Patient();
+        patient.setPatientId(patientId);
+        patient.setName("Name " + patientId);
+        patient.setSurname("Surname");
+        patient.setAadharNumber("9999000" + patientId);
+        patientRepository.save(patient);
+    }
+
+    private String etag(Class<?> type, Map<String, Object> where) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(conditionalGet.listNotModified(new ServletWebRequest(new MockHttpServletRequest("GET", "/"), response),
+                type, where, null));
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+
+    private boolean notModified(Class<?> type, Map<String, Object> where, String etag) {
+        return conditionalGet.listNotModified(conditionalRequest(etag), type, where, null);
+    }
+
+    private static ServletWebRequest conditionalRequest(String etag) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
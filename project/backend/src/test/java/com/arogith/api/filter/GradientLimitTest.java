@@ -0,0 +1,86 @@
+package com.arogith.api.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradientLimitTest {
+
+    private static final String ENDPOINT = "/api/patients/{id}";
+    private static final long FAST = 10_000_000L;
+    private static final long SLOW = 100_000_000L;
+
+    @Test
+    void growsWhileLatencyIsWithinTolerance() {
+        GradientLimit limit = new GradientLimit(100, 10, 1000, 2.0);
+        limit.onSample(ENDPOINT, FAST, 100);
+
+        limit.onSample(ENDPOINT, FAST, 100);
+        // a fifth of the way to 100 + sqrt(100)
+        assertEquals(102, limit.getLimit());
+
+        int previous = limit.getLimit();
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(ENDPOINT, FAST, limit.getLimit());
+            assertTrue(limit.getLimit() >= previous);
+            previous = limit.getLimit();
+        }
+        assertTrue(limit.getLimit() > 120);
+    }
+
+    @Test
+    void shrinksOnceLatencyExceedsTolerance() {
+        GradientLimit limit = new GradientLimit(100, 10, 1000, 2.0);
+        limit.onSample(ENDPOINT, FAST, 100);
+
+        while (limit.getLatencyRatio() < 4.0) {
+            limit.onSample(ENDPOINT, SLOW, limit.getLimit());
+        }
+        int previous = limit.getLimit();
+        limit.onSample(ENDPOINT, SLOW, previous);
+        assertTrue(limit.getLimit() < previous);
+        // at most a tenth lower per sample
+        assertTrue(limit.getLimit() >= previous * 0.9 - 1);
+
+        for (int i = 0; i < 5; i++) {
+            limit.onSample(ENDPOINT, SLOW, limit.getLimit());
+        }
+        assertTrue(limit.getLimit() < 100);
+    }
+
+    @Test
+    void unchangedWhileLessThanHalfTheLimitIsInFlight() {
+        GradientLimit limit = new GradientLimit(100, 10, 1000, 2.0);
+        limit.onSample(ENDPOINT, FAST, 10);
+
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(ENDPOINT, FAST, 49);
+        }
+        assertEquals(100, limit.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(ENDPOINT, SLOW, 49);
+        }
+        assertEquals(100, limit.getLimit());
+        assertTrue(limit.getLatencyRatio() > 2.0);
+    }
+
+    @Test
+    void staysWithinMinAndMax() {
+        GradientLimit growing = new GradientLimit(100, 10, 110, 2.0);
+        growing.onSample(ENDPOINT, FAST, 100);
+        for (int i = 0; i < 50; i++) {
+            growing.onSample(ENDPOINT, FAST, growing.getLimit());
+        }
+        assertEquals(110, growing.getLimit());
+
+        GradientLimit shrinking = new GradientLimit(100, 10, 110, 2.0);
+        shrinking.onSample(ENDPOINT, FAST, 100);
+        // before the baseline has drifted up to the new latency
+        for (int i = 0; i < 40; i++) {
+            shrinking.onSample(ENDPOINT, SLOW, shrinking.getLimit());
+        }
+        assertEquals(10, shrinking.getLimit());
+    }
+}
@@ -0,0 +1,182 @@
+package com.arogith.api.filter;
+
+import com.arogith.api.config.IdempotencyProperties;
+import com.arogith.api.service.IdempotencyStore;
+import com.arogith.api.service.IdempotencyStore.StoredResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyFilterTest {
+
+    private static final String PATH = "/api/patients";
+
+    private final IdempotencyStore store = mock(IdempotencyStore.class);
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyFilter(new IdempotencyProperties(), store);
+        when(store.find(anyString())).thenReturn(Optional.empty());
+        when(store.claim(anyString(), anyString())).thenReturn(true);
+    }
+
+    @Test
+    void firstRequestClaimsTheKeyAndRepeatsAreReplayed() throws Exception {
+        MockHttpServletResponse first = post("key-1", "{\"name\":\"A\"}", created());
+        assertEquals(201, first.getStatus());
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        verify(store).claim(eq("key-1"), anyString());
+        verify(store).complete(eq("key-1"), any(StoredResponse.class));
+
+        MockHttpServletResponse repeat = post("key-1", "{\"name\":\"A\"}", created());
+        assertEquals(201, repeat.getStatus());
+        assertEquals("true", repeat.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(first.getContentAsString(), repeat.getContentAsString());
+        assertEquals(1, executions.get());
+        assertEquals(1, filter.getReplayed());
+    }
+
+    @Test
+    void repeatWhileTheFirstIsRunningWaitsForItsResult() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            running.countDown();
+            try {
+                finish.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            created().doFilter(request, response);
+        };
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> postUnchecked(slow));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        CompletableFuture<MockHttpServletResponse> repeat = CompletableFuture.supplyAsync(() -> postUnchecked(created()));
+        while (filter.getCoalesced() == 0) {
+            Thread.onSpinWait();
+        }
+        finish.countDown();
+
+        assertEquals(201, first.get(10, TimeUnit.SECONDS).getStatus());
+        MockHttpServletResponse replayed = repeat.get(10, TimeUnit.SECONDS);
+        assertEquals(201, replayed.getStatus());
+        assertEquals("true", replayed.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1, executions.get());
+        verify(store, times(1)).claim(eq("key-2"), anyString());
+    }
+
+    @Test
+    void keyReusedForADifferentBodyIsRejected() throws Exception {
+        post("key-3", "{\"name\":\"A\"}", created());
+
+        MockHttpServletResponse reused = post("key-3", "{\"name\":\"B\"}", created());
+        assertEquals(422, reused.getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void serverErrorsAreNotStoredSoTheRetryRunsAgain() throws Exception {
+        FilterChain failing = (request, response) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(503);
+        };
+        assertEquals(503, post("key-4", "{}", failing).getStatus());
+        verify(store).release("key-4");
+        verify(store, never()).complete(eq("key-4"), any(StoredResponse.class));
+
+        assertEquals(201, post("key-4", "{}", created()).getStatus());
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void bufferedBodyCanBeReadWithAReadListener() throws Exception {
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicInteger allRead = new AtomicInteger();
+        FilterChain nonBlocking = (request, response) -> {
+            ServletInputStream in = request.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[4];
+                    int n;
+                    while (in.isReady() && !in.isFinished() && (n = in.read(buffer)) > 0) {
+                        read.write(buffer, 0, n);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allRead.incrementAndGet();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    throw new AssertionError(t);
+                }
+            });
+            created().doFilter(request, response);
+        };
+
+        post("key-5", "{\"name\":\"A\"}", nonBlocking);
+        assertEquals("{\"name\":\"A\"}", read.toString(StandardCharsets.UTF_8));
+        assertEquals(1, allRead.get());
+    }
+
+    private FilterChain created() {
+        return (request, response) -> {
+            executions.incrementAndGet();
+            request.getInputStream().readAllBytes();
+            HttpServletResponse http = (HttpServletResponse) response;
+            http.setStatus(201);
+            http.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            http.getWriter().write("{\"patientId\":\"" + executions.get() + "\"}");
+        };
+    }
+
+    private MockHttpServletResponse postUnchecked(FilterChain chain) {
+        try {
+            return post("key-2", "{\"name\":\"A\"}", chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MockHttpServletResponse post(String key, String body, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", PATH);
+        request.addHeader("Idempotency-Key", key);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
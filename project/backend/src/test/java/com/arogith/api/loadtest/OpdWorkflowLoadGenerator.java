@@ -0,0 +1,419 @@
+package com.arogith.api.loadtest;
+
+import com.arogith.api.ArogithApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays the OPD morning-rush workflow against a locally booted API:
+ * login, Aadhar check, patient registration, visit creation, lab order, lab result and dashboard reads.
+ * The API runs in-process against an embedded Postgres (or a local one given by loadtest.db.url),
+ * never against the remote database configured in application.properties.
+ *
+ * Run with: mvn -B -Ploadtest verify -Dloadtest.concurrency=50 -Dloadtest.duration-seconds=120
+ * System properties:
+ *   loadtest.concurrency (20), loadtest.duration-seconds (60), loadtest.warmup-seconds (10),
+ *   loadtest.dashboard-ratio (0.2, share of workflows that end with the dashboard reads),
+ *   loadtest.profiles (extra Spring profiles, e.g. "virtual"),
+ *   loadtest.db.url / loadtest.db.username / loadtest.db.password (use a local Postgres instead),
+ *   loadtest.output-dir (target/loadtest).
+ * Each run writes a JSON report with throughput and p50/p99/p999 per endpoint so runs can be diffed.
+ */
+public class OpdWorkflowLoadGenerator {
+
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 20);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 60);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 10);
+    private static final double DASHBOARD_RATIO =
+            Double.parseDouble(System.getProperty("loadtest.dashboard-ratio", "0.2"));
+    private static final String PROFILES = System.getProperty("loadtest.profiles", "");
+    private static final String OUTPUT_DIR = System.getProperty("loadtest.output-dir", "target/loadtest");
+
+    private static final String NURSE_ID = "LOADTEST01";
+    private static final String NURSE_PASSWORD = "loadtest";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final AtomicLong aadharSequence = new AtomicLong(900_000_000_000L + System.currentTimeMillis() % 1_000_000 * 1000);
+    private final String baseUrl;
+
+    OpdWorkflowLoadGenerator(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        EmbeddedPostgres embeddedPostgres = null;
+        String dbUrl = System.getProperty("loadtest.db.url");
+        String dbUsername = System.getProperty("loadtest.db.username", "postgres");
+        String dbPassword = System.getProperty("loadtest.db.password", "postgres");
+        if (dbUrl == null) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            dbUrl = embeddedPostgres.getJdbcUrl("postgres", "postgres");
+        }
+
+        ConfigurableApplicationContext application = null;
+        try {
+            application = new SpringApplicationBuilder(ArogithApplication.class)
+                    .profiles(PROFILES.isBlank() ? new String[0] : PROFILES.split(","))
+                    .run(applicationArguments(dbUrl, dbUsername, dbPassword, args));
+            int port = application.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            OpdWorkflowLoadGenerator generator = new OpdWorkflowLoadGenerator("http://localhost:" + port);
+            generator.seedNurse();
+
+            System.out.printf("Warming up for %d s with %d users...%n", WARMUP_SECONDS, CONCURRENCY);
+            generator.runPhase(WARMUP_SECONDS);
+            System.out.printf("Measuring for %d s with %d users...%n", DURATION_SECONDS, CONCURRENCY);
+            PhaseResult result = generator.runPhase(DURATION_SECONDS);
+
+            Map<String, Object> report = result.toReport();
+            report.put("hibernate", generator.fetchHibernateStatistics());
+            printSummary(report);
+            File output = writeReport(generator.objectMapper, report);
+            System.out.println("Report written to " + output.getAbsolutePath());
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            if (embeddedPostgres != null) {
+                embeddedPostgres.close();
+            }
+        }
+    }
+
+    /**
+     * Passed as command-line arguments so they take precedence over application.properties.
+     * Arguments given to the generator itself (e.g. --spring.jpa.properties...=false) are appended last.
+     */
+    private static String[] applicationArguments(String dbUrl, String username, String password, String[] extra) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", dbUrl);
+        properties.put("spring.datasource.username", username);
+        properties.put("spring.datasource.password", password);
+        properties.put("server.port", 0);
+        properties.put("management.server.port", 0);
+        // Keep console I/O out of the measurement
+        properties.put("spring.jpa.show-sql", false);
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        properties.put("logging.level.org.springframework.web", "WARN");
+        properties.put("logging.level.org.springframework.jdbc", "WARN");
+        properties.put("logging.level.com.arogith.api", "WARN");
+        List<String> arguments = new ArrayList<>();
+        properties.forEach((key, value) -> arguments.add("--" + key + "=" + value));
+        arguments.addAll(List.of(extra));
+        return arguments.toArray(String[]::new);
+    }
+
+    /**
+     * Cumulative second-level cache and statement counts of the run, to compare cache on/off.
+     */
+    private JsonNode fetchHibernateStatistics() throws Exception {
+        HttpResponse<String> response = send(get("/api/test/cache-stats"));
+        return response.statusCode() == 200 ? objectMapper.readTree(response.body()) : objectMapper.nullNode();
+    }
+
+    private void seedNurse() throws Exception {
+        Map<String, Object> nurse = new LinkedHashMap<>();
+        nurse.put("nurseId", NURSE_ID);
+        nurse.put("name", "Load Test Nurse");
+        nurse.put("email", "loadtest@arogith.local");
+        nurse.put("password", NURSE_PASSWORD);
+        nurse.put("role", "NURSE");
+        nurse.put("status", "Active");
+        HttpResponse<String> response = send(post("/api/nurses", nurse));
+        if (response.statusCode() != 201 && response.statusCode() != 409) {
+            throw new IllegalStateException("Could not seed nurse: " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    private PhaseResult runPhase(int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Worker> workers = new ArrayList<>(CONCURRENCY);
+        List<Thread> threads = new ArrayList<>(CONCURRENCY);
+        long start = System.nanoTime();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            Worker worker = new Worker(deadline);
+            Thread thread = new Thread(worker, "opd-load-" + i);
+            workers.add(worker);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new PhaseResult(workers, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * One simulated nurse tablet running the registration workflow back to back.
+     */
+    private class Worker implements Runnable {
+        private final long deadline;
+        private final Map<String, LatencySamples> samples = new LinkedHashMap<>();
+        private long workflowsCompleted;
+        private long workflowsFailed;
+
+        Worker(long deadline) {
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < deadline) {
+                try {
+                    if (runWorkflow()) {
+                        workflowsCompleted++;
+                    } else {
+                        workflowsFailed++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    workflowsFailed++;
+                }
+            }
+        }
+
+        private boolean runWorkflow() throws Exception {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String aadhar = String.valueOf(aadharSequence.incrementAndGet());
+
+            if (call("POST /api/auth/login", post("/api/auth/login",
+                    Map.of("nurse_id", NURSE_ID, "password", NURSE_PASSWORD))) == null) {
+                return false;
+            }
+            if (call("GET /api/patients/check-aadhar/{aadhar}", get("/api/patients/check-aadhar/" + aadhar)) == null) {
+                return false;
+            }
+
+            Map<String, Object> patient = new LinkedHashMap<>();
+            patient.put("name", "Load" + random.nextInt(10_000));
+            patient.put("surname", "Patient");
+            patient.put("fatherName", "Father");
+            patient.put("gender", random.nextBoolean() ? "Male" : "Female");
+            patient.put("age", 1 + random.nextInt(90));
+            patient.put("address", "Load test address");
+            patient.put("bloodGroup", "O+");
+            patient.put("phoneNumber", "9" + (100_000_000 + random.nextInt(899_999_999)));
+            patient.put("aadharNumber", aadhar);
+            JsonNode registered = call("POST /api/patients", post("/api/patients", Map.of("patient", patient)));
+            if (registered == null) {
+                return false;
+            }
+            String patientId = registered.path("patientId").asText();
+
+            Map<String, Object> visit = new LinkedHashMap<>();
+            visit.put("bp", (100 + random.nextInt(60)) + "/" + (60 + random.nextInt(40)));
+            visit.put("complaint", random.nextBoolean() ? "Fever" : "Cough");
+            visit.put("symptoms", "Since " + (1 + random.nextInt(5)) + " days");
+            visit.put("temperature", "99." + random.nextInt(10));
+            visit.put("weight", String.valueOf(20 + random.nextInt(70)));
+            JsonNode createdVisit = call("POST /api/visits/patient/{patientId}",
+                    post("/api/visits/patient/" + patientId, visit));
+            if (createdVisit == null) {
+                return false;
+            }
+            long visitId = createdVisit.path("visitId").asLong();
+
+            JsonNode labTest = call("POST /api/labtests/patient/{patientId}/visit/{visitId}",
+                    post("/api/labtests/patient/" + patientId + "/visit/" + visitId,
+                            Map.of("testName", "CBC", "referenceRange", "4.0 - 11.0")));
+            if (labTest == null) {
+                return false;
+            }
+            long testId = labTest.path("testId").asLong();
+
+            if (call("PATCH /api/labtests/{testId}/result", request("/api/labtests/" + testId + "/result",
+                    "PATCH", Map.of("result", "7.2", "status", "Completed"))) == null) {
+                return false;
+            }
+
+            if (random.nextDouble() < DASHBOARD_RATIO) {
+                if (call("GET /api/patients", get("/api/patients")) == null
+                        || call("GET /api/visits", get("/api/visits")) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private JsonNode call(String endpoint, HttpRequest request) throws Exception {
+            LatencySamples endpointSamples = samples.computeIfAbsent(endpoint, name -> new LatencySamples());
+            long begin = System.nanoTime();
+            HttpResponse<String> response;
+            try {
+                response = send(request);
+            } catch (java.io.IOException e) {
+                endpointSamples.record(System.nanoTime() - begin, false);
+                return null;
+            }
+            boolean ok = response.statusCode() < 400;
+            endpointSamples.record(System.nanoTime() - begin, ok);
+            if (!ok) {
+                return null;
+            }
+            String body = response.body();
+            return body == null || body.isEmpty() ? objectMapper.nullNode() : objectMapper.readTree(body);
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws java.io.IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, Object body) throws Exception {
+        return request(path, "POST", body);
+    }
+
+    private HttpRequest request(String path, String method, Object body) throws Exception {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    /**
+     * Latencies of one endpoint as seen by one worker; merged across workers at the end of a phase.
+     */
+    private static final class LatencySamples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private long errors;
+
+        void record(long latencyNanos, boolean ok) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = latencyNanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+    }
+
+    private static final class PhaseResult {
+        private final List<Worker> workers;
+        private final double elapsedSeconds;
+
+        PhaseResult(List<Worker> workers, double elapsedSeconds) {
+            this.workers = workers;
+            this.elapsedSeconds = elapsedSeconds;
+        }
+
+        Map<String, Object> toReport() {
+            Map<String, long[]> merged = new LinkedHashMap<>();
+            Map<String, Long> errors = new HashMap<>();
+            long completed = 0;
+            long failed = 0;
+            for (Worker worker : workers) {
+                completed += worker.workflowsCompleted;
+                failed += worker.workflowsFailed;
+                worker.samples.forEach((endpoint, samples) -> {
+                    long[] existing = merged.getOrDefault(endpoint, new long[0]);
+                    long[] combined = Arrays.copyOf(existing, existing.length + samples.size);
+                    System.arraycopy(samples.nanos, 0, combined, existing.length, samples.size);
+                    merged.put(endpoint, combined);
+                    errors.merge(endpoint, samples.errors, Long::sum);
+                });
+            }
+
+            Map<String, Object> endpoints = new LinkedHashMap<>();
+            merged.forEach((endpoint, latencies) -> {
+                Arrays.sort(latencies);
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("count", latencies.length);
+                stats.put("errors", errors.get(endpoint));
+                stats.put("throughputPerSecond", round(latencies.length / elapsedSeconds));
+                stats.put("meanMs", round(Arrays.stream(latencies).average().orElse(0) / 1e6));
+                stats.put("p50Ms", percentileMillis(latencies, 0.50));
+                stats.put("p99Ms", percentileMillis(latencies, 0.99));
+                stats.put("p999Ms", percentileMillis(latencies, 0.999));
+                stats.put("maxMs", latencies.length == 0 ? 0 : round(latencies[latencies.length - 1] / 1e6));
+                endpoints.put(endpoint, stats);
+            });
+
+            Map<String, Object> config = new LinkedHashMap<>();
+            config.put("concurrency", CONCURRENCY);
+            config.put("durationSeconds", DURATION_SECONDS);
+            config.put("warmupSeconds", WARMUP_SECONDS);
+            config.put("dashboardRatio", DASHBOARD_RATIO);
+            config.put("profiles", PROFILES);
+            config.put("database", System.getProperty("loadtest.db.url") == null ? "embedded" : "external");
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("startedAt", LocalDateTime.now().toString());
+            report.put("config", config);
+            report.put("elapsedSeconds", round(elapsedSeconds));
+            report.put("workflowsCompleted", completed);
+            report.put("workflowsFailed", failed);
+            report.put("workflowsPerSecond", round(completed / elapsedSeconds));
+            report.put("endpoints", endpoints);
+            return report;
+        }
+
+        private static double percentileMillis(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return round(sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6);
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printSummary(Map<String, Object> report) {
+        System.out.printf("workflows: %s completed, %s failed, %s/s%n", report.get("workflowsCompleted"),
+                report.get("workflowsFailed"), report.get("workflowsPerSecond"));
+        System.out.printf("%-55s %8s %7s %9s %9s %9s %9s%n", "endpoint", "count", "errors", "req/s", "p50 ms",
+                "p99 ms", "p999 ms");
+        ((Map<String, Map<String, Object>>) report.get("endpoints")).forEach((endpoint, stats) ->
+                System.out.printf("%-55s %8s %7s %9s %9s %9s %9s%n", endpoint, stats.get("count"), stats.get("errors"),
+                        stats.get("throughputPerSecond"), stats.get("p50Ms"), stats.get("p99Ms"), stats.get("p999Ms")));
+    }
+
+    private static File writeReport(ObjectMapper objectMapper, Map<String, Object> report) throws Exception {
+        File directory = new File(OUTPUT_DIR);
+        directory.mkdirs();
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        File output = new File(directory, "opd-load-" + timestamp + ".json");
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(output, report);
+        return output;
+    }
+}
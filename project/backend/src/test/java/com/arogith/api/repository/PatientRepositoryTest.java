@@ -0,0 +1,79 @@
+package com.arogith.api.repository;
+
+import com.arogith.api.model.Patient;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Patients against an embedded Postgres with schema.sql, so the insert trigger runs.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PatientRepositoryTest {
+
+    private static EmbeddedPostgres embeddedPostgres;
+
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @DynamicPropertySource
+    static void embeddedDatabase(DynamicPropertyRegistry registry) throws IOException {
+        embeddedPostgres = EmbeddedPostgres.builder().start();
+        registry.add("spring.datasource.url", () -> embeddedPostgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        embeddedPostgres.close();
+    }
+
+    // The second-level cache outlives this context and its database, so leave no patients in it
+    @AfterEach
+    void evictCache() {
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void triggerNumbersReachTheSavedAndCachedPatient() {
+        Patient saved = patientRepository.save(patient("501", null));
+        assertEquals("OP501", saved.getOpNo());
+        assertEquals("REG501", saved.getRegNo());
+
+        assertTrue(entityManagerFactory.getCache().contains(Patient.class, "501"));
+        Patient cached = patientRepository.findById("501").orElseThrow();
+        assertEquals("OP501", cached.getOpNo());
+        assertEquals("REG501", cached.getRegNo());
+
+        assertEquals("OP-GIVEN", patientRepository.save(patient("502", "OP-GIVEN")).getOpNo());
+    }
+
+    private static Patient patient(String patientId, String opNo) {
+        Patient patient = new Patient();
+        patient.setPatientId(patientId);
+        patient.setName("Name " + patientId);
+        patient.setSurname("Surname");
+        patient.setAadharNumber("9999000" + patientId);
+        patient.setOpNo(opNo);
+        return patient;
+    }
+}
@@ -0,0 +1,353 @@
+package com.arogith.api.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs EXPLAIN (ANALYZE, BUFFERS) for the SQL Hibernate generates for every repository query method,
+ * against an embedded Postgres seeded with synthetic data at production scale.
+ * A method fails when its plan contains a sequential scan, or when its estimated cost exceeds the
+ * recorded baseline by more than the tolerance.
+ *
+ * System properties:
+ *   queryplan.patients (50000; 3 visits per patient, 2 lab tests per visit),
+ *   queryplan.cost-tolerance (0.5, allowed relative cost increase over the baseline),
+ *   queryplan.update-baseline (false; rewrite src/test/resources/queryplan-baseline.properties).
+ * Costs are only compared at the scale the baseline was recorded with.
+ * findAll and count read the whole table by design and are not covered.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RepositoryQueryPlanTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(RepositoryQueryPlanTest.class);
+
+    private static final int PATIENTS = Integer.getInteger("queryplan.patients", 50_000);
+    private static final double COST_TOLERANCE =
+            Double.parseDouble(System.getProperty("queryplan.cost-tolerance", "0.5"));
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("queryplan.update-baseline");
+    private static final String BASELINE_RESOURCE = "/queryplan-baseline.properties";
+    private static final Path BASELINE_SOURCE = Path.of("src/test/resources/queryplan-baseline.properties");
+    private static final String SCALE_KEY = "scale.patients";
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\?");
+
+    private static EmbeddedPostgres embeddedPostgres;
+
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private VisitRepository visitRepository;
+    @Autowired
+    private LabTestRepository labTestRepository;
+    @Autowired
+    private NurseRepository nurseRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CapturedStatements capturedStatements;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Properties baseline = new Properties();
+    private final TreeMap<String, String> measuredCosts = new TreeMap<>();
+
+    @DynamicPropertySource
+    static void embeddedDatabase(DynamicPropertyRegistry registry) throws IOException {
+        embeddedPostgres = EmbeddedPostgres.builder().start();
+        registry.add("spring.datasource.url", () -> embeddedPostgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @BeforeAll
+    void seed() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(BASELINE_RESOURCE)) {
+            if (in != null) {
+                baseline.load(in);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        int visits = PATIENTS * 3;
+        jdbcTemplate.execute("SELECT setseed(0.42)");
+        // Patient IDs as PatientService formats them (%03d)
+        jdbcTemplate.update("""
+                INSERT INTO patients (patient_id, name, surname, father_name, gender, age, address, blood_group,
+                                      phone_number, aadhar_number, total_visits, op_no, reg_no)
+                SELECT p.id, 'Name' || i, 'Surname' || (i % 500), 'Father' || i,
+                       CASE WHEN i % 2 = 0 THEN 'Female' ELSE 'Male' END, 1 + (i % 90), 'Address ' || i,
+                       (ARRAY['A+', 'B+', 'O+', 'AB+', 'O-'])[1 + i % 5], (9000000000 + i)::text,
+                       (100000000000 + i)::text, 3, 'OP' || p.id, 'REG' || p.id
+                FROM generate_series(1, ?) AS i,
+                     LATERAL (SELECT CASE WHEN i < 1000 THEN lpad(i::text, 3, '0') ELSE i::text END AS id) AS p
+                """, PATIENTS);
+        jdbcTemplate.update("""
+                INSERT INTO visits (visit_date, bp, complaint, symptoms, status, temperature, weight, prescription,
+                                    patient_id, op_no, reg_no)
+                SELECT now() - (random() * 730) * interval '1 day', '120/80', 'Complaint ' || (i % 200),
+                       'Symptoms ' || (i % 300), CASE WHEN i % 20 = 0 THEN 'Waiting' ELSE 'Completed' END,
+                       '98.6', '60', 'Prescription ' || (i % 400), p.patient_id, 'OP' || i, 'REG' || i
+                FROM generate_series(1, ?) AS i
+                JOIN patients p ON p.aadhar_number = (100000000000 + 1 + i % ?)::text
+                """, visits, PATIENTS);
+        // Lab tests are mostly completed; a small share is pending at any time
+        jdbcTemplate.update("""
+                INSERT INTO labtests (test_name, result, reference_range, status, visit_id, patient_id, test_given_at)
+                SELECT (ARRAY['CBC', 'Blood Sugar', 'Lipid Profile', 'LFT', 'KFT'])[1 + i % 5], 'Normal', 'n/a',
+                       CASE WHEN random() < 0.01 THEN 'Pending' ELSE 'Completed' END, v.visit_id, v.patient_id,
+                       v.visit_date
+                FROM visits v CROSS JOIN generate_series(1, 2) AS i
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO nurse (nurse_id, name, email, password, role, status)
+                SELECT 'N' || lpad(i::text, 5, '0'), 'Nurse ' || i, 'nurse' || i || '@arogith.test', 'secret',
+                       'NURSE', CASE WHEN i % 25 = 0 THEN 'ACTIVE' ELSE 'INACTIVE' END
+                FROM generate_series(1, ?) AS i
+                """, Math.max(100, PATIENTS / 25));
+        jdbcTemplate.update("""
+                INSERT INTO users (name, email, password, role)
+                SELECT 'User ' || i, 'user' || i || '@arogith.test', 'secret', 'STAFF'
+                FROM generate_series(1, ?) AS i
+                """, Math.max(100, PATIENTS / 10));
+        jdbcTemplate.execute("ANALYZE");
+        logger.info("Seeded {} patients, {} visits, {} lab tests in {} ms",
+                PATIENTS, visits, visits * 2, System.currentTimeMillis() - start);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> repositoryMethods() {
+        String patientId = String.format("%03d", PATIENTS / 2);
+        String aadharNumber = String.valueOf(100_000_000_000L + PATIENTS / 2);
+        long visitId = jdbcTemplate.queryForObject("SELECT max(visit_id) / 2 FROM visits", Long.class);
+        String nurseId = String.format("N%05d", 50);
+        String nurseEmail = "nurse50@arogith.test";
+        String userEmail = "user50@arogith.test";
+        // Five ids, as ?ids= batches bind them: padded to the next power of two by repeating the last
+        List<Long> visitIds = List.of(visitId, visitId + 7, visitId + 14, visitId + 21, visitId + 28);
+
+        return Stream.of(
+                plan("PatientRepository.findById", () -> patientRepository.findById(patientId), patientId),
+                plan("PatientRepository.findByAadharNumber",
+                        () -> patientRepository.findByAadharNumber(aadharNumber), aadharNumber),
+                plan("PatientRepository.existsByAadharNumber",
+                        () -> patientRepository.existsByAadharNumber(aadharNumber), aadharNumber, 1),
+                plan("VisitRepository.findById", () -> visitRepository.findById(visitId), visitId),
+                plan("VisitRepository.findByPatientPatientId",
+                        () -> visitRepository.findByPatientPatientId(patientId), patientId),
+                plan("VisitRepository.findByPatientPatientIdOrderByVisitDateDesc",
+                        () -> visitRepository.findByPatientPatientIdOrderByVisitDateDesc(patientId), patientId),
+                plan("VisitRepository.findByVisitIdIn",
+                        () -> visitRepository.findByVisitIdIn(visitIds), padded(visitIds)),
+                plan("LabTestRepository.findById", () -> labTestRepository.findById(visitId), visitId),
+                plan("LabTestRepository.findByPatientPatientId",
+                        () -> labTestRepository.findByPatientPatientId(patientId), patientId),
+                plan("LabTestRepository.findByVisitVisitId",
+                        () -> labTestRepository.findByVisitVisitId(visitId), visitId),
+                plan("LabTestRepository.findByStatus", () -> labTestRepository.findByStatus("Pending"), "Pending"),
+                plan("LabTestRepository.findByTestIdIn",
+                        () -> labTestRepository.findByTestIdIn(visitIds), padded(visitIds)),
+                plan("NurseRepository.findById", () -> nurseRepository.findById(nurseId), nurseId),
+                plan("NurseRepository.findByNurseId", () -> nurseRepository.findByNurseId(nurseId), nurseId),
+                plan("NurseRepository.existsByNurseId", () -> nurseRepository.existsByNurseId(nurseId), nurseId, 1),
+                plan("NurseRepository.existsByEmail", () -> nurseRepository.existsByEmail(nurseEmail), nurseEmail, 1),
+                plan("NurseRepository.findByStatusIgnoreCase",
+                        () -> nurseRepository.findByStatusIgnoreCase("active"), "active"),
+                plan("UserRepository.findById", () -> userRepository.findById(50L), 50L),
+                plan("UserRepository.findByEmail", () -> userRepository.findByEmail(userEmail), userEmail),
+                plan("UserRepository.existsByEmail", () -> userRepository.existsByEmail(userEmail), userEmail, 1));
+    }
+
+    @AfterAll
+    void writeBaseline() throws IOException {
+        if (!UPDATE_BASELINE) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add("# Estimated total cost per repository method, see RepositoryQueryPlanTest");
+        lines.add(SCALE_KEY + "=" + PATIENTS);
+        measuredCosts.forEach((name, cost) -> lines.add(name + "=" + cost));
+        Files.createDirectories(BASELINE_SOURCE.getParent());
+        Files.write(BASELINE_SOURCE, lines);
+        logger.info("Wrote query plan baseline to {}", BASELINE_SOURCE.toAbsolutePath());
+    }
+
+    /**
+     * @param parameters values for the statement's placeholders, in order (including the row limit
+     *                   Spring Data binds for exists queries)
+     */
+    private DynamicTest plan(String name, Runnable invocation, Object... parameters) {
+        return DynamicTest.dynamicTest(name, () -> {
+            entityManagerFactory.getCache().evictAll();
+            capturedStatements.clear();
+            invocation.run();
+            List<String> statements = capturedStatements.get();
+            assertFalse(statements.isEmpty(), name + " issued no SQL");
+
+            // The query itself; eager associations are loaded by follow-up primary key lookups
+            String sql = statements.get(0);
+            JsonNode plan = explain(sql, parameters);
+            JsonNode root = plan.get("Plan");
+            double cost = root.get("Total Cost").asDouble();
+            logger.info("{}: cost {}, {} ms, shared buffers hit {} read {}\n{}", name, cost,
+                    plan.get("Execution Time").asDouble(), root.path("Shared Hit Blocks").asLong(),
+                    root.path("Shared Read Blocks").asLong(), sql);
+            measuredCosts.put(name, String.format("%.2f", cost));
+
+            List<String> sequentialScans = new ArrayList<>();
+            collectSequentialScans(root, sequentialScans);
+            assertTrue(sequentialScans.isEmpty(), name + " scans " + sequentialScans + " sequentially:\n"
+                    + sql + "\n" + plan.toPrettyString());
+
+            String recorded = baseline.getProperty(name);
+            boolean sameScale = String.valueOf(PATIENTS).equals(baseline.getProperty(SCALE_KEY));
+            if (recorded != null && sameScale && !UPDATE_BASELINE) {
+                double allowed = Double.parseDouble(recorded) * (1 + COST_TOLERANCE);
+                assertTrue(cost <= allowed, String.format("%s cost %.2f exceeds baseline %s by more than %.0f%%:%n%s",
+                        name, cost, recorded, COST_TOLERANCE * 100, plan.toPrettyString()));
+            }
+        });
+    }
+
+    /**
+     * The values bound for an IN list with hibernate.query.in_clause_parameter_padding.
+     */
+    private static Object[] padded(List<?> values) {
+        int size = Integer.highestOneBit(values.size() - 1) << 1;
+        Object[] parameters = new Object[Math.max(size, values.size())];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = values.get(Math.min(i, values.size() - 1));
+        }
+        return parameters;
+    }
+
+    private JsonNode explain(String sql, Object... parameters) {
+        Matcher matcher = PLACEHOLDER.matcher(sql);
+        StringBuilder prepared = new StringBuilder();
+        int count = 0;
+        while (matcher.find()) {
+            matcher.appendReplacement(prepared, "\\$" + (++count));
+        }
+        matcher.appendTail(prepared);
+        assertEquals(parameters.length, count, "Placeholder count changed for:\n" + sql);
+
+        List<String> literals = new ArrayList<>();
+        for (Object parameter : parameters) {
+            literals.add(parameter instanceof Number ? parameter.toString()
+                    : "'" + parameter.toString().replace("'", "''") + "'");
+        }
+        String execute = count == 0 ? "EXECUTE plan_check" : "EXECUTE plan_check(" + String.join(", ", literals) + ")";
+
+        // PREPARE/EXECUTE so the planner sees the bound values, on one connection
+        String json = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PREPARE plan_check AS " + prepared);
+                try (ResultSet rs = statement.executeQuery("EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) " + execute)) {
+                    rs.next();
+                    return rs.getString(1);
+                } finally {
+                    statement.execute("DEALLOCATE plan_check");
+                }
+            }
+        });
+        try {
+            return objectMapper.readTree(json).get(0);
+        } catch (IOException e) {
+            fail("Could not parse plan: " + json);
+            return null;
+        }
+    }
+
+    private static void collectSequentialScans(JsonNode node, List<String> relations) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            relations.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSequentialScans(child, relations);
+        }
+    }
+
+    /**
+     * Records the SQL Hibernate sends, so the test explains exactly what the application runs.
+     */
+    static class CapturedStatements implements StatementInspector {
+
+        private final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+        List<String> get() {
+            return List.copyOf(statements);
+        }
+
+        void clear() {
+            statements.clear();
+        }
+    }
+
+    @TestConfiguration
+    static class StatementCaptureConfig {
+
+        @Bean
+        CapturedStatements capturedStatements() {
+            return new CapturedStatements();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementInspectorCustomizer(CapturedStatements capturedStatements) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, capturedStatements);
+        }
+    }
+}
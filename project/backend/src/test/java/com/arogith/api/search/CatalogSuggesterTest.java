@@ -0,0 +1,43 @@
+package com.arogith.api.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CatalogSuggesterTest {
+
+    private static final List<String> DRUGS = CatalogSuggester.parseCatalog(List.of(
+            "# comment", "Paracetamol 500mg", "Paracetamol 650mg", "Pantoprazole 40mg",
+            "Amoxicillin + Clavulanic acid 625mg", "paracetamol 500 MG", ""));
+
+    @Test
+    void usageCountsFullNamesAndStrengthlessMentions() {
+        Map<String, Long> uses = CatalogSuggester.countMentions(DRUGS, Map.of(
+                "paracetamol 500 mg tds, pantoprazole 40mg od", 30L,
+                "paracetamol sos", 5L,
+                "amoxicillin + clavulanic acid 625 mg bd", 2L));
+        assertEquals(35L, uses.get("Paracetamol 500mg"));
+        assertEquals(5L, uses.get("Paracetamol 650mg"));
+        assertEquals(30L, uses.get("Pantoprazole 40mg"));
+        assertEquals(2L, uses.get("Amoxicillin + Clavulanic acid 625mg"));
+    }
+
+    @Test
+    void suggestionsMatchAnyWordAndRankByUse() throws Exception {
+        assertEquals(4, DRUGS.size());
+        CatalogSuggester suggester = new CatalogSuggester(DRUGS,
+                Map.of("Paracetamol 650mg", 9L, "Paracetamol 500mg", 3L, "Pantoprazole 40mg", 5L));
+
+        assertEquals(List.of("Paracetamol 650mg", "Pantoprazole 40mg", "Paracetamol 500mg"),
+                suggester.suggest("Pa", 10).stream().map(CatalogSuggester.Suggestion::name).toList());
+        assertEquals("Amoxicillin + Clavulanic acid 625mg", suggester.suggest("clav", 10).get(0).name());
+        assertEquals(List.of("Paracetamol 650mg"),
+                suggester.suggest("para", 1).stream().map(CatalogSuggester.Suggestion::name).toList());
+        assertFalse(suggester.suggest("500", 10).isEmpty());
+        assertEquals(List.of(), suggester.suggest("  ", 10));
+    }
+}
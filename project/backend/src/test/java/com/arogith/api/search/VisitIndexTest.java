@@ -0,0 +1,65 @@
+package com.arogith.api.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VisitIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void stemmedMatchesAreHighlightedAndPaged() throws Exception {
+        try (VisitIndex index = new VisitIndex(directory)) {
+            for (long id = 1; id <= 25; id++) {
+                index.upsert(visit("public", id, "Coughing since " + id + " days", "fever & chills", "Paracetamol 500mg"), "b1");
+            }
+            index.upsert(visit("public", 26, "Headache", "nausea", "rest"), "b1");
+            index.upsert(visit("branch_2", 27, "Cough", "fever", null), "b1");
+            index.refresh();
+
+            VisitIndex.Page first = index.search("public", "cough fever", null, VisitIndex.Order.DATE, 0, 10);
+            assertEquals(25, first.total());
+            assertEquals(10, first.hits().size());
+            assertEquals(25, first.hits().get(0).visitId());
+            assertTrue(first.hits().get(0).highlights().get(VisitIndex.COMPLAINT).contains("<mark>Coughing</mark>"));
+            assertTrue(first.hits().get(0).highlights().get(VisitIndex.SYMPTOMS).contains("&amp;"));
+
+            VisitIndex.Page last = index.search("public", "cough fever", null, VisitIndex.Order.DATE, 20, 10);
+            assertEquals(5, last.hits().size());
+            assertEquals(1, index.search("public", "\"since 7 days\"", null, VisitIndex.Order.RELEVANCE, 0, 10).total());
+        }
+    }
+
+    @Test
+    void rebuildDropsDocumentsOfEarlierBuildsAndCommitKeepsUserData() throws Exception {
+        try (VisitIndex index = new VisitIndex(directory)) {
+            index.upsert(visit("public", 1, "fever", null, null), "b1");
+            index.upsert(visit("public", 2, "fever", null, null), "b1");
+            index.upsert(visit("branch_2", 3, "fever", null, null), "b1");
+            index.upsert(visit("public", 1, "fever", null, null), "b2");
+            index.deleteOtherBuilds("public", "b2");
+            index.commit(Map.of("horizon.public", "42"));
+            index.refresh();
+            assertEquals(1, index.search("public", "fever", null, VisitIndex.Order.RELEVANCE, 0, 10).total());
+            assertEquals(1, index.search("branch_2", "fever", null, VisitIndex.Order.RELEVANCE, 0, 10).total());
+        }
+        try (VisitIndex reopened = new VisitIndex(directory)) {
+            assertEquals("42", reopened.getCommittedUserData().get("horizon.public"));
+            assertEquals(2, reopened.numDocs());
+        }
+    }
+
+    private static VisitIndex.VisitDocument visit(String schema, long id, String complaint, String symptoms,
+                                                  String prescription) {
+        return new VisitIndex.VisitDocument(schema, id, "P" + id, LocalDateTime.of(2026, 1, 1, 9, 0).plusDays(id),
+                complaint, symptoms, prescription);
+    }
+}
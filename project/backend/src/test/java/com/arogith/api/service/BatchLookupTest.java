@@ -0,0 +1,30 @@
+package com.arogith.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchLookupTest {
+
+    @Test
+    void foundItemsFollowTheRequestOrderAndMissingIdsAreReported() {
+        List<Long> ids = BatchLookup.parseIds(" 7, 3,,7 ,12", Long::valueOf, 3);
+        assertEquals(List.of(7L, 3L, 12L), ids);
+
+        BatchLookup<Long, String> lookup = BatchLookup.inRequestOrder(ids, List.of("3", "7"), Long::valueOf);
+        assertEquals(List.of("7", "3"), lookup.items());
+        assertEquals(List.of(12L), lookup.missing());
+    }
+
+    @Test
+    void rejectsEmptyOversizedAndUnparseableIds() {
+        assertThrows(IllegalArgumentException.class, () -> BatchLookup.parseIds(" , ", Long::valueOf, 10));
+        assertThrows(IllegalArgumentException.class, () -> BatchLookup.parseIds("1,2,3", Long::valueOf, 2));
+        IllegalArgumentException invalid = assertThrows(IllegalArgumentException.class,
+                () -> BatchLookup.parseIds("1,x", Long::valueOf, 10));
+        assertEquals("Invalid id 'x'", invalid.getMessage());
+    }
+}
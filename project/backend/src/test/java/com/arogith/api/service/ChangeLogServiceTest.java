@@ -0,0 +1,200 @@
+package com.arogith.api.service;
+
+import com.arogith.api.controller.SyncController;
+import com.arogith.api.dto.SyncResponse;
+import com.arogith.api.model.Patient;
+import com.arogith.api.repository.PatientRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sync paging against an embedded Postgres, where transaction ids and snapshots are real.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ChangeLogService.class, SyncController.class})
+class ChangeLogServiceTest {
+
+    private static EmbeddedPostgres embeddedPostgres;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+    @Autowired
+    private SyncController syncController;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void embeddedDatabase(DynamicPropertyRegistry registry) throws IOException {
+        embeddedPostgres = EmbeddedPostgres.builder().start();
+        registry.add("spring.datasource.url", () -> embeddedPostgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        embeddedPostgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        ReflectionTestUtils.setField(syncController, "maxPageSize", 1000);
+    }
+
+    // The second-level cache outlives this context and its database, so leave no patients in it
+    @AfterEach
+    void evictCache() {
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void pagesSplitInsideOneTransactionDeliverEveryRowOnce() {
+        String token = start();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 1; i <= 5; i++) {
+                savePatient("10" + i);
+                changeLogService.recordUpsert(ChangeLogService.PATIENT, "10" + i);
+            }
+        });
+
+        List<String> delivered = new ArrayList<>();
+        List<Boolean> hasMore = new ArrayList<>();
+        for (int page = 0; page < 3; page++) {
+            SyncResponse response = changeLogService.getChanges(token, 2);
+            response.getPatients().forEach(patient -> delivered.add(patient.getPatientId()));
+            hasMore.add(response.isHasMore());
+            token = response.getToken();
+        }
+
+        assertEquals(List.of("101", "102", "103", "104", "105"), delivered.stream().sorted().toList());
+        assertEquals(List.of(true, true, false), hasMore);
+        assertTrue(changeLogService.getChanges(token, 2).getPatients().isEmpty());
+    }
+
+    @Test
+    void slowTransactionCommittingAfterALaterOneIsStillDelivered() throws SQLException {
+        String token = start();
+        savePatient("201");
+        savePatient("202");
+        try (Connection slow = dataSource.getConnection()) {
+            slow.setAutoCommit(false);
+            try (PreparedStatement insert = slow.prepareStatement(
+                    "INSERT INTO change_log (entity_type, entity_id, operation) VALUES ('patient', '201', 'UPSERT')")) {
+                insert.executeUpdate();
+            }
+            transactionTemplate.executeWithoutResult(
+                    status -> changeLogService.recordUpsert(ChangeLogService.PATIENT, "202"));
+
+            // Held back while the older transaction is running, even though 202 has committed
+            SyncResponse whileRunning = changeLogService.getChanges(token, 100);
+            assertTrue(whileRunning.getPatients().isEmpty());
+            assertFalse(whileRunning.isHasMore());
+            token = whileRunning.getToken();
+
+            slow.commit();
+        }
+
+        SyncResponse afterCommit = changeLogService.getChanges(token, 100);
+        assertEquals(List.of("201", "202"), patientIds(afterCommit));
+    }
+
+    @Test
+    void updatesOfOneRowCollapseIntoOneEntry() {
+        String token = start();
+        savePatient("301");
+        for (int i = 0; i < 3; i++) {
+            transactionTemplate.executeWithoutResult(
+                    status -> changeLogService.recordUpsert(ChangeLogService.PATIENT, "301"));
+        }
+
+        SyncResponse response = changeLogService.getChanges(token, 100);
+        assertEquals(List.of("301"), patientIds(response));
+        assertTrue(response.getDeleted().isEmpty());
+    }
+
+    @Test
+    void upsertFollowedByADeleteIsReportedAsDeleted() {
+        String token = start();
+        savePatient("401");
+        transactionTemplate.executeWithoutResult(status -> {
+            changeLogService.recordUpsert(ChangeLogService.PATIENT, "401");
+            changeLogService.recordUpsert(ChangeLogService.PATIENT, "402");
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            patientRepository.deleteById("401");
+            changeLogService.recordDelete(ChangeLogService.PATIENT, "401");
+        });
+
+        SyncResponse response = changeLogService.getChanges(token, 100);
+        assertTrue(response.getPatients().isEmpty());
+        // 402 was logged as upserted but no longer exists
+        assertEquals(Set.of(ChangeLogService.PATIENT), response.getDeleted().keySet());
+        assertEquals(List.of("401", "402"), response.getDeleted().get(ChangeLogService.PATIENT).stream().sorted().toList());
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        for (String token : List.of("abc", "12", ".5", "5.", "1.x", "1.2.3", "-1.0", "1.-2")) {
+            assertEquals(400, syncController.getChanges(token, 10).getStatusCode().value(), token);
+        }
+        assertEquals(200, syncController.getChanges(start(), 10).getStatusCode().value());
+    }
+
+    private String start() {
+        SyncResponse response = changeLogService.getChanges(null, 100);
+        assertTrue(response.isReset());
+        return response.getToken();
+    }
+
+    private static List<String> patientIds(SyncResponse response) {
+        return response.getPatients().stream().map(Patient::getPatientId).sorted().toList();
+    }
+
+    private void savePatient(String patientId) {
+        Patient patient = new Patient();
+        patient.setPatientId(patientId);
+        patient.setName("Name " + patientId);
+        patient.setSurname("Surname");
+        patient.setAadharNumber("9999000" + patientId);
+        patientRepository.save(patient);
+    }
+}
@@ -0,0 +1,154 @@
+package com.arogith.api.service;
+
+import com.arogith.api.model.Nurse;
+import com.arogith.api.repository.NurseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NursePresenceRegistryTest {
+
+    private final NurseRepository nurseRepository = mock(NurseRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final EntityCacheService entityCacheService = mock(EntityCacheService.class);
+    private final CacheInvalidationBus cacheInvalidationBus = mock(CacheInvalidationBus.class);
+    private NursePresenceRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        when(nurseRepository.findAll()).thenReturn(List.of(nurse("N1", "Active"), nurse("N2", "Active")));
+        when(nurseRepository.findByNurseId(anyString())).thenReturn(Optional.empty());
+        when(nurseRepository.findByNurseId("N3")).thenReturn(Optional.of(nurse("N3", "Offline")));
+        registry = new NursePresenceRegistry(nurseRepository, jdbcTemplate, entityCacheService, cacheInvalidationBus);
+        ReflectionTestUtils.setField(registry, "heartbeatTimeoutMs", 120_000L);
+        registry.loadPresences();
+    }
+
+    @Test
+    void statusChangesAreServedFromMemoryAndFlushedInOneBatch() {
+        assertTrue(registry.updateStatus("N1", "Break"));
+        assertTrue(registry.updateStatus("N1", "Active"));
+        assertTrue(registry.updateStatus("N3", "Active"));
+        assertFalse(registry.updateStatus("N9", "Active"));
+        assertEquals(Set.of("N1", "N2", "N3"), activeIds());
+
+        registry.flushPendingStatuses();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), argsOf(Map.of("N1", "Active", "N3", "Active")));
+        verify(entityCacheService).evictNurses(Set.of("N1", "N3"));
+        verify(cacheInvalidationBus).nursesChanged(Set.of("N1", "N3"));
+
+        clearInvocations(jdbcTemplate);
+        registry.flushPendingStatuses();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        registry.updateStatus("N2", "Break");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new IllegalStateException("down"));
+        registry.flushPendingStatuses();
+        verify(entityCacheService, never()).evictNurses(Set.of("N2"));
+
+        clearInvocations(jdbcTemplate);
+        doReturn(new int[]{1}).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        registry.flushPendingStatuses();
+        verify(jdbcTemplate).batchUpdate(anyString(), argsOf(Map.of("N2", "Break")));
+    }
+
+    @Test
+    void onlyNursesSendingHeartbeatsTimeOut() throws InterruptedException {
+        assertTrue(registry.heartbeat("N1"));
+        assertFalse(registry.heartbeat("N9"));
+        ReflectionTestUtils.setField(registry, "heartbeatTimeoutMs", 1L);
+        Thread.sleep(5);
+
+        registry.expireStalePresences();
+
+        // N2 only ever set its status, as the app does at login
+        assertEquals(Set.of("N2"), activeIds());
+        registry.flushPendingStatuses();
+        verify(jdbcTemplate).batchUpdate(anyString(), argsOf(Map.of("N1", "Offline")));
+    }
+
+    @Test
+    void heartbeatBringsATimedOutNurseBack() throws InterruptedException {
+        registry.heartbeat("N1");
+        ReflectionTestUtils.setField(registry, "heartbeatTimeoutMs", 1L);
+        Thread.sleep(5);
+        registry.expireStalePresences();
+        assertFalse(activeIds().contains("N1"));
+
+        ReflectionTestUtils.setField(registry, "heartbeatTimeoutMs", 120_000L);
+        registry.heartbeat("N1");
+        registry.expireStalePresences();
+
+        assertTrue(activeIds().contains("N1"));
+        registry.flushPendingStatuses();
+        verify(jdbcTemplate).batchUpdate(anyString(), argsOf(Map.of("N1", "Active")));
+    }
+
+    @Test
+    void heartbeatsAndStatusesFromOtherInstancesAreApplied() throws InterruptedException {
+        registry.heartbeat("N1");
+        registry.flushPendingStatuses();
+        verify(cacheInvalidationBus).heartbeatsReceived(List.of("N1"));
+
+        // N2's heartbeats go to another instance, which also set it on a break
+        registry.remoteHeartbeats(List.of("N2"));
+        when(nurseRepository.findAllById(List.of("N2"))).thenReturn(List.of(nurse("N2", "Break")));
+        registry.reload(List.of("N2"));
+        assertEquals(Set.of("N1"), activeIds());
+
+        registry.updateStatus("N1", "Break");
+        when(nurseRepository.findAllById(List.of("N1"))).thenReturn(List.of(nurse("N1", "Active")));
+        registry.reload(List.of("N1"));
+        // the status this instance still has to write wins
+        assertEquals(Set.of(), activeIds());
+
+        ReflectionTestUtils.setField(registry, "heartbeatTimeoutMs", 1L);
+        Thread.sleep(5);
+        registry.expireStalePresences();
+        assertTrue(registry.getPresencesByStatus(NursePresenceRegistry.STATUS_OFFLINE).stream()
+                .map(NursePresenceRegistry.Presence::getNurseId).toList().containsAll(List.of("N1", "N2")));
+    }
+
+    private Set<String> activeIds() {
+        return registry.getPresencesByStatus(NursePresenceRegistry.STATUS_ACTIVE).stream()
+                .map(NursePresenceRegistry.Presence::getNurseId)
+                .collect(Collectors.toSet());
+    }
+
+    private static List<Object[]> argsOf(Map<String, String> statuses) {
+        return argThat(args -> args.size() == statuses.size()
+                && args.stream().allMatch(row -> row[0].equals(statuses.get((String) row[1]))));
+    }
+
+    private static Nurse nurse(String nurseId, String status) {
+        Nurse nurse = new Nurse();
+        nurse.setNurseId(nurseId);
+        nurse.setName("Nurse " + nurseId);
+        nurse.setStatus(status);
+        return nurse;
+    }
+}
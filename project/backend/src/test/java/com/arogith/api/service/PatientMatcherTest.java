@@ -0,0 +1,61 @@
+package com.arogith.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatientMatcherTest {
+
+    @Test
+    void transliterationVariantsShareAPhoneticKey() {
+        assertEquals(PatientMatcher.phoneticKey("Lakshmi"), PatientMatcher.phoneticKey("Laxmi"));
+        assertEquals(PatientMatcher.phoneticKey("Srinivas"), PatientMatcher.phoneticKey("Sreenivas"));
+        assertEquals(PatientMatcher.phoneticKey("Aakash"), PatientMatcher.phoneticKey("Akash"));
+        assertFalse(PatientMatcher.phoneticKey("Ramesh").equals(PatientMatcher.phoneticKey("Suresh")));
+    }
+
+    @Test
+    void agesWithinToleranceShareABlock() {
+        for (int age = 0; age < 100; age++) {
+            for (int other = age; other <= age + 2; other++) {
+                List<String> left = PatientMatcher.blockingKeys(candidate("1", "Ravi", "Kumar", age, null), 2);
+                List<String> right = PatientMatcher.blockingKeys(candidate("2", "Ravi", "Kumar", other, null), 2);
+                assertTrue(left.stream().anyMatch(right::contains), age + " and " + other);
+            }
+        }
+    }
+
+    @Test
+    void spellingVariantWithSamePhoneScoresHigh() {
+        PatientMatcher.Match match = PatientMatcher.score(
+                candidate("017", "Laxmi", "Devi", 34, "+91 98480 22338"),
+                candidate("004", "Lakshmi", "Devi", 35, "9848022338"), 2);
+        assertEquals("004", match.patientIdA());
+        assertTrue(match.score() >= 0.9, "score " + match.score());
+        assertTrue(match.reasons().contains("phone"));
+    }
+
+    @Test
+    void relativesSharingAPhoneScoreLow() {
+        PatientMatcher.Match match = PatientMatcher.score(
+                candidate("001", "Ramesh", "Reddy", 62, "9848022338"),
+                candidate("002", "Anitha", "Reddy", 31, "9848022338"), 2);
+        assertTrue(match.score() < 0.8, "score " + match.score());
+    }
+
+    @Test
+    void placeholderPhonesAreIgnored() {
+        assertNull(PatientMatcher.phoneKey("0000000000"));
+        assertNull(PatientMatcher.phoneKey("123"));
+        assertEquals("9848022338", PatientMatcher.phoneKey("0091-98480-22338"));
+    }
+
+    private static PatientMatcher.Candidate candidate(String id, String name, String surname, Integer age, String phone) {
+        return new PatientMatcher.Candidate(id, name, surname, null, "Female", age, phone);
+    }
+}